@@ -0,0 +1,39 @@
+package exceptions;
+
+import task.Task;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Пакет задач отклонён целиком, потому что время некоторых задач пересекается.
+ * Содержит все найденные пары пересекающихся задач.
+ */
+public class BatchOverlapException extends TaskOverlapException {
+    private final List<Conflict> conflicts;
+
+    /**
+     * Пара пересекающихся задач. Хотя бы одна из них входит в пакет.
+     */
+    public record Conflict(Task first, Task second) {
+        @Override
+        public String toString() {
+            return describe(first) + " и " + describe(second);
+        }
+
+        private static String describe(Task task) {
+            return "'" + task.getName() + "' (" + (task.getId() == 0 ? "новая" : "ID " + task.getId()) + ")";
+        }
+    }
+
+    public BatchOverlapException(List<Conflict> conflicts) {
+        super("Время задач пакета пересекается: " + conflicts.stream()
+                .map(Conflict::toString)
+                .collect(Collectors.joining("; ")));
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+}
@@ -5,4 +5,8 @@ public class TaskOverlapException extends RuntimeException {
     public TaskOverlapException() {
         super("Новое время задачи пересекается с существующими");  // Фиксированное сообщение
     }
+
+    protected TaskOverlapException(String message) {
+        super(message);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,319 @@
+package management;
+
+import exceptions.ManagerSaveException;
+import task.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичный формат снимка задач — альтернатива {@link CSVFormat} для быстрого сохранения и загрузки.
+ * <pre>
+ * Заголовок: magic (int32 "KNBN"), версия (int16), количество записей (int32)
+ * Запись:    id (int32), тип (int8), статус (int8), id эпика (int32, 0 — нет),
+ *            начало в минутах от эпохи UTC (int64, Long.MIN_VALUE — не задано),
+ *            длительность в минутах (varint), название и описание (varint длина + UTF-8)
+ * </pre>
+ * Время хранится с точностью до минуты, как и в CSV. Правила восстановления времени совпадают
+ * с {@link CSVFormat#taskFromString}: у эпика время вычисляется по подзадачам.
+ */
+public final class BinaryFormat {
+    public static final int MAGIC = 0x4B4E424E; // "KNBN"
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 10;
+    private static final int FIXED_RECORD_SIZE = 18;
+    private static final int MIN_RECORD_SIZE = FIXED_RECORD_SIZE + 3; // Три varint по одному байту
+    private static final long NO_START_TIME = Long.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Проверяет по сигнатуре, записан ли файл в двоичном формате.
+     */
+    public static boolean isBinary(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+            return channel.read(buffer, 0) == Integer.BYTES && buffer.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Кодирует задачи в новый direct ByteBuffer, готовый к записи (position = 0).
+     * Вызывается там, где задачи не меняются, чтобы записать буфер на диск можно было позже.
+     *
+     * @param tasks Задачи всех типов
+     * @return Буфер с заголовком и записями
+     */
+    public static ByteBuffer encode(Collection<? extends Task> tasks) {
+        return encode(tasks, null);
+    }
+
+    /**
+     * Кодирует задачи в буфер reuse, если он direct и достаточного размера, иначе в новый.
+     * Выделение direct-буфера дороже кодирования небольшого снимка, поэтому тот, кто сохраняет
+     * снимки постоянно, передаёт сюда буфер предыдущего сохранения после того, как тот записан.
+     *
+     * @param tasks Задачи всех типов
+     * @param reuse Буфер, содержимое которого больше не нужно, или null
+     * @return Буфер с заголовком и записями (position = 0); может быть как reuse, так и новым
+     */
+    public static ByteBuffer encode(Collection<? extends Task> tasks, ByteBuffer reuse) {
+        int estimate = HEADER_SIZE + tasks.size() * 48;
+        ByteBuffer buffer = reuse != null && reuse.isDirect() && reuse.capacity() >= estimate
+                ? reuse.clear()
+                : ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, estimate));
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(tasks.size());
+        for (Task task : tasks) {
+            byte[] name = task.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            int needed = FIXED_RECORD_SIZE + 3 * 10 + name.length + description.length;
+            if (buffer.remaining() < needed) {
+                buffer = grow(buffer, needed);
+            }
+            writeRecord(buffer, task, name, description);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Записывает задачи в файл через direct ByteBuffer.
+     */
+    public static void write(Collection<? extends Task> tasks, Path file) {
+        write(encode(tasks), file);
+    }
+
+    /**
+     * Записывает в файл буфер, полученный из {@link #encode(Collection)}.
+     */
+    public static void write(ByteBuffer buffer, Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to save tasks to file: " + file, e);
+        }
+    }
+
+    /**
+     * Читает задачи из файла, отображённого в память. Эпики в результате идут первыми,
+     * подзадачи связаны со своими эпиками.
+     *
+     * @param file Файл в двоичном формате
+     * @return Задачи всех типов с идентификаторами из файла
+     * @throws ManagerSaveException если файл обрезан или повреждён
+     */
+    public static List<Task> readTasks(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(new MappedReader(channel), file);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | DateTimeException | ArithmeticException e) {
+            throw new ManagerSaveException("Двоичный снимок обрезан или повреждён: " + file, e);
+        }
+    }
+
+    private static List<Task> decode(MappedReader reader, Path file) {
+        if (reader.size < HEADER_SIZE) {
+            throw new ManagerSaveException("Двоичный снимок короче заголовка: " + file, null);
+        }
+        reader.ensure(HEADER_SIZE);
+        if (reader.buffer.getInt() != MAGIC) {
+            throw new ManagerSaveException("Файл не является двоичным снимком: " + file, null);
+        }
+        short version = reader.buffer.getShort();
+        if (version != VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия двоичного снимка: " + version, null);
+        }
+        int count = reader.buffer.getInt();
+        if (count < 0 || (long) count * MIN_RECORD_SIZE > reader.size - HEADER_SIZE) {
+            throw new ManagerSaveException("Двоичный снимок обрезан: в заголовке " + count
+                    + " записей, а в файле " + (reader.size - HEADER_SIZE) + " байт", null);
+        }
+
+        Map<Integer, Epic> epics = new HashMap<>();
+        List<Task> others = new ArrayList<>(count);
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            readRecord(reader, epics, others, epicIds);
+        }
+
+        List<Task> result = new ArrayList<>(count);
+        result.addAll(epics.values());
+        int subTaskIndex = 0;
+        for (Task task : others) {
+            if (task instanceof SubTask subTask) {
+                int epicId = epicIds.get(subTaskIndex++);
+                Epic epic = epics.get(epicId);
+                if (epic == null) {
+                    throw new ManagerSaveException("Подзадача " + subTask.getId()
+                            + " ссылается на несуществующий эпик " + epicId, null);
+                }
+                subTask.setEpic(epic);
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+    private static void writeRecord(ByteBuffer buffer, Task task, byte[] name, byte[] description) {
+        TaskType type;
+        int epicId = 0;
+        if (task instanceof Epic) {
+            type = TaskType.EPIC;
+        } else if (task instanceof SubTask subTask) {
+            type = TaskType.SUBTASK;
+            epicId = subTask.getEpic().getId();
+        } else {
+            type = TaskType.TASK;
+        }
+        LocalDateTime startTime = task.getStartTime();
+        long duration;
+        try {
+            duration = task.getDuration().toMinutes();
+        } catch (IllegalStateException e) {
+            duration = 0;
+        }
+
+        buffer.putInt(task.getId());
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) task.getStatus().ordinal());
+        buffer.putInt(epicId);
+        buffer.putLong(startTime == null ? NO_START_TIME : Math.floorDiv(startTime.toEpochSecond(ZoneOffset.UTC), 60));
+        putVarint(buffer, duration);
+        putVarint(buffer, name.length);
+        buffer.put(name);
+        putVarint(buffer, description.length);
+        buffer.put(description);
+    }
+
+    private static void readRecord(MappedReader reader, Map<Integer, Epic> epics,
+                                   List<Task> others, List<Integer> epicIds) {
+        reader.ensure(FIXED_RECORD_SIZE + 10);
+        ByteBuffer buffer = reader.buffer;
+        int id = buffer.getInt();
+        TaskType type = TaskType.values()[buffer.get()];
+        Status status = Status.values()[buffer.get()];
+        int epicId = buffer.getInt();
+        long startMinutes = buffer.getLong();
+        long duration = getVarint(buffer);
+        String name = reader.readString();
+        String description = reader.readString();
+        LocalDateTime startTime = startMinutes == NO_START_TIME ? null
+                : LocalDateTime.ofEpochSecond(startMinutes * 60, 0, ZoneOffset.UTC);
+
+        switch (type) {
+            case EPIC -> {
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                epics.put(id, epic);
+            }
+            case SUBTASK -> {
+                SubTask subTask = new SubTask(name, description, null);
+                subTask.setStatus(status);
+                CSVFormat.applyTimes(subTask, startTime, duration);
+                subTask.setId(id);
+                others.add(subTask);
+                epicIds.add(epicId);
+            }
+            case TASK -> {
+                Task task = new Task(name, description, status);
+                CSVFormat.applyTimes(task, startTime, duration);
+                task.setId(id);
+                others.add(task);
+            }
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        grown.put(buffer.flip());
+        return grown;
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return value;
+    }
+
+    /**
+     * Последовательное чтение файла через отображение в память окнами ограниченного размера,
+     * чтобы поддерживать файлы больше 2 ГБ.
+     */
+    private static final class MappedReader {
+        private static final long WINDOW = 256L << 20;
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+        private MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        /**
+         * Гарантирует, что в окне доступно не меньше needed байт (или всё, что осталось в файле).
+         */
+        private void ensure(int needed) {
+            if (buffer.remaining() >= needed) {
+                return;
+            }
+            long position = windowStart + buffer.position();
+            long length = Math.min(Math.max(WINDOW, needed), size - position);
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка загрузки из файла", e);
+            }
+            windowStart = position;
+        }
+
+        private String readString() {
+            ensure(5);
+            long length = getVarint(buffer);
+            if (length < 0 || length > size - windowStart - buffer.position()) {
+                throw new IllegalArgumentException("Строка длиной " + length + " выходит за конец файла");
+            }
+            ensure((int) length + FIXED_RECORD_SIZE + 10);
+            byte[] bytes = new byte[(int) length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
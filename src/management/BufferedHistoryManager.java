@@ -0,0 +1,94 @@
+package management;
+
+import task.Task;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * История, в которую просмотры записываются без блокировок. {@link #addToHistory(Task)} только кладёт
+ * событие в кольцевой буфер, а перенос в историю выполняется пачкой при следующем чтении истории,
+ * удалении задачи или заполнении буфера. Поэтому чтение задачи из менеджера не ждёт обновления
+ * связного списка, а история отражает все просмотры к моменту её чтения.
+ * <p>
+ * Перенос можно запускать и по расписанию через {@link #drain()}, например из
+ * {@link java.util.concurrent.ScheduledExecutorService}.
+ */
+public class BufferedHistoryManager implements HistoryManager {
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final HistoryManager history; // Доступ только под блокировкой this
+    private final MpscRingBuffer<Task> buffer;
+
+    public BufferedHistoryManager(HistoryManager history) {
+        this(history, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param history    История, в которую переносятся просмотры
+     * @param bufferSize Количество просмотров, которое копится до переноса
+     */
+    public BufferedHistoryManager(HistoryManager history, int bufferSize) {
+        this.history = history;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+    }
+
+    /**
+     * Записывает просмотр в буфер. Блокируется, только если буфер заполнен: тогда поток сам
+     * переносит накопленные просмотры в историю.
+     */
+    @Override
+    public void addToHistory(Task task) {
+        if (task == null) {
+            return;
+        }
+        while (!buffer.offer(task)) {
+            drain();
+        }
+    }
+
+    /**
+     * Переносит накопленные просмотры в историю.
+     *
+     * @return Количество перенесённых просмотров
+     */
+    public synchronized int drain() {
+        return buffer.drain(history::addToHistory);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        drain();
+        return history.getHistory();
+    }
+
+    /**
+     * Итератор быстро отказывает, если во время обхода история пополнится следующим переносом.
+     */
+    @Override
+    public synchronized Iterator<Task> latestFirst() {
+        drain();
+        return history.latestFirst();
+    }
+
+    @Override
+    public synchronized List<Task> getLatest(int limit) {
+        drain();
+        return history.getLatest(limit);
+    }
+
+    @Override
+    public synchronized HistoryPage getPage(HistoryPage.Cursor cursor, int limit) {
+        drain();
+        return history.getPage(cursor, limit);
+    }
+
+    /**
+     * Сначала переносит накопленные просмотры, чтобы просмотр из буфера не вернул удалённую задачу в историю.
+     */
+    @Override
+    public synchronized void remove(int id) {
+        drain();
+        history.remove(id);
+    }
+}
@@ -2,7 +2,11 @@ package management;
 
 import task.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 public final class CSVFormat {
+    public static final String HEADER = "id,type,name,status,description,startTime,duration,epic";
 
     public static String taskToCSVString(Task task) {
         TaskType taskType;
@@ -108,4 +112,14 @@ public final class CSVFormat {
 
     }
 
+    /**
+     * Задаёт время задаче так же, как при разборе строки: при пустом времени или нулевой длительности
+     * остаются значения конструктора по умолчанию.
+     */
+    static void applyTimes(Task task, LocalDateTime startTime, long duration) {
+        if (startTime != null && duration != 0) {
+            task.setStartTime(startTime);
+            task.setDuration(Duration.ofMinutes(duration));
+        }
+    }
 }
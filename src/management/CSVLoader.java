@@ -0,0 +1,292 @@
+package management;
+
+import exceptions.ManagerSaveException;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Потоковая загрузка задач из CSV-файла в формате {@link CSVFormat}.
+ * Файл отображается в память частями, которые разбираются параллельно в ForkJoinPool.
+ * Поля разбираются прямо в буфере: строки создаются только для названия и описания,
+ * а дата "dd.MM.yyyy HH:mm" читается по цифрам без DateTimeFormatter.
+ * Подзадачи связываются с эпиками вторым проходом, после разбора всех частей.
+ */
+public final class CSVLoader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;          // 1 МБ
+    private static final int MAX_CHUNK_SIZE = 256 << 20;        // Ограничение размера одного отображения
+    private static final int FIELDS = 8;
+
+    private CSVLoader() {
+    }
+
+    /**
+     * Читает все задачи из файла. Эпики в результате идут первыми, подзадачи уже связаны со своими эпиками.
+     *
+     * @param file Файл в формате CSV с заголовком в первой строке
+     * @return Задачи всех типов с идентификаторами из файла
+     */
+    public static List<Task> readTasks(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ForkJoinTask<Chunk>> parsing = new ArrayList<>();
+            for (long[] bounds : splitIntoChunks(channel)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[0], bounds[1] - bounds[0]);
+                long offset = bounds[0];
+                parsing.add(ForkJoinPool.commonPool().submit(() -> parseChunk(buffer, offset)));
+            }
+            List<Chunk> chunks = new ArrayList<>(parsing.size());
+            for (ForkJoinTask<Chunk> task : parsing) {
+                chunks.add(task.join());
+            }
+            return link(chunks);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+    }
+
+    /**
+     * Делит файл на части по границам строк, пропуская строку заголовка.
+     */
+    private static List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                Math.max(MIN_CHUNK_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() * 4L)));
+        List<long[]> chunks = new ArrayList<>();
+        long start = nextLineStart(channel, 0, size);
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Chunk parseChunk(MappedByteBuffer buffer, long offset) {
+        Chunk chunk = new Chunk();
+        int[] commas = new int[FIELDS - 1];
+        byte[] text = new byte[256];
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = (lineEnd > position && buffer.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+            if (end > position) {
+                try {
+                    text = parseLine(buffer, position, end, commas, text, chunk);
+                } catch (RuntimeException e) {
+                    throw new ManagerSaveException("Некорректная строка в файле (смещение " + (offset + position) + ")", e);
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static byte[] parseLine(ByteBuffer buffer, int start, int end, int[] commas, byte[] text, Chunk chunk) {
+        int found = 0;
+        for (int i = start; i < end && found < commas.length; i++) {
+            if (buffer.get(i) == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found < commas.length) {
+            throw new IllegalArgumentException("Ожидалось " + FIELDS + " полей");
+        }
+
+        int id = (int) parseLong(buffer, start, commas[0]);
+        byte type = buffer.get(commas[0] + 1);
+        int nameLength = commas[2] - commas[1] - 1;
+        int descriptionLength = commas[4] - commas[3] - 1;
+        if (text.length < Math.max(nameLength, descriptionLength)) {
+            text = new byte[Math.max(nameLength, descriptionLength)];
+        }
+        String name = decode(buffer, commas[1] + 1, nameLength, text);
+        Status status = parseStatus(buffer.get(commas[2] + 1));
+        String description = decode(buffer, commas[3] + 1, descriptionLength, text);
+        LocalDateTime startTime = parseDateTime(buffer, commas[4] + 1, commas[5]);
+        long duration = parseLong(buffer, commas[5] + 1, commas[6]);
+
+        switch (type) {
+            case 'E' -> {
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                chunk.epics.add(epic);
+            }
+            case 'S' -> {
+                SubTask subTask = new SubTask(name, description, null);
+                subTask.setStatus(status);
+                CSVFormat.applyTimes(subTask, startTime, duration);
+                subTask.setId(id);
+                chunk.add(subTask, (int) parseLong(buffer, commas[6] + 1, end));
+            }
+            case 'T' -> {
+                Task task = new Task(name, description, status);
+                CSVFormat.applyTimes(task, startTime, duration);
+                task.setId(id);
+                chunk.add(task, 0);
+            }
+            default -> throw new IllegalArgumentException("Неизвестный тип задачи");
+        }
+        return text;
+    }
+
+    /**
+     * Связывает подзадачи с эпиками после разбора всех частей файла.
+     */
+    private static List<Task> link(List<Chunk> chunks) {
+        Map<Integer, Epic> epics = new HashMap<>();
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            for (Epic epic : chunk.epics) {
+                epics.put(epic.getId(), epic);
+            }
+            total += chunk.epics.size() + chunk.others.size();
+        }
+        List<Task> result = new ArrayList<>(total);
+        result.addAll(epics.values());
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.others.size(); i++) {
+                Task task = chunk.others.get(i);
+                if (task instanceof SubTask subTask) {
+                    Epic epic = epics.get(chunk.epicIds[i]);
+                    if (epic == null) {
+                        throw new ManagerSaveException("Подзадача " + subTask.getId()
+                                + " ссылается на несуществующий эпик " + chunk.epicIds[i], null);
+                    }
+                    subTask.setEpic(epic);
+                }
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int length, byte[] text) {
+        buffer.get(start, text, 0, length);
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Status parseStatus(byte first) {
+        return switch (first) {
+            case 'N' -> Status.NEW;
+            case 'I' -> Status.IN_PROGRESS;
+            case 'D' -> Status.DONE;
+            default -> throw new IllegalArgumentException("Неизвестный статус");
+        };
+    }
+
+    /**
+     * Разбирает целое число в диапазоне [start, end), пробелы по краям игнорируются. Пустое поле — 0.
+     */
+    private static long parseLong(ByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = start < end && buffer.get(start) == '-';
+        if (negative) {
+            start++;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Ожидалось число");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Разбирает дату в формате "dd.MM.yyyy HH:mm". Пустое поле — null.
+     */
+    private static LocalDateTime parseDateTime(ByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        if (end - start != 16) {
+            throw new DateTimeException("Ожидался формат dd.MM.yyyy HH:mm");
+        }
+        return LocalDateTime.of(
+                digits(buffer, start + 6, 4),
+                digits(buffer, start + 3, 2),
+                digits(buffer, start, 2),
+                digits(buffer, start + 11, 2),
+                digits(buffer, start + 14, 2));
+    }
+
+    private static int digits(ByteBuffer buffer, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new DateTimeException("Ожидался формат dd.MM.yyyy HH:mm");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Результат разбора одной части файла.
+     */
+    private static final class Chunk {
+        private final List<Epic> epics = new ArrayList<>();
+        private final List<Task> others = new ArrayList<>();
+        private int[] epicIds = new int[64]; // Идентификаторы эпиков для подзадач из others
+
+        private void add(Task task, int epicId) {
+            if (others.size() == epicIds.length) {
+                epicIds = Arrays.copyOf(epicIds, epicIds.length * 2);
+            }
+            epicIds[others.size()] = epicId;
+            others.add(task);
+        }
+    }
+}
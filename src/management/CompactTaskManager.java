@@ -0,0 +1,1120 @@
+package management;
+
+import exceptions.BatchOverlapException;
+import exceptions.TaskOverlapException;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Менеджер задач поверх {@link CompactTaskStore}: задачи хранятся строками примитивных массивов,
+ * а объекты {@link Task} собираются при каждом обращении и нигде не запоминаются.
+ * <p>
+ * Задачи, переданные в методы изменения, копируются в строки: менеджер назначает им идентификатор,
+ * но дальше их не отслеживает. Изменить задачу можно только через методы менеджера — задача для изменения
+ * ищется по идентификатору, а изменения полученных объектов в менеджер не попадают. Статус и время эпика
+ * пересчитываются по строкам его подзадач. Время хранится с точностью до минуты.
+ * <p>
+ * Порядок задач по времени начала и подзадачи по эпикам хранятся отсортированными массивами ключей,
+ * а выборки по времени, проверка пересечений и поиск свободных окон идут бинарным поиском по ним,
+ * без деревьев из объектов. Вставка и удаление ключа сдвигают хвост массива, поэтому запись дороже,
+ * чем в {@link InMemoryTaskManager}, зато память на задачу в разы меньше.
+ * Эпик собирается вместе со своими подзадачами, подзадача ссылается на эпик без подзадач.
+ */
+public class CompactTaskManager implements TaskManager {
+    private static final Comparator<Task> BY_START = Comparator.comparing(
+            Task::getStartTime,
+            Comparator.nullsLast(Comparator.naturalOrder())
+    ).thenComparing(Task::getId);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private final CompactTaskStore store;
+    private final SortedKeys timed = new SortedKeys();       // Начало в старших 32 битах, ID — в младших
+    private final SortedKeys untimed = new SortedKeys();     // ID задач без времени начала
+    private final SortedKeys subTaskKeys = new SortedKeys(); // ID эпика в старших 32 битах, ID подзадачи — в младших
+    private long maxLength;     // Самый длинный интервал задачи в минутах; при удалении не уменьшается
+    private int id;             // Последний выданный идентификатор
+    private final Map<Integer, Task> tasks = new SlotMap<>(CompactTaskStore.TASK);
+    private final Map<Integer, Epic> epics = new SlotMap<>(CompactTaskStore.EPIC);
+    private final Map<Integer, SubTask> subTasks = new SlotMap<>(CompactTaskStore.SUBTASK);
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final SessionHistories sessionHistories = new SessionHistories(
+            InMemoryTaskManager.SESSION_IDLE_TIMEOUT, InMemoryTaskManager.SESSION_HISTORY_SIZE);
+    private Undo transaction; // Открытая транзакция, null — изменения применяются сразу
+
+    /**
+     * Исходные строки задач, которые изменила открытая транзакция.
+     */
+    private static final class Undo {
+        private final int savedId;
+        private final Map<Integer, Task> rows = new LinkedHashMap<>(); // null — задачи до транзакции не было
+        private final Set<Integer> deleted = new LinkedHashSet<>();    // Удаления, которые уйдут из истории при фиксации
+
+        private Undo(int savedId) {
+            this.savedId = savedId;
+        }
+    }
+
+    public CompactTaskManager() {
+        store = new CompactTaskStore();
+    }
+
+    /**
+     * Копирует все задачи менеджера. Историю просмотров исходного менеджера копия не переносит.
+     */
+    public CompactTaskManager(TaskManager source) {
+        store = CompactTaskStore.copyOf(source);
+        for (int slot = 0; slot < store.size(); slot++) {
+            index(slot);
+            id = Math.max(id, store.idAt(slot));
+        }
+    }
+
+    @Override
+    public void createTask(Task task) {
+        if (transaction == null && overlaps(task, 0)) {
+            throw new TaskOverlapException();
+        }
+        task.setId(++id);
+        write(task);
+    }
+
+    /**
+     * @throws IllegalArgumentException если эпика подзадачи нет в менеджере
+     */
+    @Override
+    public void createSubTask(SubTask subTask) {
+        int epicId = managedEpic(subTask.getEpic());
+        if (transaction == null && overlaps(subTask, epicId)) {
+            throw new TaskOverlapException();
+        }
+        subTask.setId(++id);
+        write(subTask);
+        refreshEpic(epicId);
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        if (transaction == null && overlaps(epic, 0)) {
+            throw new TaskOverlapException();
+        }
+        epic.setId(++id);
+        write(epic);
+    }
+
+    /**
+     * Представление только для чтения: задачи собираются при обращении к значениям.
+     */
+    @Override
+    public Map<Integer, Task> getAllTasks() {
+        return tasks;
+    }
+
+    @Override
+    public Map<Integer, Epic> getAllEpics() {
+        return epics;
+    }
+
+    @Override
+    public Map<Integer, SubTask> getAllSubTasks() {
+        return subTasks;
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(tasks.get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return viewed(subTasks.get(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(epics.get(id));
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            historyManager.addToHistory(task);
+        }
+        return task;
+    }
+
+    @Override
+    public Task getTask(String session, int id) {
+        return viewedInSession(session, tasks.get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(String session, int id) {
+        return viewedInSession(session, subTasks.get(id));
+    }
+
+    @Override
+    public Epic getEpic(String session, int id) {
+        return viewedInSession(session, epics.get(id));
+    }
+
+    private <T extends Task> T viewedInSession(String session, T task) {
+        if (task != null) {
+            sessionHistories.record(session, task.getId());
+        }
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        if (slotOf(id, CompactTaskStore.TASK) >= 0) {
+            erase(id);
+        }
+    }
+
+    @Override
+    public void deleteSubTask(int id) {
+        int slot = slotOf(id, CompactTaskStore.SUBTASK);
+        if (slot >= 0) {
+            int epicId = store.epicIdAt(slot);
+            erase(id);
+            refreshEpic(epicId);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        List<Integer> ids = new ArrayList<>(store.size());
+        store.forEachId(ids::add);
+        ids.forEach(this::erase);
+    }
+
+    /**
+     * Удаляет эпик вместе с его подзадачами.
+     */
+    @Override
+    public void deleteEpic(int id) {
+        if (slotOf(id, CompactTaskStore.EPIC) < 0) {
+            return;
+        }
+        for (int subTaskId : subTaskIdsOf(id)) {
+            erase(subTaskId);
+        }
+        erase(id);
+    }
+
+    @Override
+    public void updateTask(Task taskToUpdate, String newName, String newDescription, Status newStatus,
+                           String newStartTime, Long newDuration) {
+        checkTimeArguments(newStartTime, newDuration);
+        Task row = rowOf(taskToUpdate, CompactTaskStore.TASK);
+        applyFields(row, newName, newDescription, newStatus, newStartTime, newDuration);
+        if (newStartTime != null && transaction == null && overlaps(row, 0)) {
+            throw new TaskOverlapException();
+        }
+        write(row);
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTaskToUpdate, String newName, String newDescription, Status newStatus,
+                              String newStartTime, Long newDuration, Epic newEpic) {
+        checkTimeArguments(newStartTime, newDuration);
+        SubTask row = (SubTask) rowOf(subTaskToUpdate, CompactTaskStore.SUBTASK);
+        int currentEpicId = row.getEpic().getId();
+        int newEpicId = newEpic == null ? currentEpicId : managedEpic(newEpic);
+        applyFields(row, newName, newDescription, newStatus, newStartTime, newDuration);
+        // Как и в InMemoryTaskManager, новое время проверяется относительно текущего эпика подзадачи
+        if (newStartTime != null && transaction == null && overlaps(row, currentEpicId)) {
+            throw new TaskOverlapException();
+        }
+        row.setEpic(placeholderEpic(newEpicId));
+        write(row);
+        refreshEpic(currentEpicId);
+        if (newEpicId != currentEpicId) {
+            refreshEpic(newEpicId);
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic currentEpic, Epic updatedEpic) {
+        Task row = rowOf(currentEpic, CompactTaskStore.EPIC);
+        row.setName(updatedEpic.getName());
+        row.setDescription(updatedEpic.getDescription());
+        write(row);
+    }
+
+    /**
+     * Переносит подзадачу менеджера в эпик менеджера и пересчитывает оба эпика.
+     */
+    @Override
+    public void addSubtaskToEpic(Epic epic, SubTask subTask) {
+        int epicId = managedEpic(epic);
+        SubTask row = (SubTask) rowOf(subTask, CompactTaskStore.SUBTASK);
+        int previousEpicId = row.getEpic().getId();
+        row.setEpic(placeholderEpic(epicId));
+        write(row);
+        refreshEpic(previousEpicId);
+        if (previousEpicId != epicId) {
+            refreshEpic(epicId);
+        }
+    }
+
+    /**
+     * История хранит собранные при просмотре объекты; при чтении они заменяются текущими строками.
+     */
+    @Override
+    public List<Task> getHistory() {
+        return current(historyManager.getHistory());
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(HistoryPage.Cursor cursor, int limit) {
+        HistoryPage page = historyManager.getPage(cursor, limit);
+        return new HistoryPage(current(page.tasks()), page.next());
+    }
+
+    private List<Task> current(List<Task> viewed) {
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            Task found = findAnyTask(task.getId());
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<Task> getHistory(String session) {
+        return sessionHistories.getHistory(session, this::findAnyTask);
+    }
+
+    /**
+     * Возвращает задачи всех типов, отсортированные по времени начала; задачи без времени — в конце.
+     */
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(timed.size() + untimed.size());
+        for (int i = 0; i < timed.size(); i++) {
+            result.add(taskAt(store.slotOf((int) timed.get(i))));
+        }
+        for (int i = 0; i < untimed.size(); i++) {
+            result.add(taskAt(store.slotOf((int) untimed.get(i))));
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<Task> getTasksByStatus(Status status) {
+        return byStatus(CompactTaskStore.TASK, status);
+    }
+
+    @Override
+    public Collection<SubTask> getSubTasksByStatus(Status status) {
+        return byStatus(CompactTaskStore.SUBTASK, status);
+    }
+
+    @Override
+    public Collection<Epic> getEpicsByStatus(Status status) {
+        return byStatus(CompactTaskStore.EPIC, status);
+    }
+
+    /**
+     * Выборка по статусу проходит только по строкам из списка хранилища для этого типа и статуса.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Task> Collection<T> byStatus(byte type, Status status) {
+        int count = store.countOf(type, status);
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add((T) taskAt(store.rowOf(type, status, i)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public NavigableSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyNavigableSet();
+        }
+        TreeSet<Task> result = new TreeSet<>(BY_START);
+        for (int i = firstStartingFrom(from), end = firstStartingFrom(to); i < end; i++) {
+            result.add(taskAt(timedSlot(i)));
+        }
+        return Collections.unmodifiableNavigableSet(result);
+    }
+
+    /**
+     * Задачи, которые начались раньше instant минус самый длинный интервал, закончиться позже instant
+     * не могли, поэтому проверяется только этот участок порядка по времени начала.
+     */
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime instant) {
+        int minute = CompactTaskStore.toMinutes(instant);
+        List<Task> result = new ArrayList<>();
+        for (int i = firstStartingFrom(instant.minusMinutes(maxLength)); i < timed.size(); i++) {
+            if (startOf(i) > minute) {
+                break;
+            }
+            int slot = timedSlot(i);
+            int end = store.endAt(slot);
+            if (end != CompactTaskStore.NO_TIME && minute < end) {
+                result.add(taskAt(slot));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        for (int i = firstStartingFrom(after); i < timed.size() && result.size() < limit; i++) {
+            result.add(taskAt(timedSlot(i)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(LocalDateTime after, Duration duration) {
+        return findFreeSlot(after, duration, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Интервал самого эпика не мешает его будущей подзадаче, как и при создании подзадачи.
+     */
+    @Override
+    public LocalDateTime findNextFreeSlot(Epic epic, LocalDateTime after, Duration duration) {
+        return findFreeSlot(after, duration, epic == null ? Integer.MIN_VALUE : epic.getId());
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(LocalDateTime after, Duration duration, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество окон не может быть отрицательным");
+        }
+        List<LocalDateTime> slots = new ArrayList<>(count);
+        LocalDateTime from = after;
+        for (int i = 0; i < count; i++) {
+            LocalDateTime slot = findFreeSlot(from, duration, Integer.MIN_VALUE);
+            slots.add(slot);
+            from = slot.plus(duration);
+        }
+        return slots;
+    }
+
+    /**
+     * Проход по задачам в порядке начала: окно сдвигается на окончание каждой задачи, которая с ним
+     * пересекается, пока следующая задача не начнётся после окна.
+     *
+     * @param excludedId Задача, которая не считается помехой
+     */
+    private LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, int excludedId) {
+        if (duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность окна должна быть положительной");
+        }
+        LocalDateTime start = after;
+        for (int i = firstStartingFrom(after.minusMinutes(maxLength)); i < timed.size(); i++) {
+            int slot = timedSlot(i);
+            if (store.endAt(slot) == CompactTaskStore.NO_TIME || store.idAt(slot) == excludedId) {
+                continue;
+            }
+            if (!CompactTaskStore.fromMinutes(store.startAt(slot)).isBefore(start.plus(duration))) {
+                break;
+            }
+            LocalDateTime end = CompactTaskStore.fromMinutes(store.endAt(slot));
+            if (end.isAfter(start)) {
+                start = end;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Раскладывает новые обычные задачи по свободным промежуткам так же, как {@link InMemoryTaskManager}:
+     * расписание для {@link TaskScheduler} собирается только из задач, которые могут закончиться после notBefore.
+     */
+    @Override
+    public void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore) {
+        for (TaskScheduler.Job job : jobs) {
+            Task task = job.task();
+            if (task instanceof Epic || task instanceof SubTask) {
+                throw new IllegalArgumentException("Планировать можно только обычные задачи");
+            }
+            if (task.getDuration().isZero() || task.getDuration().isNegative()) {
+                throw new IllegalArgumentException("Длительность задачи должна быть положительной");
+            }
+        }
+        int from = firstStartingFrom(notBefore.minusMinutes(maxLength));
+        Iterable<Task> scheduled = () -> new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < timed.size();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return store.taskAt(timedSlot(next++), null);
+            }
+        };
+        new TaskScheduler(scheduled, notBefore).scheduleAll(jobs, notBefore);
+        for (TaskScheduler.Job job : jobs) {
+            job.task().setId(++id);
+            write(job.task());
+        }
+    }
+
+    /**
+     * Создаёт пакет задач любых типов: пересечения ищутся одним проходом {@link ConflictSweep},
+     * пакет принимается целиком или отклоняется целиком. Эпик подзадачи должен быть в менеджере
+     * или в этом же пакете.
+     *
+     * @throws BatchOverlapException если время задач пересекается, со списком всех пар
+     */
+    @Override
+    public void createAll(Collection<? extends Task> batch) {
+        List<Task> items = new ArrayList<>(batch);
+        Map<Task, Integer> keys = new IdentityHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (keys.put(items.get(i), -(i + 1)) != null) {
+                throw new IllegalArgumentException("Задача '" + items.get(i).getName() + "' встречается в пакете дважды");
+            }
+        }
+        ConflictSweep sweep = new ConflictSweep();
+        for (Task task : items) {
+            if (task instanceof Epic) {
+                continue;
+            }
+            int epicKey = 0;
+            if (task instanceof SubTask subTask) {
+                Epic epic = subTask.getEpic();
+                Integer batchKey = epic == null ? null : keys.get(epic);
+                if (batchKey != null) {
+                    epicKey = batchKey;
+                } else if (epic != null && slotOf(epic.getId(), CompactTaskStore.EPIC) >= 0) {
+                    epicKey = epic.getId();
+                } else {
+                    throw new IllegalArgumentException("Эпик подзадачи '" + task.getName() + "' не найден");
+                }
+            }
+            sweep.addBatch(task, keys.get(task), epicKey, task.getStartTime(), task.getEndTime());
+        }
+        checkBatchConflicts(sweep, Set.of());
+
+        for (Task task : items) {
+            task.setId(++id);
+        }
+        Set<Integer> touchedEpics = new LinkedHashSet<>();
+        for (Task task : items) {
+            write(task);
+            if (task instanceof SubTask subTask) {
+                touchedEpics.add(subTask.getEpic().getId());
+            }
+        }
+        touchedEpics.forEach(this::refreshEpic);
+    }
+
+    /**
+     * Обновляет пакет существующих задач: элемент пакета — задача с идентификатором задачи менеджера
+     * того же типа и новыми значениями полей. У эпика обновляются только название и описание.
+     *
+     * @throws BatchOverlapException если новое время задач пересекается, со списком всех пар
+     */
+    @Override
+    public void updateAll(Collection<? extends Task> changes) {
+        Set<Integer> changedIds = new HashSet<>();
+        Set<Integer> replaced = new HashSet<>();
+        List<Integer> targetEpics = new ArrayList<>(changes.size());
+        ConflictSweep sweep = new ConflictSweep();
+        for (Task change : changes) {
+            int changeId = change.getId();
+            byte type = typeOf(change);
+            int slot = slotOf(changeId, type);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Задача с ID " + changeId + " не найдена");
+            }
+            if (!changedIds.add(changeId)) {
+                throw new IllegalArgumentException("Задача с ID " + changeId + " встречается в пакете дважды");
+            }
+            int targetEpic = 0;
+            if (change instanceof SubTask subTask) {
+                targetEpic = subTask.getEpic() == null ? store.epicIdAt(slot) : subTask.getEpic().getId();
+                if (slotOf(targetEpic, CompactTaskStore.EPIC) < 0) {
+                    throw new IllegalArgumentException("Эпик подзадачи с ID " + changeId + " не найден");
+                }
+                // Интервал эпика пересчитается после пакета, старый интервал в проверке не участвует
+                replaced.add(targetEpic);
+                replaced.add(store.epicIdAt(slot));
+            }
+            targetEpics.add(targetEpic);
+            if (type != CompactTaskStore.EPIC) {
+                sweep.addBatch(change, changeId, targetEpic, change.getStartTime(), change.getEndTime());
+            }
+        }
+        replaced.addAll(changedIds);
+        checkBatchConflicts(sweep, replaced);
+
+        Set<Integer> touchedEpics = new LinkedHashSet<>();
+        int index = 0;
+        for (Task change : changes) {
+            int targetEpic = targetEpics.get(index++);
+            int slot = store.slotOf(change.getId());
+            Task row;
+            if (store.typeAt(slot) == CompactTaskStore.EPIC) {
+                row = rowAt(slot);
+                row.setName(change.getName());
+                row.setDescription(change.getDescription());
+                write(row);
+                continue;
+            }
+            if (change instanceof SubTask) {
+                touchedEpics.add(store.epicIdAt(slot));
+                touchedEpics.add(targetEpic);
+                row = new SubTask(change.getName(), change.getDescription(), placeholderEpic(targetEpic));
+            } else {
+                row = new Task(change.getName(), change.getDescription());
+            }
+            row.setId(change.getId());
+            row.setStatus(change.getStatus());
+            row.setStartTime(change.getStartTime());
+            row.setDuration(durationOf(change));
+            write(row);
+        }
+        touchedEpics.forEach(this::refreshEpic);
+    }
+
+    /**
+     * Выполняет операции как одну транзакцию: внутри неё пересечения не проверяются, при фиксации
+     * затронутые задачи проверяются в итоговом состоянии одним проходом. Если проверка не прошла
+     * или операция бросила исключение, строки затронутых задач возвращаются к состоянию до транзакции,
+     * а удалённые задачи остаются в истории просмотров. Вложенные транзакции не поддерживаются.
+     *
+     * @throws BatchOverlapException если в итоговом состоянии время задач пересекается
+     */
+    @Override
+    public void inTransaction(Consumer<? super TaskManager> work) {
+        if (transaction != null) {
+            throw new IllegalStateException("Транзакция уже открыта");
+        }
+        Undo current = new Undo(id);
+        transaction = current;
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollback(current);
+            throw e;
+        }
+        transaction = null;
+
+        ConflictSweep sweep = new ConflictSweep();
+        Set<Integer> changedIds = new HashSet<>();
+        for (int changedId : current.rows.keySet()) {
+            int slot = store.slotOf(changedId);
+            if (slot < 0 || store.typeAt(slot) == CompactTaskStore.EPIC) {
+                continue;
+            }
+            changedIds.add(changedId);
+            Task task = taskAt(slot);
+            int epicKey = task instanceof SubTask subTask ? subTask.getEpic().getId() : 0;
+            sweep.addBatch(task, changedId, epicKey, task.getStartTime(), task.getEndTime());
+        }
+        try {
+            checkBatchConflicts(sweep, changedIds);
+        } catch (BatchOverlapException e) {
+            rollback(current);
+            throw e;
+        }
+        current.deleted.forEach(historyManager::remove);
+    }
+
+    /**
+     * Возвращает затронутым задачам строки до транзакции. Задачи, созданные в транзакции,
+     * уходят из истории: их идентификаторы будут выданы заново.
+     */
+    private void rollback(Undo current) {
+        transaction = null;
+        for (Map.Entry<Integer, Task> entry : current.rows.entrySet()) {
+            int slot = store.slotOf(entry.getKey());
+            if (slot >= 0) {
+                unindex(slot);
+                store.remove(entry.getKey());
+            }
+            if (entry.getValue() == null) {
+                historyManager.remove(entry.getKey());
+            }
+        }
+        for (Task row : current.rows.values()) {
+            if (row != null) {
+                store.put(row);
+                index(store.slotOf(row.getId()));
+            }
+        }
+        id = current.savedId;
+    }
+
+    /**
+     * Ищет пересечения пакета с задачами менеджера в границах пакета, кроме задач с идентификаторами из replaced.
+     */
+    private void checkBatchConflicts(ConflictSweep sweep, Set<Integer> replaced) {
+        if (transaction != null) {
+            return; // Проверяется итоговое состояние при фиксации транзакции
+        }
+        if (sweep.batchStart() != null) {
+            int from = CompactTaskStore.toMinutes(sweep.batchStart());
+            int to = CompactTaskStore.toMinutes(sweep.batchEnd());
+            for (int i = firstStartingFrom(sweep.batchStart().minusMinutes(maxLength)); i < timed.size(); i++) {
+                if (startOf(i) >= to) {
+                    break;
+                }
+                int slot = timedSlot(i);
+                int end = store.endAt(slot);
+                if (end != CompactTaskStore.NO_TIME && end > from && !replaced.contains(store.idAt(slot))) {
+                    sweep.addExisting(taskAt(slot));
+                }
+            }
+        }
+        List<BatchOverlapException.Conflict> conflicts = sweep.conflicts();
+        if (!conflicts.isEmpty()) {
+            throw new BatchOverlapException(conflicts);
+        }
+    }
+
+    /**
+     * Пересекается ли интервал задачи с задачами менеджера. Правила исключения те же, что
+     * в {@link ScheduleIndex#exclusionsFor(Task)}: задача не мешает сама себе, подзадача и её эпик
+     * не мешают друг другу.
+     *
+     * @param epicId Эпик подзадачи; для остальных задач 0
+     */
+    private boolean overlaps(Task task, int epicId) {
+        int start = CompactTaskStore.toMinutes(ScheduleIndex.startOf(task));
+        int end = CompactTaskStore.toMinutes(ScheduleIndex.endOf(task));
+        if (start == CompactTaskStore.NO_TIME || end == CompactTaskStore.NO_TIME) {
+            return false;
+        }
+        int selfId = task.getId();
+        for (int i = firstStartingFromMinute(start - maxLength); i < timed.size(); i++) {
+            if (startOf(i) >= end) {
+                return false;
+            }
+            int slot = timedSlot(i);
+            int otherEnd = store.endAt(slot);
+            if (otherEnd == CompactTaskStore.NO_TIME || otherEnd <= start) {
+                continue;
+            }
+            int otherId = store.idAt(slot);
+            boolean related = otherId == selfId || (epicId != 0 && otherId == epicId)
+                    || (task instanceof Epic && selfId != 0 && store.typeAt(slot) == CompactTaskStore.SUBTASK
+                    && store.epicIdAt(slot) == selfId);
+            if (!related) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пересчитывает статус, время и длительность эпика по строкам его подзадач, как {@link Epic}:
+     * начало — самое раннее, окончание — самое позднее. У эпика без подзадач статус становится NEW,
+     * а время и длительность не меняются.
+     */
+    private void refreshEpic(int epicId) {
+        int epicSlot = slotOf(epicId, CompactTaskStore.EPIC);
+        if (epicSlot < 0) {
+            return;
+        }
+        Epic epic = (Epic) store.taskAt(epicSlot, null);
+        List<Integer> subTaskIds = subTaskIdsOf(epicId);
+        int[] counts = new int[Status.values().length];
+        int start = CompactTaskStore.NO_TIME;
+        int end = CompactTaskStore.NO_TIME;
+        long duration = 0;
+        for (int subTaskId : subTaskIds) {
+            int slot = store.slotOf(subTaskId);
+            counts[store.statusAt(slot).ordinal()]++;
+            int subTaskStart = store.startAt(slot);
+            if (subTaskStart != CompactTaskStore.NO_TIME && (start == CompactTaskStore.NO_TIME || subTaskStart < start)) {
+                start = subTaskStart;
+            }
+            int subTaskEnd = store.endAt(slot);
+            if (subTaskEnd != CompactTaskStore.NO_TIME && (end == CompactTaskStore.NO_TIME || subTaskEnd > end)) {
+                end = subTaskEnd;
+            }
+            if (subTaskEnd != CompactTaskStore.NO_TIME) {
+                duration += subTaskEnd - subTaskStart;
+            }
+        }
+        int total = subTaskIds.size();
+        if (total == 0 || counts[Status.NEW.ordinal()] == total) {
+            epic.setStatus(Status.NEW);
+        } else if (counts[Status.DONE.ordinal()] == total) {
+            epic.setStatus(Status.DONE);
+        } else {
+            epic.setStatus(Status.IN_PROGRESS);
+        }
+        if (total > 0) {
+            epic.setEpicStartTime(CompactTaskStore.fromMinutes(start));
+            epic.setEpicEndTime(CompactTaskStore.fromMinutes(end));
+            epic.setEpicDuration(Duration.ofMinutes(duration));
+        }
+        write(epic);
+    }
+
+    /**
+     * Записывает задачу в её строку и переиндексирует строку. В транзакции строка до первого изменения запоминается.
+     */
+    private void write(Task task) {
+        int slot = store.slotOf(task.getId());
+        remember(task.getId(), slot);
+        if (slot >= 0) {
+            unindex(slot);
+        }
+        store.put(task);
+        index(store.slotOf(task.getId()));
+    }
+
+    /**
+     * Удаляет строку задачи и убирает задачу из истории; в транзакции — только при фиксации.
+     */
+    private void erase(int id) {
+        int slot = store.slotOf(id);
+        remember(id, slot);
+        unindex(slot);
+        store.remove(id);
+        if (transaction != null) {
+            transaction.deleted.add(id);
+        } else {
+            historyManager.remove(id);
+        }
+    }
+
+    private void remember(int id, int slot) {
+        if (transaction != null && !transaction.rows.containsKey(id)) {
+            transaction.rows.put(id, slot < 0 ? null : rowAt(slot));
+        }
+    }
+
+    /**
+     * Копия строки, которую можно вернуть в хранилище через {@link CompactTaskStore#put(Task)}.
+     */
+    private Task rowAt(int slot) {
+        return store.taskAt(slot, store.typeAt(slot) == CompactTaskStore.SUBTASK
+                ? placeholderEpic(store.epicIdAt(slot)) : null);
+    }
+
+    private void index(int slot) {
+        int taskId = store.idAt(slot);
+        int start = store.startAt(slot);
+        if (start == CompactTaskStore.NO_TIME) {
+            untimed.add(taskId);
+        } else {
+            timed.add(((long) start << 32) | taskId);
+            if (store.endAt(slot) != CompactTaskStore.NO_TIME) {
+                maxLength = Math.max(maxLength, (long) store.endAt(slot) - start);
+            }
+        }
+        if (store.typeAt(slot) == CompactTaskStore.SUBTASK) {
+            subTaskKeys.add(((long) store.epicIdAt(slot) << 32) | taskId);
+        }
+    }
+
+    private void unindex(int slot) {
+        int taskId = store.idAt(slot);
+        int start = store.startAt(slot);
+        if (start == CompactTaskStore.NO_TIME) {
+            untimed.remove(taskId);
+        } else {
+            timed.remove(((long) start << 32) | taskId);
+        }
+        if (store.typeAt(slot) == CompactTaskStore.SUBTASK) {
+            subTaskKeys.remove(((long) store.epicIdAt(slot) << 32) | taskId);
+        }
+    }
+
+    private List<Integer> subTaskIdsOf(int epicId) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = subTaskKeys.lowerBound((long) epicId << 32);
+             i < subTaskKeys.size() && subTaskKeys.get(i) >>> 32 == epicId; i++) {
+            ids.add((int) subTaskKeys.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Строка задачи менеджера того же типа с тем же идентификатором, собранная заново.
+     *
+     * @throws IllegalArgumentException если такой задачи в менеджере нет
+     */
+    private Task rowOf(Task task, byte type) {
+        int slot = slotOf(task.getId(), type);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Задача не найдена в менеджере: " + task.getId());
+        }
+        return rowAt(slot);
+    }
+
+    /**
+     * @throws IllegalArgumentException если эпика нет в менеджере
+     */
+    private int managedEpic(Epic epic) {
+        if (epic == null || slotOf(epic.getId(), CompactTaskStore.EPIC) < 0) {
+            throw new IllegalArgumentException("Эпик не найден в менеджере: " + (epic == null ? null : epic.getId()));
+        }
+        return epic.getId();
+    }
+
+    /**
+     * Эпик, по которому строка подзадачи узнаёт идентификатор своего эпика.
+     */
+    private static Epic placeholderEpic(int epicId) {
+        Epic epic = new Epic(null, null);
+        epic.setId(epicId);
+        return epic;
+    }
+
+    private static void checkTimeArguments(String newStartTime, Long newDuration) {
+        if ((newStartTime == null) != (newDuration == null)) {
+            throw new IllegalArgumentException("Нельзя обновлять только startTime или только Duration. " +
+                    "Укажите оба параметра или оба null");
+        }
+    }
+
+    private static void applyFields(Task row, String newName, String newDescription, Status newStatus,
+                                    String newStartTime, Long newDuration) {
+        if (newName != null) {
+            row.setName(newName);
+        }
+        if (newDescription != null) {
+            row.setDescription(newDescription);
+        }
+        if (newStatus != null) {
+            row.setStatus(newStatus);
+        }
+        if (newStartTime != null) {
+            row.setStartTime(LocalDateTime.parse(newStartTime, FORMATTER));
+            row.setDuration(Duration.ofMinutes(newDuration));
+        }
+    }
+
+    private static Duration durationOf(Task task) {
+        try {
+            return task.getDuration();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static byte typeOf(Task task) {
+        return task instanceof Epic ? CompactTaskStore.EPIC
+                : task instanceof SubTask ? CompactTaskStore.SUBTASK : CompactTaskStore.TASK;
+    }
+
+    private int slotOf(int id, byte type) {
+        int slot = store.slotOf(id);
+        return slot >= 0 && store.typeAt(slot) == type ? slot : -1;
+    }
+
+    private int timedSlot(int index) {
+        return store.slotOf((int) timed.get(index));
+    }
+
+    private int startOf(int index) {
+        return (int) (timed.get(index) >> 32);
+    }
+
+    /**
+     * Номер первой позиции порядка по времени, задача которой начинается не раньше time.
+     */
+    private int firstStartingFrom(LocalDateTime time) {
+        int minute = CompactTaskStore.toMinutes(time);
+        if (CompactTaskStore.fromMinutes(minute).isBefore(time)) {
+            minute++; // Время хранится с точностью до минуты
+        }
+        return firstStartingFromMinute(minute);
+    }
+
+    private int firstStartingFromMinute(long minute) {
+        return timed.lowerBound(Math.max(minute, Integer.MIN_VALUE + 1L) << 32);
+    }
+
+    private Task findAnyTask(int id) {
+        int slot = store.slotOf(id);
+        return slot < 0 ? null : taskAt(slot);
+    }
+
+    /**
+     * Собирает задачу строки: эпик — со всеми подзадачами, подзадачу — с эпиком без подзадач.
+     */
+    private Task taskAt(int slot) {
+        return switch (store.typeAt(slot)) {
+            case CompactTaskStore.EPIC -> epicAt(slot);
+            case CompactTaskStore.SUBTASK -> {
+                int epicSlot = store.slotOf(store.epicIdAt(slot));
+                yield store.taskAt(slot, epicSlot < 0 ? null : (Epic) store.taskAt(epicSlot, null));
+            }
+            default -> store.taskAt(slot, null);
+        };
+    }
+
+    private Epic epicAt(int slot) {
+        Epic epic = (Epic) store.taskAt(slot, null);
+        for (int subTaskId : subTaskIdsOf(epic.getId())) {
+            epic.setPrioritizedSubTasks((SubTask) store.taskAt(store.slotOf(subTaskId), epic));
+        }
+        return epic;
+    }
+
+    /**
+     * Отсортированный массив ключей. Вставка и удаление сдвигают хвост массива.
+     */
+    private static final class SortedKeys {
+        private long[] keys = new long[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return keys[index];
+        }
+
+        void add(long key) {
+            int index = lowerBound(key);
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            keys[index] = key;
+            size++;
+        }
+
+        void remove(long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Номер первого ключа, не меньшего key.
+         */
+        int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Задачи одного типа как неизменяемое отображение: значения собираются при каждом обращении.
+     */
+    private final class SlotMap<T extends Task> extends AbstractMap<Integer, T> {
+        private final byte type;
+        private final Set<Entry<Integer, T>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, T>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < store.size() && store.typeAt(from) != type) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < store.size();
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<Integer, T> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int slot = next;
+                        next = advance(slot + 1);
+                        return new SimpleImmutableEntry<>(store.idAt(slot), (T) taskAt(slot));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SlotMap.this.size();
+            }
+        };
+
+        private SlotMap(byte type) {
+            this.type = type;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(Object key) {
+            int slot = slotOf(key);
+            return slot < 0 ? null : (T) taskAt(slot);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return slotOf(key) >= 0;
+        }
+
+        private int slotOf(Object key) {
+            return key instanceof Integer taskId ? CompactTaskManager.this.slotOf(taskId, type) : -1;
+        }
+
+        @Override
+        public int size() {
+            return store.countOf(type);
+        }
+
+        @Override
+        public Set<Entry<Integer, T>> entrySet() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package management;
+
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Компактное хранилище задач в виде параллельных массивов примитивов (struct of arrays).
+ * Одна задача занимает строку: id, тип, статус, id эпика, начало, окончание и длительность
+ * в минутах, а также ссылки на название и описание. Объекты {@link Task} не хранятся —
+ * {@link #get(int)} каждый раз собирает новый объект из строки, поэтому изменения полученной
+ * задачи не попадают в хранилище, пока её не передадут в {@link #put(Task)}.
+ * <p>
+ * Модель данных совпадает с {@link BinaryFormat}: время с точностью до минуты от эпохи UTC,
+ * подзадача ссылается на эпик по идентификатору. Время и статус эпика хранилище не пересчитывает —
+ * сохраняются значения, которые были у эпика при записи.
+ * <p>
+ * Строки плотные: при удалении на место удалённой строки переносится последняя.
+ * Идентификатор отображается на номер строки через {@link IntIntMap}, поэтому память зависит
+ * от количества задач, а не от величины идентификаторов.
+ * <p>
+ * Для каждой пары тип + статус хранилище ведёт список номеров строк, поэтому выборка по статусу
+ * проходит только по подходящим строкам. Списки обновляются при записи и удалении за O(1).
+ * <p>
+ * Как движок {@link TaskManager} хранилище используется через {@link CompactTaskManager}.
+ */
+public final class CompactTaskStore {
+    static final byte TASK = 0;
+    static final byte EPIC = 1;
+    static final byte SUBTASK = 2;
+    static final int NO_TIME = Integer.MIN_VALUE;
+    private static final Status[] STATUSES = Status.values();
+    private static final int TYPES = 3;
+
+    private int size;
+    private int[] ids;
+    private byte[] types;
+    private byte[] statuses;
+    private int[] epicIds;      // 0 — не подзадача
+    private int[] starts;       // Минуты от эпохи UTC, NO_TIME — не задано
+    private int[] ends;         // Для эпика — окончание самой поздней подзадачи
+    private int[] durations;    // Минуты, NO_TIME — не задано
+    private String[] names;
+    private String[] descriptions;
+    private final IntIntMap slotById;
+    private final int[][] rowsByStatus = new int[TYPES * STATUSES.length][]; // Строки по типу и статусу
+    private final int[] rowsByStatusSize = new int[TYPES * STATUSES.length];
+    private int[] positions;    // Позиция строки в её списке rowsByStatus
+
+    public CompactTaskStore() {
+        this(16);
+    }
+
+    public CompactTaskStore(int expectedSize) {
+        int capacity = Math.max(expectedSize, 1);
+        ids = new int[capacity];
+        types = new byte[capacity];
+        statuses = new byte[capacity];
+        epicIds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        durations = new int[capacity];
+        names = new String[capacity];
+        descriptions = new String[capacity];
+        slotById = new IntIntMap(capacity);
+        positions = new int[capacity];
+        for (int i = 0; i < rowsByStatus.length; i++) {
+            rowsByStatus[i] = new int[4];
+        }
+    }
+
+    /**
+     * Копирует все задачи менеджера в новое хранилище.
+     */
+    public static CompactTaskStore copyOf(TaskManager manager) {
+        CompactTaskStore store = new CompactTaskStore(manager.getAllTasks().size()
+                + manager.getAllEpics().size() + manager.getAllSubTasks().size());
+        manager.getAllEpics().values().forEach(store::put);
+        manager.getAllSubTasks().values().forEach(store::put);
+        manager.getAllTasks().values().forEach(store::put);
+        return store;
+    }
+
+    /**
+     * Добавляет задачу или заменяет строку задачи с тем же идентификатором.
+     *
+     * @param task Задача с назначенным идентификатором
+     * @throws IllegalArgumentException если у задачи нет идентификатора или у подзадачи нет эпика
+     */
+    public void put(Task task) {
+        int id = task.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("Идентификатор задачи должен быть положительным: " + id);
+        }
+        int slot = slotOf(id);
+        if (slot < 0) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            slotById.put(id, slot);
+        } else {
+            unlinkStatus(slot);
+        }
+        ids[slot] = id;
+        statuses[slot] = (byte) task.getStatus().ordinal();
+        names[slot] = task.getName();
+        descriptions[slot] = task.getDescription();
+        if (task instanceof Epic epic) {
+            types[slot] = EPIC;
+            epicIds[slot] = 0;
+            starts[slot] = toMinutes(epic.getEpicStartTime());
+            ends[slot] = toMinutes(epic.getEpicEndTime());
+            durations[slot] = toMinutes(epic.getEpicDuration());
+        } else {
+            if (task instanceof SubTask subTask) {
+                if (subTask.getEpic() == null) {
+                    throw new IllegalArgumentException("У подзадачи с ID " + id + " нет эпика");
+                }
+                types[slot] = SUBTASK;
+                epicIds[slot] = subTask.getEpic().getId();
+            } else {
+                types[slot] = TASK;
+                epicIds[slot] = 0;
+            }
+            starts[slot] = toMinutes(task.getStartTime());
+            ends[slot] = toMinutes(task.getEndTime());
+            durations[slot] = toMinutes(rawDuration(task));
+        }
+        linkStatus(slot);
+    }
+
+    /**
+     * Собирает задачу из строки хранилища. У подзадачи эпик тоже собирается заново, без его подзадач.
+     *
+     * @return Новый объект задачи или null, если задачи нет
+     */
+    public Task get(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        if (types[slot] == SUBTASK) {
+            return taskAt(slot, get(epicIds[slot]) instanceof Epic epic ? epic : null);
+        }
+        return taskAt(slot, null);
+    }
+
+    /**
+     * Собирает задачу строки; подзадача получает переданный эпик.
+     */
+    Task taskAt(int slot, Epic epicOfSubTask) {
+        Task task = switch (types[slot]) {
+            case EPIC -> {
+                Epic epic = new Epic(names[slot], descriptions[slot]);
+                epic.setEpicStartTime(fromMinutes(starts[slot]));
+                epic.setEpicEndTime(fromMinutes(ends[slot]));
+                epic.setEpicDuration(durations[slot] == NO_TIME ? null : Duration.ofMinutes(durations[slot]));
+                yield epic;
+            }
+            case SUBTASK -> new SubTask(names[slot], descriptions[slot], epicOfSubTask);
+            default -> new Task(names[slot], descriptions[slot]);
+        };
+        task.setId(ids[slot]);
+        task.setStatus(STATUSES[statuses[slot]]);
+        if (types[slot] != EPIC) {
+            task.setStartTime(fromMinutes(starts[slot]));
+            task.setDuration(durations[slot] == NO_TIME ? null : Duration.ofMinutes(durations[slot]));
+        }
+        return task;
+    }
+
+    /**
+     * Удаляет задачу. Подзадачи удалённого эпика не удаляются.
+     *
+     * @return true, если задача была в хранилище
+     */
+    public boolean remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        unlinkStatus(slot);
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            types[slot] = types[last];
+            statuses[slot] = statuses[last];
+            epicIds[slot] = epicIds[last];
+            starts[slot] = starts[last];
+            ends[slot] = ends[last];
+            durations[slot] = durations[last];
+            names[slot] = names[last];
+            descriptions[slot] = descriptions[last];
+            positions[slot] = positions[last];
+            rowsByStatus[bucketOf(slot)][positions[slot]] = slot;
+            slotById.put(ids[slot], slot);
+        }
+        names[last] = null;
+        descriptions[last] = null;
+        slotById.remove(id);
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return slotOf(id) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Status getStatus(int id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : STATUSES[statuses[slot]];
+    }
+
+    /**
+     * Количество задач в статусе без сборки объектов и без обхода строк.
+     */
+    public int countByStatus(Status status) {
+        int count = 0;
+        for (byte type = 0; type < TYPES; type++) {
+            count += countOf(type, status);
+        }
+        return count;
+    }
+
+    /**
+     * Количество строк типа в статусе.
+     */
+    int countOf(byte type, Status status) {
+        return rowsByStatusSize[type * STATUSES.length + status.ordinal()];
+    }
+
+    /**
+     * Количество строк типа.
+     */
+    int countOf(byte type) {
+        int count = 0;
+        for (Status status : STATUSES) {
+            count += countOf(type, status);
+        }
+        return count;
+    }
+
+    /**
+     * Номер index-й строки типа в статусе. Порядок строк в списке не определён и меняется при удалении.
+     */
+    int rowOf(byte type, Status status, int index) {
+        return rowsByStatus[type * STATUSES.length + status.ordinal()][index];
+    }
+
+    /**
+     * Передаёт идентификаторы задач, которые начинаются в интервале [from, to). Проход идёт только
+     * по массиву времени начала, объекты задач не создаются. Порядок не определён.
+     */
+    public void forEachStartingBetween(LocalDateTime from, LocalDateTime to, IntConsumer action) {
+        int fromMinutes = toMinutes(from);
+        int toMinutes = toMinutes(to);
+        for (int slot = 0; slot < size; slot++) {
+            int start = starts[slot];
+            if (start != NO_TIME && start >= fromMinutes && start < toMinutes) {
+                action.accept(ids[slot]);
+            }
+        }
+    }
+
+    /**
+     * Передаёт идентификаторы подзадач эпика.
+     */
+    public void forEachSubTask(int epicId, IntConsumer action) {
+        for (int slot = 0; slot < size; slot++) {
+            if (epicIds[slot] == epicId && types[slot] == SUBTASK) {
+                action.accept(ids[slot]);
+            }
+        }
+    }
+
+    public void forEachId(IntConsumer action) {
+        for (int slot = 0; slot < size; slot++) {
+            action.accept(ids[slot]);
+        }
+    }
+
+    /**
+     * Номер строки задачи или -1. Номера строк меняются при удалении.
+     */
+    int slotOf(int id) {
+        return slotById.get(id);
+    }
+
+    int idAt(int slot) {
+        return ids[slot];
+    }
+
+    byte typeAt(int slot) {
+        return types[slot];
+    }
+
+    Status statusAt(int slot) {
+        return STATUSES[statuses[slot]];
+    }
+
+    int epicIdAt(int slot) {
+        return epicIds[slot];
+    }
+
+    /**
+     * Начало задачи в минутах от эпохи UTC или {@link #NO_TIME}.
+     */
+    int startAt(int slot) {
+        return starts[slot];
+    }
+
+    /**
+     * Окончание задачи в минутах от эпохи UTC или {@link #NO_TIME}.
+     */
+    int endAt(int slot) {
+        return ends[slot];
+    }
+
+    private int bucketOf(int slot) {
+        return types[slot] * STATUSES.length + statuses[slot];
+    }
+
+    private void linkStatus(int slot) {
+        int bucket = bucketOf(slot);
+        int[] rows = rowsByStatus[bucket];
+        int position = rowsByStatusSize[bucket]++;
+        if (position == rows.length) {
+            rows = rowsByStatus[bucket] = Arrays.copyOf(rows, rows.length << 1);
+        }
+        rows[position] = slot;
+        positions[slot] = position;
+    }
+
+    /**
+     * Убирает строку из списка её типа и статуса: на её место переносится последняя строка списка.
+     */
+    private void unlinkStatus(int slot) {
+        int bucket = bucketOf(slot);
+        int[] rows = rowsByStatus[bucket];
+        int lastRow = rows[--rowsByStatusSize[bucket]];
+        rows[positions[slot]] = lastRow;
+        positions[lastRow] = positions[slot];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        epicIds = Arrays.copyOf(epicIds, newCapacity);
+        starts = Arrays.copyOf(starts, newCapacity);
+        ends = Arrays.copyOf(ends, newCapacity);
+        durations = Arrays.copyOf(durations, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        descriptions = Arrays.copyOf(descriptions, newCapacity);
+        positions = Arrays.copyOf(positions, newCapacity);
+    }
+
+    /**
+     * Переводит время в минуты от эпохи UTC, отбрасывая секунды, как {@link BinaryFormat}.
+     * Минут в int хватает примерно на 4000 лет в обе стороны.
+     */
+    static int toMinutes(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    private static int toMinutes(Duration duration) {
+        return duration == null ? NO_TIME : Math.toIntExact(duration.toMinutes());
+    }
+
+    private static Duration rawDuration(Task task) {
+        try {
+            return task.getDuration();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    static LocalDateTime fromMinutes(int minutes) {
+        return minutes == NO_TIME ? null : LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,477 @@
+package management;
+
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасный менеджер задач поверх {@link InMemoryTaskManager}.
+ * Изменения выполняются под блокировкой записи, поэтому проверка пересечений и пересчёт
+ * статуса и времени эпика происходят атомарно. Поиск задачи по id сначала выполняется оптимистично
+ * без блокировки и повторяется под блокировкой чтения, только если за это время было изменение.
+ * Остальное чтение обходит деревья и списки, поэтому сразу идёт под блокировкой чтения.
+ * Методы, возвращающие коллекции, отдают копии, которые можно обходить без блокировки.
+ * <p>
+ * В режиме с блокировками по эпикам ({@link #ConcurrentTaskManager(int)}) изменения подзадач сначала
+ * захватывают блокировку своего эпика. Под общей блокировкой записи выполняется только работа с общими
+ * индексами: проверка пересечений, вставка и переиндексация интервала эпика. Пересчёт статуса
+ * и длительности эпика идёт уже под блокировкой эпика, параллельно с изменениями других эпиков.
+ * Блокировки эпиков всегда берутся до общей и в порядке возрастания номера, поэтому взаимоблокировок нет.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final InMemoryTaskManager delegate;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock[] stripes; // null — все изменения под одной блокировкой
+
+    public ConcurrentTaskManager() {
+        this(new InMemoryTaskManager());
+    }
+
+    public ConcurrentTaskManager(InMemoryTaskManager delegate) {
+        this.delegate = delegate;
+        this.stripes = null;
+    }
+
+    /**
+     * Создаёт менеджер с блокировками по эпикам.
+     *
+     * @param stripeCount Количество блокировок, между которыми распределяются эпики
+     */
+    public ConcurrentTaskManager(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Количество блокировок должно быть положительным");
+        }
+        this.delegate = new InMemoryTaskManager();
+        this.delegate.deferEpicAggregates = true;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Выполняет поиск сначала оптимистично, а при конкурентном изменении — под блокировкой чтения.
+     * Подходит только для чтения одной ячейки {@link IntMap}: в таблице всегда есть пустые ячейки,
+     * поэтому пробирование конечно даже на несогласованном состоянии, а массивы разного размера
+     * приводят к исключению, после которого поиск повторяется под блокировкой. Обход деревьев
+     * и связных списков без блокировки может зациклиться на недоделанной перестройке и до проверки
+     * не дойти, поэтому такое чтение идёт через {@link #read(Supplier)}.
+     */
+    private <R> R lookup(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException ignored) {
+                // Повторяем под блокировкой чтения
+            }
+        }
+        return read(reader);
+    }
+
+    /**
+     * Находит задачу и записывает просмотр в историю ровно один раз — уже после проверки поиска,
+     * а не внутри повторяемого оптимистичного чтения. Если между проверкой и записью прошло
+     * изменение, под блокировкой чтения проверяется, что задача не удалена; иначе просмотр убирается.
+     */
+    private <T extends Task> T view(int id, Supplier<T> finder) {
+        long stamp = lock.tryOptimisticRead();
+        T task = null;
+        boolean valid = false;
+        if (stamp != 0) {
+            try {
+                task = finder.get();
+                valid = lock.validate(stamp);
+            } catch (RuntimeException ignored) {
+                // Повторяем под блокировкой чтения
+            }
+        }
+        if (!valid) {
+            stamp = lock.readLock();
+            try {
+                task = finder.get();
+                delegate.recordView(task);
+                return task;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        delegate.recordView(task);
+        if (task != null && !lock.validate(stamp) && read(finder) == null) {
+            delegate.forgetView(id);
+        }
+        return task;
+    }
+
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(Runnable writer) {
+        long stamp = lock.writeLock();
+        try {
+            writer.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int stripeIndex(Epic epic) {
+        int hash = epic.getId() * 0x9E3779B9; // Перемешиваем, чтобы соседние id попадали в разные блокировки
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * Захватывает блокировки двух эпиков в порядке возрастания номера. Любой из эпиков может быть null.
+     *
+     * @return Захваченные блокировки в порядке захвата
+     */
+    private ReentrantLock[] lockEpics(Epic first, Epic second) {
+        int a = first == null ? -1 : stripeIndex(first);
+        int b = second == null ? -1 : stripeIndex(second);
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        ReentrantLock[] locked = (a == -1 || a == b) ? new ReentrantLock[]{stripes[b]}
+                : new ReentrantLock[]{stripes[a], stripes[b]};
+        for (ReentrantLock stripe : locked) {
+            stripe.lock();
+        }
+        return locked;
+    }
+
+    private static void unlock(ReentrantLock[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            locked[i].unlock();
+        }
+    }
+
+    /**
+     * Выполняет изменение подзадачи под блокировкой её текущего эпика (и целевого эпика при переносе).
+     * Если подзадачу успели перенести в другой эпик до захвата блокировки, попытка повторяется.
+     */
+    private void writeSubTask(SubTask subTask, Epic targetEpic, Runnable writer) {
+        while (true) {
+            Epic currentEpic = subTask.getEpic();
+            ReentrantLock[] locked = lockEpics(currentEpic, targetEpic);
+            try {
+                if (subTask.getEpic() != currentEpic) {
+                    continue;
+                }
+                write(writer);
+                if (currentEpic != null) {
+                    refreshEpicAggregates(currentEpic);
+                }
+                if (targetEpic != null && targetEpic != currentEpic) {
+                    refreshEpicAggregates(targetEpic);
+                }
+                return;
+            } finally {
+                unlock(locked);
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает статус и длительность эпика под его блокировкой. Общая блокировка нужна,
+     * только если статус изменился и эпик надо перенести в индексе статусов.
+     */
+    private void refreshEpicAggregates(Epic epic) {
+        Status previous = delegate.refreshEpicAggregates(epic);
+        if (previous != epic.getStatus()) {
+            write(() -> delegate.indexEpicStatus(epic, previous));
+        }
+    }
+
+    private void writeAllEpics(Runnable writer) {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            write(writer);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void createTask(Task task) {
+        write(() -> delegate.createTask(task));
+    }
+
+    @Override
+    public void createSubTask(SubTask subTask) {
+        if (stripes == null) {
+            write(() -> delegate.createSubTask(subTask));
+        } else {
+            writeSubTask(subTask, null, () -> delegate.createSubTask(subTask));
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        write(() -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public Map<Integer, Task> getAllTasks() {
+        return read(() -> new HashMap<>(delegate.getAllTasks()));
+    }
+
+    @Override
+    public Map<Integer, Epic> getAllEpics() {
+        return read(() -> new HashMap<>(delegate.getAllEpics()));
+    }
+
+    @Override
+    public Map<Integer, SubTask> getAllSubTasks() {
+        return read(() -> new HashMap<>(delegate.getAllSubTasks()));
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return view(id, () -> delegate.getAllTasks().get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return view(id, () -> delegate.getAllSubTasks().get(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return view(id, () -> delegate.getAllEpics().get(id));
+    }
+
+    @Override
+    public Task getTask(String session, int id) {
+        // Просмотр удалённой задачи история сессии отбросит сама при чтении
+        return delegate.recordInSession(session, lookup(() -> delegate.getAllTasks().get(id)));
+    }
+
+    @Override
+    public SubTask getSubTask(String session, int id) {
+        // Просмотр удалённой задачи история сессии отбросит сама при чтении
+        return delegate.recordInSession(session, lookup(() -> delegate.getAllSubTasks().get(id)));
+    }
+
+    @Override
+    public Epic getEpic(String session, int id) {
+        // Просмотр удалённой задачи история сессии отбросит сама при чтении
+        return delegate.recordInSession(session, lookup(() -> delegate.getAllEpics().get(id)));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        write(() -> delegate.deleteTask(id));
+    }
+
+    @Override
+    public void deleteSubTask(int id) {
+        SubTask subTask;
+        if (stripes == null || (subTask = lookup(() -> delegate.getAllSubTasks().get(id))) == null) {
+            write(() -> delegate.deleteSubTask(id));
+        } else {
+            writeSubTask(subTask, null, () -> delegate.deleteSubTask(id));
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        if (stripes == null) {
+            write(delegate::deleteAll);
+        } else {
+            writeAllEpics(delegate::deleteAll);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        Epic epic;
+        if (stripes == null || (epic = lookup(() -> delegate.getAllEpics().get(id))) == null) {
+            write(() -> delegate.deleteEpic(id));
+        } else {
+            ReentrantLock[] locked = lockEpics(epic, null);
+            try {
+                write(() -> delegate.deleteEpic(id));
+            } finally {
+                unlock(locked);
+            }
+        }
+    }
+
+    @Override
+    public void updateTask(Task taskToUpdate,
+                           String newName,          // null = не обновлять
+                           String newDescription,   // null = не обновлять
+                           Status newStatus,        // null = не обновлять
+                           String newStartTime, // null = не обновлять
+                           Long newDuration) {
+        write(() -> delegate.updateTask(taskToUpdate, newName, newDescription, newStatus, newStartTime, newDuration));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTaskToUpdate,
+                              String newName,          // null = не обновлять
+                              String newDescription,   // null = не обновлять
+                              Status newStatus,        // null = не обновлять
+                              String newStartTime, // null = не обновлять
+                              Long newDuration,
+                              Epic newEpic) {
+        Runnable update = () -> delegate.updateSubTask(subTaskToUpdate, newName, newDescription, newStatus,
+                newStartTime, newDuration, newEpic);
+        if (stripes == null) {
+            write(update);
+        } else {
+            writeSubTask(subTaskToUpdate, newEpic, update);
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic currentEpic, Epic updatedEpic) {
+        write(() -> delegate.updateEpic(currentEpic, updatedEpic));
+    }
+
+    @Override
+    public void addSubtaskToEpic(Epic epic, SubTask subTask) {
+        if (stripes == null) {
+            write(() -> delegate.addSubtaskToEpic(epic, subTask));
+        } else {
+            writeSubTask(subTask, epic, () -> delegate.addSubtaskToEpic(epic, subTask));
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(delegate::getHistory);
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(HistoryPage.Cursor cursor, int limit) {
+        return read(() -> delegate.getHistoryPage(cursor, limit));
+    }
+
+    @Override
+    public List<Task> getHistory(String session) {
+        return read(() -> delegate.getHistory(session));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(delegate::getPrioritizedTasks);
+    }
+
+    @Override
+    public Collection<Task> getTasksByStatus(Status status) {
+        return read(() -> new ArrayList<>(delegate.getTasksByStatus(status)));
+    }
+
+    @Override
+    public Collection<SubTask> getSubTasksByStatus(Status status) {
+        return read(() -> new ArrayList<>(delegate.getSubTasksByStatus(status)));
+    }
+
+    @Override
+    public Collection<Epic> getEpicsByStatus(Status status) {
+        return read(() -> new ArrayList<>(delegate.getEpicsByStatus(status)));
+    }
+
+    @Override
+    public NavigableSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return read(() -> Collections.unmodifiableNavigableSet(new TreeSet<>(delegate.getTasksStartingBetween(from, to))));
+    }
+
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime instant) {
+        return read(() -> delegate.getTasksActiveAt(instant));
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return read(() -> delegate.getNextTasks(after, limit));
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(LocalDateTime after, Duration duration) {
+        return read(() -> delegate.findNextFreeSlot(after, duration));
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Epic epic, LocalDateTime after, Duration duration) {
+        return read(() -> delegate.findNextFreeSlot(epic, after, duration));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(LocalDateTime after, Duration duration, int count) {
+        return read(() -> delegate.findFreeSlots(after, duration, count));
+    }
+
+    @Override
+    public void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore) {
+        write(() -> delegate.scheduleTasks(jobs, notBefore));
+    }
+
+    @Override
+    public void createAll(Collection<? extends Task> batch) {
+        if (stripes == null) {
+            write(() -> delegate.createAll(batch));
+        } else {
+            writeAllEpics(() -> delegate.createAll(batch));
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> changes) {
+        if (stripes == null) {
+            write(() -> delegate.updateAll(changes));
+        } else {
+            writeAllEpics(() -> delegate.updateAll(changes));
+        }
+    }
+
+    /**
+     * Выполняет транзакцию под блокировкой записи (и всеми блокировками эпиков). Операции транзакции
+     * получают внутренний менеджер: обращаться внутри неё к этому менеджеру нельзя.
+     */
+    @Override
+    public void inTransaction(Consumer<? super TaskManager> work) {
+        if (stripes == null) {
+            write(() -> delegate.inTransaction(work));
+        } else {
+            writeAllEpics(() -> delegate.inTransaction(work));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return read(delegate::toString);
+    }
+}
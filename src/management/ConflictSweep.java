@@ -0,0 +1,93 @@
+package management;
+
+import exceptions.BatchOverlapException;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Поиск всех пересечений пакета задач одним проходом сканирующей прямой.
+ * Интервалы пакета и существующего расписания сортируются один раз по началу;
+ * при проходе хранятся только интервалы, которые ещё не закончились к текущему началу.
+ * Пересечения между двумя существующими задачами не сообщаются — их уже проверили при создании.
+ * <p>
+ * Правила исключения совпадают с {@link ScheduleIndex#exclusionsFor(Task)}: подзадача не конфликтует
+ * со своим эпиком. Задачам пакета без идентификатора назначаются временные отрицательные ключи.
+ */
+final class ConflictSweep {
+    private final List<Interval> intervals = new ArrayList<>();
+    private LocalDateTime batchStart;
+    private LocalDateTime batchEnd;
+
+    private record Interval(Task task, int key, int epicKey, LocalDateTime start, LocalDateTime end, boolean batch) {
+    }
+
+    /**
+     * Добавляет интервал задачи из пакета. Задачи без времени не участвуют в проверке.
+     *
+     * @param key     Ключ задачи: её id или временный отрицательный ключ для новой задачи
+     * @param epicKey Ключ эпика подзадачи, для остальных задач 0
+     */
+    void addBatch(Task task, int key, int epicKey, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return;
+        }
+        intervals.add(new Interval(task, key, epicKey, start, end, true));
+        batchStart = batchStart == null || start.isBefore(batchStart) ? start : batchStart;
+        batchEnd = batchEnd == null || end.isAfter(batchEnd) ? end : batchEnd;
+    }
+
+    /**
+     * Границы, в которых нужно взять существующие задачи; null, если в пакете нет задач со временем.
+     */
+    LocalDateTime batchStart() {
+        return batchStart;
+    }
+
+    LocalDateTime batchEnd() {
+        return batchEnd;
+    }
+
+    void addExisting(Task task) {
+        LocalDateTime start = ScheduleIndex.startOf(task);
+        LocalDateTime end = ScheduleIndex.endOf(task);
+        if (start == null || end == null || !start.isBefore(end)) {
+            return;
+        }
+        int epicKey = task instanceof SubTask subTask && subTask.getEpic() != null ? subTask.getEpic().getId() : 0;
+        intervals.add(new Interval(task, task.getId(), epicKey, start, end, false));
+    }
+
+    /**
+     * Выполняет проход и возвращает все пары пересекающихся задач, в которых участвует пакет.
+     */
+    List<BatchOverlapException.Conflict> conflicts() {
+        intervals.sort(Comparator.comparing(Interval::start));
+        PriorityQueue<Interval> active = new PriorityQueue<>(Comparator.comparing(Interval::end));
+        List<BatchOverlapException.Conflict> conflicts = new ArrayList<>();
+        for (Interval current : intervals) {
+            while (!active.isEmpty() && !active.peek().end().isAfter(current.start())) {
+                active.poll();
+            }
+            for (Interval other : active) {
+                if ((other.batch() || current.batch()) && !related(other, current)) {
+                    conflicts.add(new BatchOverlapException.Conflict(other.task(), current.task()));
+                }
+            }
+            active.add(current);
+        }
+        return conflicts;
+    }
+
+    private static boolean related(Interval first, Interval second) {
+        return first.key() == second.key()
+                || (first.epicKey() != 0 && first.epicKey() == second.key() && second.task() instanceof Epic)
+                || (second.epicKey() != 0 && second.epicKey() == first.key() && first.task() instanceof Epic);
+    }
+}
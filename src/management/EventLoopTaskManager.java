@@ -0,0 +1,805 @@
+package management;
+
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Менеджер задач с одним потоком записи вместо блокировок. Каждое изменение становится командой
+ * в ограниченной очереди {@link MpscRingBuffer}: писатели только занимают позицию через CAS и не ждут
+ * друг друга. Поток записи забирает команды пачками до {@link #MAX_BATCH}, применяет их
+ * к собственному {@link InMemoryTaskManager}, после пачки публикует снимок состояния
+ * и только потом завершает результаты команд. Поэтому после завершения команды её изменение уже видно при чтении.
+ * <p>
+ * Чтение идёт по последнему опубликованному снимку и никогда не ждёт поток записи. Снимок собирается
+ * один раз на пачку и по возможности из прежнего: копии задач, эпиков и подзадач, которые пачка не изменила,
+ * переходят в новый снимок как есть, заново копируются только изменённые. Задачи снимка — общие для всех читателей копии только для чтения:
+ * их сеттеры выбрасывают {@link UnsupportedOperationException}. Методы изменения принимают такие задачи
+ * и находят задачу менеджера по идентификатору переданной.
+ * <p>
+ * Методы {@link TaskManager} дожидаются своей команды и выбрасывают её исключение;
+ * {@link #submit(Function)} возвращает {@link CompletableFuture} без ожидания.
+ */
+public class EventLoopTaskManager implements TaskManager, AutoCloseable {
+    static final int MAX_BATCH = 256;
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private final InMemoryTaskManager live = new InMemoryTaskManager(); // Доступ только из потока записи
+    private final MpscRingBuffer<Command<?>> commands;
+    private final Thread writer;
+    private final BufferedHistoryManager history = new BufferedHistoryManager(Managers.getDefaultHistory());
+    private final SessionHistories sessionHistories = new SessionHistories(
+            InMemoryTaskManager.SESSION_IDLE_TIMEOUT, InMemoryTaskManager.SESSION_HISTORY_SIZE);
+    private volatile InMemoryTaskManager snapshot = new InMemoryTaskManager(); // Публикует только поток записи
+    private volatile boolean sleeping; // Поток записи собирается заснуть: писатель должен его разбудить
+    private volatile boolean closed;
+
+    /**
+     * Команда и её результат.
+     */
+    private static final class Command<R> {
+        private final Function<? super InMemoryTaskManager, ? extends R> action;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private R value;
+        private Throwable failure;
+
+        Command(Function<? super InMemoryTaskManager, ? extends R> action) {
+            this.action = action;
+        }
+
+        void apply(InMemoryTaskManager manager) {
+            try {
+                value = action.apply(manager);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    public EventLoopTaskManager() {
+        this(DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param queueSize Количество команд, которые могут ждать применения; писатель при заполненной
+     *                  очереди ждёт, пока поток записи её освободит
+     */
+    public EventLoopTaskManager(int queueSize) {
+        commands = new MpscRingBuffer<>(queueSize);
+        writer = new Thread(this::runLoop, "task-event-loop");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ставит команду в очередь. Команда выполняется в потоке записи после всех команд, поставленных раньше,
+     * и получает этот же менеджер: внутри команды чтение идёт по текущему состоянию, а не по снимку.
+     *
+     * @return Результат, который завершается, когда изменение команды уже видно при чтении
+     */
+    public <R> CompletableFuture<R> submit(Function<? super TaskManager, ? extends R> command) {
+        return enqueue(manager -> command.apply(this));
+    }
+
+    private <R> CompletableFuture<R> enqueue(Function<? super InMemoryTaskManager, ? extends R> action) {
+        Command<R> queued = new Command<>(action);
+        if (Thread.currentThread() == writer) {
+            // Команда из другой команды выполняется сразу, иначе поток записи ждал бы сам себя
+            queued.apply(live);
+            queued.complete();
+            return queued.result;
+        }
+        if (closed) {
+            queued.result.completeExceptionally(closedError());
+            return queued.result;
+        }
+        while (!commands.offer(queued)) {
+            if (closed) {
+                queued.result.completeExceptionally(closedError());
+                return queued.result;
+            }
+            LockSupport.unpark(writer);
+            Thread.yield(); // Очередь заполнена: даём потоку записи её освободить
+        }
+        if (closed) {
+            // Поток записи мог завершиться до того, как команда попала в очередь, а закрытие — уже
+            // выбрать остатки очереди: тогда команду отклоняем сами, иначе её результат не завершится
+            rejectLeftovers();
+            if (!queued.result.isDone()) {
+                queued.result.completeExceptionally(closedError()); // Ожидание прервано
+            }
+        } else if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return queued.result;
+    }
+
+    /**
+     * Применяет уже поставленные команды и останавливает поток записи.
+     * Команды, поставленные во время закрытия, завершаются {@link IllegalStateException}.
+     * Из команды менеджер закрывается без ожидания: поток записи доделает очередь и остановится сам.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        rejectLeftovers();
+    }
+
+    /**
+     * Дожидается остановки потока записи и отклоняет команды, которые остались в очереди.
+     * После остановки очередь выбирают закрывающий поток и опоздавшие писатели, поэтому выборка
+     * идёт под блокировкой очереди: у буфера должен быть один читатель.
+     */
+    private void rejectLeftovers() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (commands) {
+            commands.drain(command -> command.result.completeExceptionally(closedError()));
+        }
+    }
+
+    private static IllegalStateException closedError() {
+        return new IllegalStateException("Менеджер закрыт");
+    }
+
+    private void runLoop() {
+        List<Command<?>> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            commands.drain(batch::add, MAX_BATCH);
+            if (batch.isEmpty()) {
+                if (closed && commands.isEmpty()) {
+                    return;
+                }
+                sleeping = true;
+                if (commands.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+                continue;
+            }
+            for (Command<?> command : batch) {
+                command.apply(live);
+            }
+            snapshot = copyOf(live, snapshot);
+            for (Command<?> command : batch) {
+                command.complete();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Копирует задачи менеджера в новый менеджер, который после публикации только читается.
+     * Копии из предыдущего снимка переиспользуются, если поля задачи не изменились; эпик переиспользуется
+     * вместе со всеми подзадачами, поэтому изменение любой из них копирует эпик и все его подзадачи заново.
+     *
+     * @param source   Текущее состояние
+     * @param previous Предыдущий снимок
+     */
+    private static InMemoryTaskManager copyOf(InMemoryTaskManager source, InMemoryTaskManager previous) {
+        Map<Integer, Epic> epics = source.getAllEpics();
+        Map<Integer, SubTask> subTasks = source.getAllSubTasks();
+        Map<Integer, Epic> previousEpics = previous.getAllEpics();
+        Map<Integer, SubTask> previousSubTasks = previous.getAllSubTasks();
+        Map<Integer, Task> previousTasks = previous.getAllTasks();
+
+        Set<Integer> changedEpics = new HashSet<>();
+        for (SubTask subTask : subTasks.values()) {
+            SubTask copy = previousSubTasks.get(subTask.getId());
+            if (copy == null || !sameFields(subTask, copy) || copy.getEpic().getId() != subTask.getEpic().getId()) {
+                changedEpics.add(subTask.getEpic().getId());
+            }
+        }
+        List<Task> copies = new ArrayList<>(epics.size() + subTasks.size() + source.getAllTasks().size());
+        List<ReadOnly> created = new ArrayList<>();
+        Map<Integer, Epic> epicCopies = new HashMap<>();
+        Set<Integer> copiedEpics = new HashSet<>(); // Эпики, скопированные заново вместе с подзадачами
+        for (Epic epic : epics.values()) {
+            Epic copy = previousEpics.get(epic.getId());
+            if (copy == null || changedEpics.contains(epic.getId()) || !sameFields(epic, copy)
+                    || copy.getPrioritizedSubTasks().size() != epic.getPrioritizedSubTasks().size()) {
+                copy = new ReadOnlyEpic(epic.getName(), epic.getDescription());
+                copy.setId(epic.getId());
+                copy.setStatus(epic.getStatus());
+                copy.setEpicStartTime(epic.getEpicStartTime());
+                copy.setEpicEndTime(epic.getEpicEndTime());
+                copy.setEpicDuration(epic.getEpicDuration());
+                copiedEpics.add(copy.getId());
+                created.add((ReadOnly) copy);
+            }
+            epicCopies.put(copy.getId(), copy);
+            copies.add(copy);
+        }
+        for (SubTask subTask : subTasks.values()) {
+            Epic epicCopy = epicCopies.get(subTask.getEpic().getId());
+            SubTask copy = previousSubTasks.get(subTask.getId());
+            if (copiedEpics.contains(epicCopy.getId())) {
+                copy = copyFields(subTask, new ReadOnlySubTask(subTask.getName(), subTask.getDescription(), epicCopy));
+                epicCopy.setPrioritizedSubTasks(copy);
+                created.add((ReadOnly) copy);
+            }
+            copies.add(copy);
+        }
+        for (Task task : source.getAllTasks().values()) {
+            Task copy = previousTasks.get(task.getId());
+            if (copy == null || !sameFields(task, copy)) {
+                copy = copyFields(task, new ReadOnlyTask(task.getName(), task.getDescription()));
+                created.add((ReadOnly) copy);
+            }
+            copies.add(copy);
+        }
+        for (ReadOnly task : created) {
+            task.freeze();
+        }
+        InMemoryTaskManager copy = new InMemoryTaskManager();
+        copy.restoreBuilt(copies);
+        return copy;
+    }
+
+    private static boolean sameFields(Task task, Task copy) {
+        return Objects.equals(task.getName(), copy.getName())
+                && Objects.equals(task.getDescription(), copy.getDescription())
+                && task.getStatus() == copy.getStatus()
+                && Objects.equals(task.getStartTime(), copy.getStartTime())
+                && Objects.equals(durationOf(task), durationOf(copy))
+                && (!(task instanceof Epic epic) || Objects.equals(epic.getEpicEndTime(), ((Epic) copy).getEpicEndTime()));
+    }
+
+    private static Duration durationOf(Task task) {
+        try {
+            return task.getDuration();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static <T extends Task> T copyFields(Task source, T copy) {
+        copy.setId(source.getId());
+        copy.setStatus(source.getStatus());
+        copy.setStartTime(source.getStartTime());
+        copy.setDuration(durationOf(source));
+        return copy;
+    }
+
+    /**
+     * Задача снимка: после сборки снимка любое изменение запрещено.
+     */
+    private interface ReadOnly {
+        void freeze();
+
+        static void check(boolean frozen) {
+            if (frozen) {
+                throw new UnsupportedOperationException(
+                        "Задача снимка только для чтения: изменяйте её через методы менеджера");
+            }
+        }
+    }
+
+    private static final class ReadOnlyTask extends Task implements ReadOnly {
+        private boolean frozen;
+
+        ReadOnlyTask(String name, String description) {
+            super(name, description);
+        }
+
+        @Override
+        public void freeze() {
+            frozen = true;
+        }
+
+        @Override
+        public void setId(int id) {
+            ReadOnly.check(frozen);
+            super.setId(id);
+        }
+
+        @Override
+        public void setName(String name) {
+            ReadOnly.check(frozen);
+            super.setName(name);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            ReadOnly.check(frozen);
+            super.setDescription(description);
+        }
+
+        @Override
+        public void setStatus(Status status) {
+            ReadOnly.check(frozen);
+            super.setStatus(status);
+        }
+
+        @Override
+        public void setStartTime(LocalDateTime startTime) {
+            ReadOnly.check(frozen);
+            super.setStartTime(startTime);
+        }
+
+        @Override
+        public void setDuration(Duration duration) {
+            ReadOnly.check(frozen);
+            super.setDuration(duration);
+        }
+    }
+
+    private static final class ReadOnlySubTask extends SubTask implements ReadOnly {
+        private boolean frozen;
+
+        ReadOnlySubTask(String name, String description, Epic epic) {
+            super(name, description, epic);
+        }
+
+        @Override
+        public void freeze() {
+            frozen = true;
+        }
+
+        @Override
+        public void setId(int id) {
+            ReadOnly.check(frozen);
+            super.setId(id);
+        }
+
+        @Override
+        public void setName(String name) {
+            ReadOnly.check(frozen);
+            super.setName(name);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            ReadOnly.check(frozen);
+            super.setDescription(description);
+        }
+
+        @Override
+        public void setStatus(Status status) {
+            ReadOnly.check(frozen);
+            super.setStatus(status);
+        }
+
+        @Override
+        public void setStartTime(LocalDateTime startTime) {
+            ReadOnly.check(frozen);
+            super.setStartTime(startTime);
+        }
+
+        @Override
+        public void setDuration(Duration duration) {
+            ReadOnly.check(frozen);
+            super.setDuration(duration);
+        }
+
+        @Override
+        public void setEpic(Epic epic) {
+            ReadOnly.check(frozen);
+            super.setEpic(epic);
+        }
+    }
+
+    private static final class ReadOnlyEpic extends Epic implements ReadOnly {
+        private boolean frozen;
+
+        ReadOnlyEpic(String name, String description) {
+            super(name, description);
+        }
+
+        @Override
+        public void freeze() {
+            frozen = true;
+        }
+
+        @Override
+        public void setId(int id) {
+            ReadOnly.check(frozen);
+            super.setId(id);
+        }
+
+        @Override
+        public void setName(String name) {
+            ReadOnly.check(frozen);
+            super.setName(name);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            ReadOnly.check(frozen);
+            super.setDescription(description);
+        }
+
+        @Override
+        public void setStatus(Status status) {
+            ReadOnly.check(frozen);
+            super.setStatus(status);
+        }
+
+        @Override
+        public void setStartTime(LocalDateTime startTime) {
+            ReadOnly.check(frozen);
+            super.setStartTime(startTime);
+        }
+
+        @Override
+        public void setDuration(Duration duration) {
+            ReadOnly.check(frozen);
+            super.setDuration(duration);
+        }
+
+        @Override
+        public void setPrioritizedSubTasks(SubTask subTask) {
+            ReadOnly.check(frozen);
+            super.setPrioritizedSubTasks(subTask);
+        }
+
+        @Override
+        public void deletePrioritizedSubTasks(SubTask subTask) {
+            ReadOnly.check(frozen);
+            super.deletePrioritizedSubTasks(subTask);
+        }
+
+        @Override
+        public void clearPrioritizedSubTasks() {
+            ReadOnly.check(frozen);
+            super.clearPrioritizedSubTasks();
+        }
+
+        @Override
+        public void setEpicStartTime(LocalDateTime epicStartTime) {
+            ReadOnly.check(frozen);
+            super.setEpicStartTime(epicStartTime);
+        }
+
+        @Override
+        public void setEpicEndTime(LocalDateTime epicEndTime) {
+            ReadOnly.check(frozen);
+            super.setEpicEndTime(epicEndTime);
+        }
+
+        @Override
+        public void setEpicDuration(Duration duration) {
+            ReadOnly.check(frozen);
+            super.setEpicDuration(duration);
+        }
+    }
+
+    private <R> R await(Function<? super InMemoryTaskManager, ? extends R> command) {
+        try {
+            return enqueue(command).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run(Consumer<? super InMemoryTaskManager> command) {
+        await(manager -> {
+            command.accept(manager);
+            return null;
+        });
+    }
+
+    /**
+     * Задача менеджера потока записи с тем же идентификатором.
+     *
+     * @throws IllegalArgumentException если такой задачи в менеджере нет: менять чужой объект нельзя
+     */
+    private static <T extends Task> T managed(InMemoryTaskManager manager, T task) {
+        if (task == null) {
+            return null;
+        }
+        T found = find(manager, task);
+        if (found == null) {
+            throw new IllegalArgumentException("Задача не найдена в менеджере: " + task.getId());
+        }
+        return found;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T find(InMemoryTaskManager manager, T task) {
+        Task found = task instanceof Epic ? manager.getAllEpics().get(task.getId())
+                : task instanceof SubTask ? manager.getAllSubTasks().get(task.getId())
+                : manager.getAllTasks().get(task.getId());
+        return (T) found;
+    }
+
+    /**
+     * Подзадача из снимка ссылается на копию эпика — перед изменением переводим её на эпик менеджера.
+     * Новый эпик, которого в менеджере ещё нет, остаётся как есть: его может создать та же пачка.
+     */
+    private static void attachToManagedEpic(InMemoryTaskManager manager, Task task) {
+        if (task instanceof SubTask subTask && subTask.getEpic() != null) {
+            Epic epic = find(manager, subTask.getEpic());
+            if (epic != null) {
+                subTask.setEpic(epic);
+            } else if (subTask.getEpic() instanceof ReadOnly) {
+                throw new IllegalArgumentException("Эпик удалён из менеджера: " + subTask.getEpic().getId());
+            }
+        }
+    }
+
+    @Override
+    public void createTask(Task task) {
+        run(manager -> manager.createTask(task));
+    }
+
+    @Override
+    public void createSubTask(SubTask subTask) {
+        run(manager -> {
+            attachToManagedEpic(manager, subTask);
+            manager.createSubTask(subTask);
+        });
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        run(manager -> manager.createEpic(epic));
+    }
+
+    @Override
+    public Map<Integer, Task> getAllTasks() {
+        return view().getAllTasks();
+    }
+
+    @Override
+    public Map<Integer, Epic> getAllEpics() {
+        return view().getAllEpics();
+    }
+
+    @Override
+    public Map<Integer, SubTask> getAllSubTasks() {
+        return view().getAllSubTasks();
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(view().getAllTasks().get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return viewed(view().getAllSubTasks().get(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(view().getAllEpics().get(id));
+    }
+
+    /**
+     * Состояние для чтения: в потоке записи — текущее состояние менеджера, в остальных — последний снимок.
+     */
+    private InMemoryTaskManager view() {
+        return Thread.currentThread() == writer ? live : snapshot;
+    }
+
+    private <T extends Task> T viewed(T task) {
+        history.addToHistory(task);
+        return task;
+    }
+
+    @Override
+    public Task getTask(String session, int id) {
+        return viewedInSession(session, view().getAllTasks().get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(String session, int id) {
+        return viewedInSession(session, view().getAllSubTasks().get(id));
+    }
+
+    @Override
+    public Epic getEpic(String session, int id) {
+        return viewedInSession(session, view().getAllEpics().get(id));
+    }
+
+    private <T extends Task> T viewedInSession(String session, T task) {
+        if (task != null) {
+            sessionHistories.record(session, task.getId());
+        }
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        run(manager -> manager.deleteTask(id));
+    }
+
+    @Override
+    public void deleteSubTask(int id) {
+        run(manager -> manager.deleteSubTask(id));
+    }
+
+    @Override
+    public void deleteAll() {
+        run(InMemoryTaskManager::deleteAll);
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        run(manager -> manager.deleteEpic(id));
+    }
+
+    @Override
+    public void updateTask(Task taskToUpdate, String newName, String newDescription, Status newStatus,
+                           String newStartTime, Long newDuration) {
+        run(manager -> manager.updateTask(managed(manager, taskToUpdate), newName, newDescription, newStatus,
+                newStartTime, newDuration));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTaskToUpdate, String newName, String newDescription, Status newStatus,
+                              String newStartTime, Long newDuration, Epic newEpic) {
+        run(manager -> manager.updateSubTask(managed(manager, subTaskToUpdate), newName, newDescription,
+                newStatus, newStartTime, newDuration, managed(manager, newEpic)));
+    }
+
+    @Override
+    public void updateEpic(Epic currentEpic, Epic updatedEpic) {
+        run(manager -> manager.updateEpic(managed(manager, currentEpic), updatedEpic));
+    }
+
+    @Override
+    public void addSubtaskToEpic(Epic epic, SubTask subTask) {
+        run(manager -> manager.addSubtaskToEpic(managed(manager, epic), managed(manager, subTask)));
+    }
+
+    /**
+     * История хранит задачи снимков; при чтении они заменяются задачами текущего снимка,
+     * а удалённые убираются из истории.
+     */
+    @Override
+    public List<Task> getHistory() {
+        return current(history.getHistory());
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(HistoryPage.Cursor cursor, int limit) {
+        HistoryPage page = history.getPage(cursor, limit);
+        return new HistoryPage(current(page.tasks()), page.next());
+    }
+
+    private List<Task> current(List<Task> viewed) {
+        InMemoryTaskManager current = view();
+        List<Task> tasks = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            Task found = current.findAnyTask(task.getId());
+            if (found == null) {
+                history.remove(task.getId());
+            } else {
+                tasks.add(found);
+            }
+        }
+        return List.copyOf(tasks);
+    }
+
+    @Override
+    public List<Task> getHistory(String session) {
+        return sessionHistories.getHistory(session, view()::findAnyTask);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return view().getPrioritizedTasks();
+    }
+
+    @Override
+    public Collection<Task> getTasksByStatus(Status status) {
+        return view().getTasksByStatus(status);
+    }
+
+    @Override
+    public Collection<SubTask> getSubTasksByStatus(Status status) {
+        return view().getSubTasksByStatus(status);
+    }
+
+    @Override
+    public Collection<Epic> getEpicsByStatus(Status status) {
+        return view().getEpicsByStatus(status);
+    }
+
+    @Override
+    public NavigableSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return view().getTasksStartingBetween(from, to);
+    }
+
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime instant) {
+        return view().getTasksActiveAt(instant);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return view().getNextTasks(after, limit);
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(LocalDateTime after, Duration duration) {
+        return view().findNextFreeSlot(after, duration);
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Epic epic, LocalDateTime after, Duration duration) {
+        InMemoryTaskManager current = view();
+        Epic copy = epic == null ? null : current.getAllEpics().get(epic.getId());
+        return current.findNextFreeSlot(copy != null ? copy : epic, after, duration);
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(LocalDateTime after, Duration duration, int count) {
+        return view().findFreeSlots(after, duration, count);
+    }
+
+    @Override
+    public void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore) {
+        run(manager -> {
+            jobs.forEach(job -> attachToManagedEpic(manager, job.task()));
+            manager.scheduleTasks(jobs, notBefore);
+        });
+    }
+
+    @Override
+    public void createAll(Collection<? extends Task> batch) {
+        run(manager -> {
+            batch.forEach(task -> attachToManagedEpic(manager, task));
+            manager.createAll(batch);
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> changes) {
+        run(manager -> {
+            changes.forEach(task -> attachToManagedEpic(manager, task));
+            manager.updateAll(changes);
+        });
+    }
+
+    /**
+     * Транзакция выполняется в потоке записи одной командой. Работа получает этот же менеджер,
+     * поэтому внутри неё чтение идёт по текущему состоянию, а изменения применяются сразу.
+     */
+    @Override
+    public void inTransaction(Consumer<? super TaskManager> work) {
+        run(manager -> manager.inTransaction(ignored -> work.accept(this)));
+    }
+}
@@ -0,0 +1,330 @@
+package management;
+
+import exceptions.ManagerSaveException;
+import task.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * История просмотров, которая дописывает каждое изменение в журнал просмотров рядом с файлом задач.
+ * Каждая строка журнала — одна операция:
+ * <pre>
+ * &lt;id&gt;   — просмотр задачи
+ * -&lt;id&gt;  — удаление задачи из истории
+ * </pre>
+ * Запись буферизуется и попадает на диск при {@link #flush()}, сворачивании или закрытии.
+ * Когда записей в журнале становится вдвое больше, чем задач в истории (но не меньше
+ * {@link #MIN_COMPACTION_SIZE}), фоновый поток переписывает журнал текущим порядком истории без повторов,
+ * поэтому его размер пропорционален истории, а не количеству просмотров. Запись просмотра при этом
+ * остаётся буферизованной дозаписью: файл целиком не переписывается в потоке, который переносит просмотры.
+ * <p>
+ * Методы синхронизированы: журнал пишется из того потока, который переносит просмотры в историю.
+ */
+public class FileBackedHistoryManager implements HistoryManager {
+    static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final InMemoryHistoryManager history = new InMemoryHistoryManager();
+    private final Path path;
+    private BufferedWriter writer;
+    private boolean loaded; // Журнал на диске относится к этой истории; иначе при первой записи он очищается
+    private int size;       // Количество записей в журнале
+    private ExecutorService compactor;
+    private Future<?> compaction;
+    private List<String> compactionTail; // Записи, сделанные во время фонового сворачивания; null — сворачивания нет
+    private volatile ManagerSaveException compactionFailure;
+
+    /**
+     * @param snapshotPath Путь к файлу задач; журнал просмотров лежит рядом с суффиксом ".history"
+     */
+    public FileBackedHistoryManager(Path snapshotPath) {
+        this.path = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".history");
+    }
+
+    @Override
+    public synchronized void addToHistory(Task task) {
+        if (task == null) {
+            return;
+        }
+        history.addToHistory(task);
+        append(Integer.toString(task.getId()));
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        if (history.contains(id)) {
+            history.remove(id);
+            append("-" + id);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Override
+    public synchronized Iterator<Task> latestFirst() {
+        return history.latestFirst();
+    }
+
+    @Override
+    public synchronized List<Task> getLatest(int limit) {
+        return history.getLatest(limit);
+    }
+
+    @Override
+    public synchronized HistoryPage getPage(HistoryPage.Cursor cursor, int limit) {
+        return history.getPage(cursor, limit);
+    }
+
+    /**
+     * Восстанавливает историю из журнала за один проход и сразу сворачивает журнал.
+     * Просмотры задач, которых больше нет, пропускаются. Недописанная последняя строка пропускается.
+     *
+     * @param lookup Поиск задачи по идентификатору
+     */
+    public synchronized void load(IntFunction<? extends Task> lookup) {
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                while (line != null) {
+                    String next = reader.readLine();
+                    if (!line.isEmpty()) {
+                        try {
+                            int id = Integer.parseInt(line);
+                            if (id < 0) {
+                                history.remove(-id);
+                            } else {
+                                history.addToHistory(lookup.apply(id));
+                            }
+                        } catch (NumberFormatException e) {
+                            if (next != null) {
+                                throw new ManagerSaveException("Неизвестная запись журнала просмотров: " + line, e);
+                            }
+                        }
+                    }
+                    line = next;
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка чтения журнала просмотров " + path, e);
+            }
+            compactNow();
+        }
+        loaded = true;
+    }
+
+    /**
+     * Дожидается начатого сворачивания и записывает на диск буферизованные записи журнала.
+     * Если журнал вырос, пока сворачивание шло, он сворачивается здесь же.
+     *
+     * @throws ManagerSaveException если фоновое сворачивание журнала завершилось ошибкой
+     */
+    public void flush() {
+        awaitCompaction();
+        synchronized (this) {
+            ManagerSaveException failure = compactionFailure;
+            if (failure != null) {
+                compactionFailure = null;
+                throw failure;
+            }
+            if (compactionTail == null && compactionDue()) {
+                compactNow();
+                return;
+            }
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Failed to write history: " + path, e);
+            }
+        }
+    }
+
+    private void awaitCompaction() {
+        Future<?> running;
+        synchronized (this) {
+            running = compaction;
+        }
+        if (running == null) {
+            return;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Failed to compact history: " + path, e.getCause());
+        }
+    }
+
+    /**
+     * Дожидается фонового сворачивания и закрывает журнал.
+     */
+    public void close() {
+        ExecutorService running;
+        synchronized (this) {
+            running = compactor;
+            compactor = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to close history: " + path, e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    /**
+     * Дописывает запись в буфер журнала. Когда журнал вырос, только ставит сворачивание в фоновый поток:
+     * перезапись файла никогда не выполняется на пути чтения задачи.
+     */
+    private void append(String record) {
+        try {
+            if (writer == null) {
+                writer = loaded
+                        ? Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                                StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                        : Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                loaded = true;
+            }
+            writer.write(record);
+            writer.newLine();
+            size++;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to append to history: " + path, e);
+        }
+        if (compactionTail != null) {
+            compactionTail.add(record);
+        } else if (compactionDue()) {
+            scheduleCompaction();
+        }
+    }
+
+    private boolean compactionDue() {
+        return size >= Math.max(MIN_COMPACTION_SIZE, history.size() * 2);
+    }
+
+    private void scheduleCompaction() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactionTail = new ArrayList<>();
+        int[] ids = historyIds();
+        compaction = compactor.submit(() -> compactInBackground(ids));
+    }
+
+    /**
+     * Пишет свёрнутый журнал во временный файл без блокировки, затем под блокировкой дописывает в него
+     * записи, появившиеся за время сворачивания, и атомарно заменяет журнал.
+     */
+    private void compactInBackground(int[] ids) {
+        Path tempPath = tempPath();
+        try {
+            writeIds(tempPath, ids);
+            synchronized (this) {
+                try (BufferedWriter tail = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8,
+                        StandardOpenOption.APPEND)) {
+                    for (String record : compactionTail) {
+                        tail.write(record);
+                        tail.newLine();
+                    }
+                }
+                closeWriter();
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                size = ids.length + compactionTail.size();
+            }
+        } catch (IOException | ManagerSaveException e) {
+            compactionFailure = e instanceof ManagerSaveException failure ? failure
+                    : new ManagerSaveException("Failed to compact history: " + path, e);
+        } finally {
+            synchronized (this) {
+                compactionTail = null;
+            }
+        }
+    }
+
+    /**
+     * Сразу заменяет журнал текущим порядком истории. Используется при загрузке, до первых просмотров.
+     */
+    private void compactNow() {
+        closeWriter();
+        int[] ids = historyIds();
+        Path tempPath = tempPath();
+        try {
+            writeIds(tempPath, ids);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to compact history: " + path, e);
+        }
+        size = ids.length;
+    }
+
+    /**
+     * Идентификаторы истории от старых просмотров к новым.
+     */
+    private int[] historyIds() {
+        int[] ids = new int[history.size()];
+        int i = ids.length;
+        for (Iterator<Task> iterator = history.latestFirst(); iterator.hasNext(); ) {
+            ids[--i] = iterator.next().getId();
+        }
+        return ids;
+    }
+
+    private Path tempPath() {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private void writeIds(Path target, int[] ids) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter compacted = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (int id : ids) {
+                compacted.write(Integer.toString(id));
+                compacted.newLine();
+            }
+        }
+    }
+}
@@ -6,20 +6,130 @@ import task.*;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     public final Path filePath;
+    private final StorageFormat format;
+    private final int compactionThreshold; // 0 — журнал отключён, каждое изменение перезаписывает файл
+    private final TaskJournal journal;
+    private final Duration flushInterval;   // null — отложенное сохранение отключено
+    private final int maxPendingChanges;    // Количество изменений, после которого сохранение не откладывается
+    private final ScheduledExecutorService writer;
+    private final FileBackedHistoryManager history; // Журнал просмотров рядом с файлом задач
+    // Direct-буфер записанного двоичного снимка для следующего сохранения; null — буфер занят или ещё не выделен
+    private final AtomicReference<ByteBuffer> spareBuffer = new AtomicReference<>();
+    private boolean loading;         // Во время загрузки изменения не сохраняются
+    private boolean journalBaseline; // Снимок на диске соответствует началу журнала
+    private boolean staleJournal;    // Журнал остался от режима журналирования и должен быть удалён при сохранении
+    private ExecutorService compactor;
+    private Future<?> compaction;
+    private int pendingChanges;                 // Изменения, ещё не записанные фоновым потоком
+    private ScheduledFuture<?> scheduledFlush;
+    private volatile ManagerSaveException writeFailure;
 
     public FileBackedTaskManager(String filePath) {
-        this.filePath = Paths.get(filePath).toAbsolutePath();
+        this(filePath, 0);
+    }
+
+    /**
+     * Создаёт менеджер в режиме журналирования: каждое изменение дописывается одной строкой
+     * в журнал рядом с файлом, а после compactionThreshold записей журнал в фоне сворачивается в новый снимок.
+     *
+     * @param filePath            Путь к файлу снимка в формате CSV
+     * @param compactionThreshold Количество записей журнала до сворачивания; 0 — журнал отключён
+     */
+    public FileBackedTaskManager(String filePath, int compactionThreshold) {
+        this(filePath, StorageFormat.CSV, compactionThreshold, null, 0);
+    }
+
+    /**
+     * Создаёт менеджер, который перезаписывает снимок в заданном формате при каждом изменении.
+     * Загрузка определяет формат файла по сигнатуре, поэтому CSV-снимок можно загрузить
+     * и дальше сохранять в двоичном формате.
+     * <p>
+     * Остальные конструкторы пишут CSV: журнал изменений состоит из строк CSV и сворачивается
+     * в CSV-снимок, а сам файл задач читают люди и экспорт. Двоичный формат выбирается явно,
+     * когда важнее скорость сохранения и загрузки больших снимков.
+     *
+     * @param filePath Путь к файлу снимка
+     * @param format   Формат файла снимка
+     */
+    public FileBackedTaskManager(String filePath, StorageFormat format) {
+        this(filePath, format, 0, null, 0);
+    }
+
+    /**
+     * Создаёт менеджер с отложенным сохранением: изменения только помечают менеджер изменённым,
+     * а фоновый поток перезаписывает файл не чаще одного раза за flushInterval
+     * или сразу после maxPendingChanges изменений. Формат файла остаётся прежним.
+     * Гарантировать запись на диск можно вызовом {@link #flush()} или {@link #close()}.
+     *
+     * @param filePath          Путь к файлу в формате CSV
+     * @param flushInterval     Максимальная задержка сохранения
+     * @param maxPendingChanges Количество изменений, после которого файл сохраняется без ожидания
+     */
+    public FileBackedTaskManager(String filePath, Duration flushInterval, int maxPendingChanges) {
+        this(filePath, StorageFormat.CSV, 0, flushInterval, maxPendingChanges);
+        if (flushInterval.isNegative() || maxPendingChanges <= 0) {
+            throw new IllegalArgumentException("Интервал сохранения и количество изменений должны быть положительными");
+        }
+    }
+
+    private FileBackedTaskManager(String filePath, StorageFormat format, int compactionThreshold,
+                                  Duration flushInterval, int maxPendingChanges) {
+        this(Paths.get(filePath).toAbsolutePath(), format, compactionThreshold, flushInterval, maxPendingChanges,
+                new FileBackedHistoryManager(Paths.get(filePath).toAbsolutePath()));
+    }
+
+    private FileBackedTaskManager(Path filePath, StorageFormat format, int compactionThreshold,
+                                  Duration flushInterval, int maxPendingChanges, FileBackedHistoryManager history) {
+        super(history);
+        if (compactionThreshold < 0) {
+            throw new IllegalArgumentException("Порог сворачивания журнала не может быть отрицательным");
+        }
+        this.filePath = filePath;
+        this.history = history;
+        this.format = format;
+        this.compactionThreshold = compactionThreshold;
+        this.journal = new TaskJournal(this.filePath);
+        this.flushInterval = flushInterval;
+        this.maxPendingChanges = maxPendingChanges;
+        this.writer = flushInterval == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-file-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private void save() {
+        if (format == StorageFormat.BINARY) {
+            writeSnapshot(takeSnapshot());
+            deleteStaleJournal();
+            return;
+        }
         try {
             Path parent = filePath.getParent();
             if (parent != null) {
@@ -30,111 +140,402 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
 
         try (BufferedWriter fileWriter = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-            fileWriter.write("id,type,name,status,description,startTime,duration,epic" + "\n");
+            fileWriter.write(CSVFormat.HEADER + "\n");
             for (Task task : getAllTasksTypes()) {
                 fileWriter.write(CSVFormat.taskToCSVString(task) + "\n");
             }
         } catch (IOException e) {
             throw new ManagerSaveException("Failed to save tasks to file: " + filePath, e);
         }
+        deleteStaleJournal();
+    }
 
+    private void deleteStaleJournal() {
+        if (staleJournal) {
+            journal.deleteAll();
+            staleJournal = false;
+        }
     }
 
-    public FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager loadManager = new FileBackedTaskManager(file.getAbsolutePath());
+    /**
+     * Сохраняет изменение: в режиме журналирования дописывает запись в журнал,
+     * иначе перезаписывает файл целиком.
+     *
+     * @param record Запись журнала, вычисляется только в режиме журналирования
+     */
+    private void persist(Supplier<String> record) {
+        persistAll(() -> List.of(record.get()));
+    }
+
+    /**
+     * То же, что {@link #persist(Supplier)}, для изменения из нескольких записей журнала:
+     * они дописываются одним пакетом и при загрузке применяются все или ни одной.
+     */
+    private void persistAll(Supplier<List<String>> records) {
+        if (loading || isInTransaction()) {
+            return;
+        }
+        if (writer != null) {
+            markDirty();
+            return;
+        }
+        if (compactionThreshold == 0) {
+            save();
+            return;
+        }
+        if (!journalBaseline) {
+            // Журнал на диске не относится к текущему состоянию — начинаем с нового снимка
+            compactNow();
+            journalBaseline = true;
+            return;
+        }
+        journal.appendAll(records.get());
+        if (journal.size() >= compactionThreshold) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Учитывает изменение для фонового сохранения. Вызывается под блокировкой менеджера.
+     */
+    private void markDirty() {
+        pendingChanges++;
+        if (pendingChanges >= maxPendingChanges) {
+            // Отменить можно только ещё не начатое сохранение; начатое дождётся блокировки и учтёт изменение
+            if (scheduledFlush == null
+                    || (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) > 0 && scheduledFlush.cancel(false))) {
+                scheduledFlush = writer.schedule(this::flushPending, 0, TimeUnit.MILLISECONDS);
+            }
+        } else if (scheduledFlush == null) {
+            scheduledFlush = writer.schedule(this::flushPending, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
 
+    /**
+     * Записывает накопленные изменения. Выполняется только в потоке writer,
+     * поэтому записи файла не пересекаются между собой.
+     */
+    private void flushPending() {
+        Snapshot snapshot;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (pendingChanges == 0) {
+                return;
+            }
+            pendingChanges = 0;
+            snapshot = takeSnapshot();
+        }
         try {
-            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i);
-                if (line.isEmpty()) {
-                    continue;
+            writeSnapshot(snapshot);
+            deleteStaleJournal();
+        } catch (ManagerSaveException e) {
+            writeFailure = e;
+        }
+    }
+
+    /**
+     * Дожидается записи на диск всех изменений и просмотров, сделанных до вызова.
+     *
+     * @throws ManagerSaveException если фоновое сохранение завершилось ошибкой
+     */
+    public void flush() {
+        drainHistory();
+        history.flush();
+        if (writer != null) {
+            try {
+                writer.submit(this::flushPending).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Прервано ожидание сохранения", e);
+            } catch (ExecutionException e) {
+                throw new ManagerSaveException("Failed to save tasks to file: " + filePath, e.getCause());
+            }
+        }
+        synchronized (this) {
+            awaitCompaction();
+        }
+        ManagerSaveException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Фиксирует текущее состояние в выбранном формате. Вызывается там, где задачи не меняются,
+     * а записать результат можно позже и в другом потоке.
+     */
+    private Snapshot takeSnapshot() {
+        if (format == StorageFormat.BINARY) {
+            ByteBuffer buffer = BinaryFormat.encode(getAllTasksTypes(), spareBuffer.getAndSet(null));
+            return path -> {
+                try {
+                    BinaryFormat.write(buffer, path);
+                } finally {
+                    spareBuffer.set(buffer); // Записанный буфер больше не нужен снимку
                 }
-                Task task = CSVFormat.taskFromString(loadManager, line);
-                if (task instanceof Epic) {
-                    loadManager.createEpic((Epic) task);
-                } else if (task instanceof SubTask) {
-                    loadManager.createSubTask((SubTask) task);
-                } else {
-                    loadManager.createTask(task);
+            };
+        }
+        List<String> rows = new ArrayList<>(getAllTasksTypes().size());
+        for (Task task : getAllTasksTypes()) {
+            rows.add(CSVFormat.taskToCSVString(task));
+        }
+        return path -> {
+            try (BufferedWriter fileWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                fileWriter.write(CSVFormat.HEADER + "\n");
+                for (String row : rows) {
+                    fileWriter.write(row + "\n");
                 }
             }
+        };
+    }
+
+    /**
+     * Атомарно заменяет файл снимка: снимок пишется во временный файл, который затем переименовывается.
+     */
+    private void writeSnapshot(Snapshot snapshot) {
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            Path parent = filePath.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            snapshot.writeTo(tempPath);
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to save tasks to file: " + filePath, e);
+        }
+    }
+
+    private void compactNow() {
+        awaitCompaction();
+        Snapshot snapshot = takeSnapshot();
+        journal.rotate();
+        writeSnapshot(snapshot);
+        journal.deleteRotated();
+    }
+
+    /**
+     * Сворачивает журнал в новый снимок в фоновом потоке. Строки снимка формируются сразу,
+     * поэтому последующие изменения попадают уже в новый журнал.
+     */
+    private void scheduleCompaction() {
+        awaitCompaction();
+        Snapshot snapshot = takeSnapshot();
+        journal.rotate();
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compaction = compactor.submit(() -> {
+            writeSnapshot(snapshot);
+            journal.deleteRotated();
+        });
+    }
+
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Прервано ожидание сворачивания журнала", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Failed to compact journal: " + filePath, e.getCause());
+        } finally {
+            compaction = null;
+        }
+    }
 
-            for (SubTask subTask : loadManager.getAllSubTasks().values()) {
-                Epic epic = subTask.getEpic();
-                if (epic != null) {
-                    Epic loadedEpic = loadManager.getAllEpics().get(epic.getId());
-                    if (loadedEpic != null) {
-                        loadManager.addSubtaskToEpic(loadedEpic, subTask);
-                    }
+    /**
+     * Сохраняет отложенные изменения, дожидается фонового сворачивания журнала и закрывает файлы.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            history.close();
+            synchronized (this) {
+                journal.close();
+                if (compactor != null) {
+                    compactor.shutdown();
+                    compactor = null;
                 }
             }
+            if (writer != null) {
+                writer.shutdown();
+            }
+        }
+    }
+
+    public FileBackedTaskManager loadFromFile(File file) {
+        if (file.toPath().toAbsolutePath().equals(filePath)) {
+            // Просмотры этого менеджера должны попасть в журнал до того, как его прочитает новый
+            drainHistory();
+            history.flush();
+        }
+        FileBackedTaskManager loadManager = new FileBackedTaskManager(file.getAbsolutePath(), format,
+                compactionThreshold, flushInterval, maxPendingChanges);
+        loadManager.loading = true;
+
+        try {
+            Path path = file.toPath();
+            loadManager.restoreAll(BinaryFormat.isBinary(path) ? BinaryFormat.readTasks(path) : CSVLoader.readTasks(path));
 
-            for (Epic epic : loadManager.getAllEpics().values()) {
-                epic.updateEpicTimes(epic);
-                epic.updateEpicStatus(epic);
+            boolean journalIntact = true;
+            if (loadManager.journal.exists()) {
+                journalIntact = loadManager.journal.replay(loadManager::applyJournalRecord);
+                loadManager.staleJournal = compactionThreshold == 0;
             }
+            // После оборванной записи журнал не дописывается: первое изменение начнёт его заново со снимка
+            loadManager.journalBaseline = journalIntact;
+            loadManager.history.load(loadManager::findAnyTask);
             return loadManager;
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        } finally {
+            loadManager.loading = false;
+        }
+    }
+
+    private void applyJournalRecord(String record) {
+        int comma = record.indexOf(',');
+        String operation = comma < 0 ? record : record.substring(0, comma);
+        switch (operation) {
+            case "PUT" -> restoreTask(CSVFormat.taskFromString(this, record.substring(comma + 1)));
+            case "DEL" -> {
+                int taskId = Integer.parseInt(record.substring(comma + 1));
+                if (getAllTasks().containsKey(taskId)) {
+                    deleteTask(taskId);
+                } else if (getAllSubTasks().containsKey(taskId)) {
+                    deleteSubTask(taskId);
+                } else {
+                    deleteEpic(taskId);
+                }
+            }
+            case "CLEAR" -> deleteAll();
+            default -> throw new ManagerSaveException("Неизвестная запись журнала: " + record, null);
         }
     }
 
     @Override
-    public void createTask(Task task) {
+    public synchronized void createTask(Task task) {
         super.createTask(task);
-        save();
+        persist(() -> TaskJournal.put(task));
     }
 
     @Override
-    public void createSubTask(SubTask subTask) {
+    public synchronized void createSubTask(SubTask subTask) {
         super.createSubTask(subTask);
-        save();
+        persist(() -> TaskJournal.put(subTask));
     }
 
     @Override
-    public void createEpic(Epic epic) {
+    public synchronized void createEpic(Epic epic) {
         super.createEpic(epic);
-        save();
+        persist(() -> TaskJournal.put(epic));
+    }
+
+    @Override
+    public synchronized void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore) {
+        super.scheduleTasks(jobs, notBefore);
+        if (jobs.isEmpty()) {
+            return;
+        }
+        persistAll(() -> jobs.stream()
+                .map(job -> TaskJournal.put(job.task()))
+                .toList());
+    }
+
+    @Override
+    public synchronized void createAll(Collection<? extends Task> batch) {
+        super.createAll(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Эпики записываются первыми, чтобы при чтении журнала подзадачи пакета находили свой эпик
+        persistAll(() -> batch.stream()
+                .sorted(Comparator.comparing(task -> !(task instanceof Epic)))
+                .map(TaskJournal::put)
+                .toList());
     }
 
+    /**
+     * Записывает обновлённые задачи менеджера, а не переданные копии: у эпика из пакета
+     * берутся только название и описание.
+     */
     @Override
-    public void deleteTask(int id) {
+    public synchronized void updateAll(Collection<? extends Task> changes) {
+        super.updateAll(changes);
+        if (changes.isEmpty()) {
+            return;
+        }
+        persistAll(() -> changes.stream()
+                .map(change -> change instanceof Epic ? getAllEpics().get(change.getId())
+                        : change instanceof SubTask ? getAllSubTasks().get(change.getId())
+                        : getAllTasks().get(change.getId()))
+                .map(TaskJournal::put)
+                .toList());
+    }
+
+    /**
+     * Изменения транзакции сохраняются одной записью при фиксации; отменённая транзакция ничего не пишет.
+     */
+    @Override
+    public synchronized void inTransaction(Consumer<? super TaskManager> work) {
+        super.inTransaction(work);
+    }
+
+    @Override
+    protected void transactionCommitted(List<Task> saved, List<Integer> deleted) {
+        if (saved.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        persistAll(() -> Stream.concat(deleted.stream().map(TaskJournal::delete), saved.stream().map(TaskJournal::put))
+                .toList());
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
         super.deleteTask(id);
-        save();
+        persist(() -> TaskJournal.delete(id));
     }
 
     @Override
-    public void deleteSubTask(int id) {
+    public synchronized void deleteSubTask(int id) {
         super.deleteSubTask(id);
-        save();
+        persist(() -> TaskJournal.delete(id));
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
         super.deleteEpic(id);
-        save();
+        persist(() -> TaskJournal.delete(id));
     }
 
     @Override
-    public void deleteAll() {
+    public synchronized void deleteAll() {
         super.deleteAll();
-        save();
+        persist(TaskJournal::clear);
     }
 
     @Override
-    public void updateTask(Task taskToUpdate,
+    public synchronized void updateTask(Task taskToUpdate,
                            String newName,          // null = не обновлять
                            String newDescription,   // null = не обновлять
                            Status newStatus,        // null = не обновлять
                            String newStartTime, // null = не обновлять
                            Long newDuration) {
         super.updateTask(taskToUpdate, newName, newDescription, newStatus, newStartTime, newDuration);
-        save();
+        persist(() -> TaskJournal.put(taskToUpdate));
     }
 
     @Override
-    public void updateSubTask(SubTask subTaskToUpdate,
+    public synchronized void updateSubTask(SubTask subTaskToUpdate,
                               String newName,          // null = не обновлять
                               String newDescription,   // null = не обновлять
                               Status newStatus,        // null = не обновлять
@@ -142,19 +543,25 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                               Long newDuration,
                               Epic newEpic) {
         super.updateSubTask(subTaskToUpdate, newName, newDescription, newStatus, newStartTime, newDuration, newEpic);
-        save();
+        persist(() -> TaskJournal.put(subTaskToUpdate));
     }
 
     @Override
-    public void updateEpic(Epic currentEpic, Epic updatedEpic) {
+    public synchronized void updateEpic(Epic currentEpic, Epic updatedEpic) {
         super.updateEpic(currentEpic, updatedEpic);
-        save();
+        persist(() -> TaskJournal.put(currentEpic));
     }
 
     @Override
-    public void addSubtaskToEpic(Epic epic, SubTask subTask) {
+    public synchronized void addSubtaskToEpic(Epic epic, SubTask subTask) {
         super.addSubtaskToEpic(epic, subTask);
-        save();
+        persist(() -> TaskJournal.put(subTask));
     }
 
+    /**
+     * Состояние менеджера, зафиксированное под блокировкой и записываемое в файл вне её.
+     */
+    private interface Snapshot {
+        void writeTo(Path path) throws IOException;
+    }
 }
@@ -2,6 +2,7 @@ package management;
 
 import task.Task;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface HistoryManager {
@@ -9,4 +10,28 @@ public interface HistoryManager {
     List<Task> getHistory();
 
     void addToHistory(Task task);
+
+    /**
+     * Удаляет задачу из истории, если она там есть.
+     */
+    void remove(int id);
+
+    /**
+     * Обходит историю от последнего просмотра к первому без копирования.
+     * Итератор быстро отказывает ({@link java.util.ConcurrentModificationException}), если историю изменили во время обхода.
+     */
+    Iterator<Task> latestFirst();
+
+    /**
+     * Возвращает не больше limit последних просмотренных задач, от новых к старым.
+     */
+    List<Task> getLatest(int limit);
+
+    /**
+     * Возвращает страницу истории от новых к старым.
+     *
+     * @param cursor Курсор из предыдущей страницы; null — первая страница
+     * @param limit  Максимальное количество задач на странице
+     */
+    HistoryPage getPage(HistoryPage.Cursor cursor, int limit);
 }
@@ -0,0 +1,22 @@
+package management;
+
+import task.Task;
+
+import java.util.List;
+
+/**
+ * Страница истории просмотров, от новых к старым.
+ *
+ * @param tasks Задачи страницы
+ * @param next  Курсор следующей страницы; null, если страница последняя
+ */
+public record HistoryPage(List<Task> tasks, Cursor next) {
+
+    /**
+     * Позиция в истории: следующая страница начинается после просмотра задачи afterId с порядковым номером sequence.
+     * Просмотры других задач курсор не сбивают. Если этот просмотр вытеснен, удалён или задачу просмотрели снова,
+     * страница начинается с первого более старого просмотра.
+     */
+    public record Cursor(int afterId, long sequence) {
+    }
+}
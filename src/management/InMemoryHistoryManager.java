@@ -3,14 +3,46 @@ package management;
 import task.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 
+/**
+ * История просмотров задач: двусвязный список от старых просмотров к новым и индекс узлов по id задачи.
+ * Повторный просмотр переносит узел задачи в конец списка без выделения памяти.
+ * <p>
+ * При заданной вместимости самый старый просмотр вытесняется за O(1), а его узел используется
+ * для нового просмотра. Узлы удалённых записей складываются в список свободных узлов и тоже
+ * используются повторно, поэтому при постоянном потоке просмотров память не растёт.
+ */
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> history = new HashMap<>();
+    private final IntMap<Node> history;
+    private final int capacity; // Integer.MAX_VALUE — без ограничения
     private Node head;
     private Node tail;
+    private Node free; // Свободные узлы, связанные через next
+    private int version; // Номер изменения порядка истории: для быстрого отказа итераторов
+    private long sequence; // Порядковый номер последнего просмотра
+
+    public InMemoryHistoryManager() {
+        this.capacity = Integer.MAX_VALUE;
+        this.history = new IntMap<>();
+    }
+
+    /**
+     * Создаёт историю, которая хранит не больше capacity последних просмотренных задач.
+     *
+     * @param capacity Максимальное количество задач в истории
+     */
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        this.capacity = capacity;
+        this.history = new IntMap<>(capacity);
+    }
 
     @Override
     public List<Task> getHistory() {
@@ -22,31 +54,162 @@ public class InMemoryHistoryManager implements HistoryManager {
         if (task == null) {
             return;
         }
-        remove(task.getId());
-        linkLast(task);
-        history.put(task.getId(), tail);
+        Node node = history.get(task.getId());
+        if (node != null) {
+            // Повторный просмотр: переносим существующий узел в конец
+            node.task = task;
+            if (node != tail) {
+                removeNode(node);
+                linkLast(node);
+                version++;
+            }
+            return;
+        }
+        if (history.size() >= capacity) {
+            node = head;
+            removeNode(node);
+            history.remove(node.task.getId());
+        } else {
+            node = allocate();
+        }
+        node.task = task;
+        linkLast(node);
+        history.put(task.getId(), node);
+        version++;
     }
 
+    @Override
     public void remove(int id) {
-        Node node = history.get(id);
+        Node node = history.remove(id);
         if (node != null) {
             removeNode(node);
-            history.remove(id);
+            release(node);
+            version++;
+        }
+    }
+
+    @Override
+    public Iterator<Task> latestFirst() {
+        return new Iterator<>() {
+            private Node next = tail;
+            private final int expected = version;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (version != expected) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next.task;
+                next = next.prev;
+                return task;
+            }
+        };
+    }
+
+    /**
+     * Копирует только запрошенные задачи: O(limit) вместо O(размер истории).
+     */
+    @Override
+    public List<Task> getLatest(int limit) {
+        return collect(tail, limit);
+    }
+
+    /**
+     * Следующая страница находится по индексу узлов за O(1), без прохода по предыдущим страницам:
+     * узел задачи курсора с тем же порядковым номером всё ещё стоит на своём месте в списке.
+     * Только если этого просмотра больше нет, список проходится с конца до первого более старого просмотра.
+     */
+    @Override
+    public HistoryPage getPage(HistoryPage.Cursor cursor, int limit) {
+        checkLimit(limit);
+        Node start = tail;
+        if (cursor != null) {
+            Node after = history.get(cursor.afterId());
+            if (after != null && after.sequence == cursor.sequence()) {
+                start = after.prev;
+            } else {
+                while (start != null && start.sequence >= cursor.sequence()) {
+                    start = start.prev;
+                }
+            }
+        }
+        List<Task> tasks = new ArrayList<>(Math.min(limit, history.size()));
+        Node last = null;
+        for (Node current = start; current != null && tasks.size() < limit; current = current.prev) {
+            tasks.add(current.task);
+            last = current;
+        }
+        boolean hasMore = last != null && last.prev != null;
+        return new HistoryPage(Collections.unmodifiableList(tasks),
+                hasMore ? new HistoryPage.Cursor(last.task.getId(), last.sequence) : null);
+    }
+
+    private List<Task> collect(Node from, int limit) {
+        checkLimit(limit);
+        List<Task> tasks = new ArrayList<>(Math.min(limit, history.size()));
+        for (Node current = from; current != null && tasks.size() < limit; current = current.prev) {
+            tasks.add(current.task);
+        }
+        return Collections.unmodifiableList(tasks);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
         }
     }
 
-    private void linkLast(Task task) {
-        final Node newNode = new Node(task, tail, null);
+    public boolean contains(int id) {
+        return history.containsKey(id);
+    }
+
+    public int size() {
+        return history.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private Node allocate() {
+        if (free == null) {
+            return new Node(null, null, null);
+        }
+        Node node = free;
+        free = node.next;
+        node.next = null;
+        return node;
+    }
+
+    private void release(Node node) {
+        node.task = null;
+        node.prev = null;
+        node.next = free;
+        free = node;
+    }
+
+    private void linkLast(Node node) {
+        node.sequence = ++sequence;
+        node.prev = tail;
+        node.next = null;
         if (tail == null) {
-            head = newNode;
+            head = node;
         } else {
-            tail.next = newNode;
+            tail.next = node;
         }
-        tail = newNode;
+        tail = node;
     }
 
     private List<Task> getTasks() {
-        List<Task> tasks = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>(history.size());
         Node current = tail;
         while (current != null) {
             tasks.add(current.task);
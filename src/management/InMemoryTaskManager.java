@@ -1,5 +1,6 @@
 package management;
 
+import exceptions.BatchOverlapException;
 import exceptions.TaskOverlapException;
 import task.Epic;
 import task.Status;
@@ -10,19 +11,44 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class InMemoryTaskManager implements TaskManager {
+    static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    static final int SESSION_HISTORY_SIZE = 100;
     private int id = 0; // Счетчик для генерации уникальных идентификаторов задач
-    private final HashMap<Integer, Task> tasks = new HashMap<>();      // Обычные задачи
-    private final HashMap<Integer, Epic> epics = new HashMap<>();     // Эпики
-    private final HashMap<Integer, SubTask> subTasks = new HashMap<>(); // Подзадачи
+    // Задачи по идентификатору; поиск не упаковывает id и не создаёт объектов
+    private final IntMap<Task> tasks = new IntMap<>();      // Обычные задачи
+    private final IntMap<Epic> epics = new IntMap<>();     // Эпики
+    private final IntMap<SubTask> subTasks = new IntMap<>(); // Подзадачи
     private final TreeSet<Task> prioritizedTasks = new TreeSet<>(
             Comparator.comparing(
                     Task::getStartTime,
                     Comparator.nullsLast(Comparator.naturalOrder()) // null идёт в конец
             ).thenComparing(Task::getId) // при одинаковом времени сортируем по ID
     );
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex(); // Индекс интервалов для проверки пересечений
+    private final StatusIndex<Task> taskStatuses = new StatusIndex<>();       // Индексы задач по статусу
+    private final StatusIndex<SubTask> subTaskStatuses = new StatusIndex<>();
+    private final StatusIndex<Epic> epicStatuses = new StatusIndex<>();
+    // Просмотры пишутся в буфер без блокировок и переносятся в историю при её чтении
+    private final BufferedHistoryManager historyManager;
+    private final SessionHistories sessionHistories = new SessionHistories(SESSION_IDLE_TIMEOUT, SESSION_HISTORY_SIZE);
+    // Статус и длительность эпика пересчитывает вызывающий код (см. ConcurrentTaskManager с блокировками по эпикам)
+    boolean deferEpicAggregates = false;
+    private Transaction transaction; // Открытая транзакция, null — изменения применяются сразу
+
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * @param history История, в которую переносятся просмотры задач
+     */
+    protected InMemoryTaskManager(HistoryManager history) {
+        this.historyManager = new BufferedHistoryManager(history);
+    }
 
     /**
      * Генерирует уникальный идентификатор для задачи.
@@ -44,10 +70,237 @@ public class InMemoryTaskManager implements TaskManager {
         if (isExecutionOverlapInprioritizedTasks(task)) {
             throw new TaskOverlapException();
         }
+        touch(task);
         int taskId = generateId();
         task.setId(taskId);
         tasks.put(taskId, task);
-        prioritizedTasks.add(task);
+        taskStatuses.add(task);
+        addToSchedule(task);
+    }
+
+    /**
+     * Создаёт пакет задач любых типов за один проход: пересечения ищутся одной сканирующей прямой
+     * по пакету и существующему расписанию, каждый затронутый эпик пересчитывается один раз.
+     * Пакет принимается целиком или отклоняется целиком. Эпик подзадачи должен быть в менеджере
+     * или в этом же пакете. Интервалы эпиков пакета, как и при создании по одной, не проверяются.
+     *
+     * @param batch Новые задачи; идентификаторы назначаются в порядке пакета
+     * @throws BatchOverlapException если время задач пересекается, со списком всех пар
+     */
+    @Override
+    public void createAll(Collection<? extends Task> batch) {
+        List<Task> items = new ArrayList<>(batch);
+        Map<Task, Integer> keys = new IdentityHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (keys.put(items.get(i), -(i + 1)) != null) {
+                throw new IllegalArgumentException("Задача '" + items.get(i).getName() + "' встречается в пакете дважды");
+            }
+        }
+        ConflictSweep sweep = new ConflictSweep();
+        for (Task task : items) {
+            if (task instanceof Epic) {
+                continue;
+            }
+            int epicKey = 0;
+            if (task instanceof SubTask subTask) {
+                Epic epic = subTask.getEpic();
+                Integer batchKey = epic == null ? null : keys.get(epic);
+                if (batchKey != null) {
+                    epicKey = batchKey;
+                } else if (epic != null && epics.get(epic.getId()) == epic) {
+                    epicKey = epic.getId();
+                } else {
+                    throw new IllegalArgumentException("Эпик подзадачи '" + task.getName() + "' не найден");
+                }
+            }
+            sweep.addBatch(task, keys.get(task), epicKey, task.getStartTime(), task.getEndTime());
+        }
+        checkBatchConflicts(sweep, Set.of());
+
+        for (Task task : items) {
+            touch(task);
+            int taskId = generateId();
+            task.setId(taskId);
+            if (task instanceof Epic epic) {
+                epics.put(taskId, epic);
+                epicStatuses.add(epic);
+            } else if (task instanceof SubTask subTask) {
+                subTasks.put(taskId, subTask);
+                subTaskStatuses.add(subTask);
+            } else {
+                tasks.put(taskId, task);
+                taskStatuses.add(task);
+            }
+            addToSchedule(task);
+        }
+        Set<Epic> touchedEpics = new LinkedHashSet<>();
+        for (Task task : items) {
+            if (task instanceof SubTask subTask) {
+                subTask.getEpic().setPrioritizedSubTasks(subTask);
+                touchedEpics.add(subTask.getEpic());
+            }
+        }
+        refreshEpics(touchedEpics);
+    }
+
+    /**
+     * Обновляет пакет существующих задач за один проход. Каждый элемент пакета — задача с идентификатором
+     * существующей задачи того же типа и новыми значениями полей. У эпика обновляются только название
+     * и описание; подзадачу можно перенести в другой эпик менеджера. Пересечения проверяются так же,
+     * как в {@link #createAll(Collection)}, с учётом новых интервалов, и пакет применяется целиком или никак.
+     *
+     * @param changes Новые значения задач
+     * @throws BatchOverlapException если новое время задач пересекается, со списком всех пар
+     */
+    @Override
+    public void updateAll(Collection<? extends Task> changes) {
+        List<Task> targets = new ArrayList<>(changes.size());
+        List<Epic> targetEpics = new ArrayList<>(changes.size());
+        Set<Integer> changedIds = new HashSet<>();
+        Set<Integer> replaced = new HashSet<>();
+        ConflictSweep sweep = new ConflictSweep();
+        for (Task change : changes) {
+            int changeId = change.getId();
+            Task target = change instanceof Epic ? epics.get(changeId)
+                    : change instanceof SubTask ? subTasks.get(changeId) : tasks.get(changeId);
+            if (target == null) {
+                throw new IllegalArgumentException("Задача с ID " + changeId + " не найдена");
+            }
+            if (!changedIds.add(changeId)) {
+                throw new IllegalArgumentException("Задача с ID " + changeId + " встречается в пакете дважды");
+            }
+            Epic targetEpic = null;
+            if (change instanceof SubTask subTask) {
+                targetEpic = subTask.getEpic() == null ? ((SubTask) target).getEpic() : epics.get(subTask.getEpic().getId());
+                if (targetEpic == null) {
+                    throw new IllegalArgumentException("Эпик подзадачи с ID " + changeId + " не найден");
+                }
+            }
+            if (targetEpic != null) {
+                // Интервал эпика пересчитается после пакета, старый интервал в проверке не участвует
+                replaced.add(targetEpic.getId());
+                replaced.add(((SubTask) target).getEpic().getId());
+            }
+            targets.add(target);
+            targetEpics.add(targetEpic);
+            if (!(change instanceof Epic)) {
+                sweep.addBatch(change, changeId, targetEpic == null ? 0 : targetEpic.getId(),
+                        change.getStartTime(), change.getEndTime());
+            }
+        }
+        replaced.addAll(changedIds);
+        checkBatchConflicts(sweep, replaced);
+
+        Set<Epic> touchedEpics = new LinkedHashSet<>();
+        int index = 0;
+        for (Task change : changes) {
+            Task target = targets.get(index);
+            Epic targetEpic = targetEpics.get(index++);
+            touch(target);
+            target.setName(change.getName());
+            target.setDescription(change.getDescription());
+            if (target instanceof Epic) {
+                continue;
+            }
+            if (target instanceof SubTask subTask) {
+                subTask.getEpic().deletePrioritizedSubTasks(subTask);
+                touchedEpics.add(subTask.getEpic());
+                subTaskStatuses.remove(subTask);
+            } else {
+                taskStatuses.remove(target);
+            }
+            removeFromSchedule(target);
+            target.setStatus(change.getStatus());
+            target.setStartTime(change.getStartTime());
+            target.setDuration(durationOf(change));
+            addToSchedule(target);
+            if (target instanceof SubTask subTask) {
+                subTask.setEpic(targetEpic);
+                targetEpic.setPrioritizedSubTasks(subTask);
+                touchedEpics.add(targetEpic);
+                subTaskStatuses.add(subTask);
+            } else {
+                taskStatuses.add(target);
+            }
+        }
+        refreshEpics(touchedEpics);
+    }
+
+    private static Duration durationOf(Task task) {
+        try {
+            return task.getDuration();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ищет пересечения пакета с существующими задачами в границах пакета, кроме задач с идентификаторами из replaced.
+     */
+    private void checkBatchConflicts(ConflictSweep sweep, Set<Integer> replaced) {
+        if (transaction != null) {
+            return; // Проверяется итоговое состояние при фиксации транзакции
+        }
+        if (sweep.batchStart() != null) {
+            for (Task task : scheduleIndex.overlaps(sweep.batchStart(), sweep.batchEnd())) {
+                if (!replaced.contains(task.getId())) {
+                    sweep.addExisting(task);
+                }
+            }
+        }
+        List<BatchOverlapException.Conflict> conflicts = sweep.conflicts();
+        if (!conflicts.isEmpty()) {
+            throw new BatchOverlapException(conflicts);
+        }
+    }
+
+    /**
+     * Пересчитывает эпики после массового изменения, включая статус и длительность,
+     * даже если их пересчёт обычно выполняет вызывающий код.
+     */
+    private void refreshEpics(Collection<Epic> touchedEpics) {
+        if (transaction != null) {
+            touchedEpics.forEach(transaction::deferEpic);
+            return;
+        }
+        for (Epic epic : touchedEpics) {
+            refreshEpic(epic);
+            if (deferEpicAggregates) {
+                indexEpicStatus(epic, refreshEpicAggregates(epic));
+            }
+        }
+    }
+
+    /**
+     * Назначает время начала пакету новых обычных задач и добавляет их одной массовой вставкой.
+     * Задачи раскладываются по свободным промежуткам расписания так, чтобы не пересекаться
+     * ни с существующими задачами (включая интервалы эпиков), ни друг с другом.
+     * Длительность каждой задачи сохраняется, время начала перезаписывается.
+     *
+     * @param jobs      Задачи с приоритетом и ограничением на самое раннее начало
+     * @param notBefore Время, раньше которого задачи не размещаются
+     */
+    @Override
+    public void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore) {
+        for (TaskScheduler.Job job : jobs) {
+            Task task = job.task();
+            if (task instanceof Epic || task instanceof SubTask) {
+                throw new IllegalArgumentException("Планировать можно только обычные задачи");
+            }
+            if (task.getDuration().isZero() || task.getDuration().isNegative()) {
+                throw new IllegalArgumentException("Длительность задачи должна быть положительной");
+            }
+            touch(task);
+        }
+        new TaskScheduler(prioritizedTasks, notBefore).scheduleAll(jobs, notBefore);
+        for (TaskScheduler.Job job : jobs) {
+            Task task = job.task();
+            int taskId = generateId();
+            task.setId(taskId);
+            tasks.put(taskId, task);
+            taskStatuses.add(task);
+            addToSchedule(task);
+        }
     }
 
     /**
@@ -60,14 +313,15 @@ public class InMemoryTaskManager implements TaskManager {
         if (isExecutionOverlapInprioritizedTasks(subTask)) {
             throw new TaskOverlapException();
         }
+        touch(subTask);
         int subTaskId = generateId();
         subTask.setId(subTaskId);
         subTasks.put(subTaskId, subTask);
-        prioritizedTasks.add(subTask);
+        subTaskStatuses.add(subTask);
+        addToSchedule(subTask);
         Epic epic = subTask.getEpic();
-        epic.getPrioritizedSubTasks().add(subTask);
-        epic.updateEpicStatus(epic);
-        epic.updateEpicTimes(epic);
+        epic.setPrioritizedSubTasks(subTask);
+        refreshEpic(epic);
     }
 
     /**
@@ -80,44 +334,300 @@ public class InMemoryTaskManager implements TaskManager {
         if (isExecutionOverlapInprioritizedTasks(epic)) {
             throw new TaskOverlapException();
         }
+        touch(epic);
         int epicId = generateId();
         epic.setId(epicId);
         epics.put(epicId, epic);
-        prioritizedTasks.add(epic);
+        epicStatuses.add(epic);
+        addToSchedule(epic);
+    }
+
+    /**
+     * Восстанавливает задачу любого типа с её исходным идентификатором без проверки пересечений.
+     * Если задача с таким идентификатором уже есть, она заменяется; у эпика обновляются только
+     * название и описание, так как статус и время вычисляются по подзадачам.
+     * Используется при загрузке из файла.
+     *
+     * @param task Задача для восстановления
+     */
+    protected void restoreTask(Task task) {
+        int taskId = task.getId();
+        if (task instanceof Epic epic) {
+            Epic existing = epics.get(taskId);
+            if (existing != null) {
+                updateEpic(existing, epic);
+            } else {
+                epics.put(taskId, epic);
+                epicStatuses.add(epic);
+                addToSchedule(epic);
+            }
+        } else if (task instanceof SubTask subTask) {
+            SubTask existing = subTasks.remove(taskId);
+            if (existing != null) {
+                existing.getEpic().deletePrioritizedSubTasks(existing);
+                subTaskStatuses.remove(existing);
+                removeFromSchedule(existing);
+                refreshEpic(existing.getEpic());
+            }
+            subTasks.put(taskId, subTask);
+            subTaskStatuses.add(subTask);
+            addToSchedule(subTask);
+            Epic epic = subTask.getEpic();
+            epic.setPrioritizedSubTasks(subTask);
+            refreshEpic(epic);
+        } else {
+            Task existing = tasks.remove(taskId);
+            if (existing != null) {
+                taskStatuses.remove(existing);
+                removeFromSchedule(existing);
+            }
+            tasks.put(taskId, task);
+            taskStatuses.add(task);
+            addToSchedule(task);
+        }
+        id = Math.max(id, taskId);
+    }
+
+    /**
+     * Массово восстанавливает задачи с их исходными идентификаторами в пустые коллекции менеджера.
+     * В отличие от {@link #restoreTask(Task)} не проверяет пересечения и не заменяет существующие задачи,
+     * а статус и время каждого затронутого эпика пересчитываются один раз в конце.
+     * Эпики, на которые ссылаются подзадачи, должны быть восстановлены раньше или входить в тот же набор.
+     *
+     * @param restored Задачи для восстановления
+     */
+    protected void restoreAll(Collection<? extends Task> restored) {
+        Set<Epic> touchedEpics = new HashSet<>();
+        for (Task task : restored) {
+            int taskId = task.getId();
+            if (task instanceof Epic epic) {
+                epics.put(taskId, epic);
+                epicStatuses.add(epic);
+                touchedEpics.add(epic);
+            } else if (task instanceof SubTask subTask) {
+                subTasks.put(taskId, subTask);
+                subTaskStatuses.add(subTask);
+                addToSchedule(subTask);
+                Epic epic = subTask.getEpic();
+                epic.setPrioritizedSubTasks(subTask);
+                touchedEpics.add(epic);
+            } else {
+                tasks.put(taskId, task);
+                taskStatuses.add(task);
+                addToSchedule(task);
+            }
+            id = Math.max(id, taskId);
+        }
+        for (Epic epic : touchedEpics) {
+            refreshEpic(epic);
+        }
+    }
+
+    /**
+     * Заполняет пустой менеджер уже собранными задачами: эпики должны содержать свои подзадачи,
+     * а их статус и время — быть посчитаны. В отличие от {@link #restoreAll(Collection)} задачи
+     * не изменяются, поэтому так можно собрать менеджер из копий только для чтения.
+     *
+     * @param restored Эпики, подзадачи и задачи в любом порядке
+     */
+    void restoreBuilt(Collection<? extends Task> restored) {
+        for (Task task : restored) {
+            int taskId = task.getId();
+            if (task instanceof Epic epic) {
+                epics.put(taskId, epic);
+                epicStatuses.add(epic);
+            } else if (task instanceof SubTask subTask) {
+                subTasks.put(taskId, subTask);
+                subTaskStatuses.add(subTask);
+            } else {
+                tasks.put(taskId, task);
+                taskStatuses.add(task);
+            }
+            addToSchedule(task);
+            id = Math.max(id, taskId);
+        }
+    }
+
+    /**
+     * Возвращает задачи в указанном статусе без обхода всех задач.
+     *
+     * @param status Статус
+     * @return Представление только для чтения, которое отражает последующие изменения
+     */
+    @Override
+    public Collection<Task> getTasksByStatus(Status status) {
+        return taskStatuses.get(status);
+    }
+
+    /**
+     * Возвращает подзадачи в указанном статусе без обхода всех подзадач.
+     *
+     * @param status Статус
+     * @return Представление только для чтения, которое отражает последующие изменения
+     */
+    @Override
+    public Collection<SubTask> getSubTasksByStatus(Status status) {
+        return subTaskStatuses.get(status);
+    }
+
+    /**
+     * Возвращает эпики в указанном статусе без обхода всех эпиков.
+     *
+     * @param status Статус
+     * @return Представление только для чтения, которое отражает последующие изменения
+     */
+    @Override
+    public Collection<Epic> getEpicsByStatus(Status status) {
+        return epicStatuses.get(status);
+    }
+
+    /**
+     * Возвращает задачи всех типов, которые начинаются в интервале [from, to), в порядке времени начала.
+     * Выборка выполняется навигацией по отсортированному индексу за O(log n).
+     *
+     * @return Представление только для чтения, которое отражает последующие изменения
+     */
+    @Override
+    public NavigableSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyNavigableSet();
+        }
+        return Collections.unmodifiableNavigableSet(
+                prioritizedTasks.subSet(timeProbe(from), true, timeProbe(to), false));
+    }
+
+    /**
+     * Возвращает задачи всех типов, которые выполняются в указанный момент (начало &lt;= instant &lt; окончание),
+     * в порядке времени начала. Поиск идёт по индексу интервалов за O(log n + k).
+     */
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime instant) {
+        return Collections.unmodifiableList(scheduleIndex.overlaps(instant, instant.plusNanos(1)));
+    }
+
+    /**
+     * Возвращает не больше limit ближайших задач всех типов, которые начинаются не раньше указанного времени.
+     */
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество задач не может быть отрицательным");
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        for (Task task : prioritizedTasks.tailSet(timeProbe(after), true)) {
+            if (result.size() == limit || task.getStartTime() == null) {
+                break;
+            }
+            result.add(task);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Находит самое раннее время начала не раньше after, в которое можно создать задачу заданной длительности
+     * без пересечений. Учитываются те же правила, что и при создании задачи.
+     *
+     * @param after    Время, не раньше которого ищется окно
+     * @param duration Длительность задачи
+     * @return Время начала свободного окна
+     */
+    @Override
+    public LocalDateTime findNextFreeSlot(LocalDateTime after, Duration duration) {
+        return findNextFreeSlot(null, after, duration);
+    }
+
+    /**
+     * Находит самое раннее время начала для новой подзадачи эпика: интервал самого эпика
+     * ей не мешает, как и при создании подзадачи.
+     *
+     * @param epic Эпик будущей подзадачи; null — окно для обычной задачи
+     */
+    @Override
+    public LocalDateTime findNextFreeSlot(Epic epic, LocalDateTime after, Duration duration) {
+        return scheduleIndex.findFreeSlot(after, duration, ScheduleIndex.exclusionsFor(slotProbe(epic)));
+    }
+
+    /**
+     * Находит count непересекающихся свободных окон заданной длительности, начиная с after, в порядке времени.
+     */
+    @Override
+    public List<LocalDateTime> findFreeSlots(LocalDateTime after, Duration duration, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество окон не может быть отрицательным");
+        }
+        Predicate<Task> skip = ScheduleIndex.exclusionsFor(slotProbe(null));
+        List<LocalDateTime> slots = new ArrayList<>(count);
+        LocalDateTime from = after;
+        for (int i = 0; i < count; i++) {
+            LocalDateTime slot = scheduleIndex.findFreeSlot(from, duration, skip);
+            slots.add(slot);
+            from = slot.plus(duration);
+        }
+        return slots;
+    }
+
+    /**
+     * Задача, от имени которой ищется свободное окно. Её идентификатор не совпадает ни с одной задачей менеджера.
+     */
+    private static Task slotProbe(Epic epic) {
+        Task probe = epic == null ? new Task("", "") : new SubTask("", "", epic);
+        probe.setId(Integer.MIN_VALUE);
+        return probe;
+    }
+
+    /**
+     * Ключ для навигации по prioritizedTasks: меньше любой задачи с тем же временем начала.
+     */
+    private static Task timeProbe(LocalDateTime time) {
+        Task probe = new Task("", "");
+        probe.setStartTime(time);
+        probe.setId(Integer.MIN_VALUE);
+        return probe;
     }
 
     public TreeSet<Task> getAllTasksTypes() {
         return prioritizedTasks;
     }
 
+    /**
+     * Возвращает копию списка всех задач, отсортированного по времени начала.
+     */
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return new ArrayList<>(prioritizedTasks);
+    }
+
     /**
      * Возвращает строковое представление всех задач.
+     * Представление только для чтения, которое отражает последующие изменения.
      *
      * @return Строка, содержащая информацию о всех задачах
      */
     @Override
-    public HashMap<Integer, Task> getAllTasks() {
-        return tasks;
+    public Map<Integer, Task> getAllTasks() {
+        return tasks.asMap();
     }
 
     /**
      * Возвращает строковое представление всех подзадач.
+     * Представление только для чтения, которое отражает последующие изменения.
      *
      * @return Строка, содержащая информацию о всех эпиках
      */
     @Override
-    public HashMap<Integer, SubTask> getAllSubTasks() {
-        return subTasks;
+    public Map<Integer, SubTask> getAllSubTasks() {
+        return subTasks.asMap();
     }
 
     /**
      * Возвращает строковое представление всех эпиков.
+     * Представление только для чтения, которое отражает последующие изменения.
      *
      * @return Строка, содержащая информацию о всех эпиках
      */
     @Override
-    public HashMap<Integer, Epic> getAllEpics() {
-        return epics;
+    public Map<Integer, Epic> getAllEpics() {
+        return epics.asMap();
     }
 
     /**
@@ -127,7 +637,9 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public Task getTask(int id) {
-        return tasks.get(id);
+        Task task = tasks.get(id);
+        recordView(task);
+        return task;
     }
 
     /**
@@ -137,7 +649,9 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public SubTask getSubTask(int id) {
-        return subTasks.get(id);
+        SubTask subTask = subTasks.get(id);
+        recordView(subTask);
+        return subTask;
     }
 
     /**
@@ -147,7 +661,57 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public Epic getEpic(int id) {
-        return epics.get(id);
+        Epic epic = epics.get(id);
+        recordView(epic);
+        return epic;
+    }
+
+    @Override
+    public Task getTask(String session, int id) {
+        return recordInSession(session, tasks.get(id));
+    }
+
+    @Override
+    public SubTask getSubTask(String session, int id) {
+        return recordInSession(session, subTasks.get(id));
+    }
+
+    @Override
+    public Epic getEpic(String session, int id) {
+        return recordInSession(session, epics.get(id));
+    }
+
+    /**
+     * Записывает просмотр задачи в общую историю; null игнорируется.
+     * Вынесено отдельно, чтобы потокобезопасная обёртка записывала просмотр один раз после проверки поиска.
+     */
+    void recordView(Task task) {
+        historyManager.addToHistory(task);
+    }
+
+    /**
+     * Убирает задачу из общей истории, в том числе ещё не перенесённый просмотр из буфера.
+     */
+    void forgetView(int taskId) {
+        historyManager.remove(taskId);
+    }
+
+    <T extends Task> T recordInSession(String session, T task) {
+        if (task != null) {
+            sessionHistories.record(session, task.getId());
+        }
+        return task;
+    }
+
+    /**
+     * Ищет задачу любого типа без записи просмотра.
+     */
+    protected Task findAnyTask(int taskId) {
+        Task task = tasks.get(taskId);
+        if (task == null) {
+            task = subTasks.get(taskId);
+        }
+        return task != null ? task : epics.get(taskId);
     }
 
     /**
@@ -158,8 +722,13 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteTask(int id) {
         Task task = tasks.get(id);
-        tasks.remove(id);
-        prioritizedTasks.remove(task);
+        if (task != null) {
+            touch(task);
+            tasks.remove(id);
+            taskStatuses.remove(task);
+            removeFromSchedule(task);
+            forgetDeleted(id);
+        }
     }
 
     /**
@@ -171,10 +740,14 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteSubTask(int id) {
         SubTask subTask = subTasks.get(id);
+        touch(subTask);
         Epic epic = subTask.getEpic();
         epic.deletePrioritizedSubTasks(subTask);
         subTasks.remove(id);
-        prioritizedTasks.remove(subTask);
+        subTaskStatuses.remove(subTask);
+        removeFromSchedule(subTask);
+        forgetDeleted(id);
+        refreshEpic(epic);
     }
 
     /**
@@ -182,13 +755,25 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void deleteAll() {
+        if (transaction != null) {
+            tasks.values().forEach(this::touch);
+            subTasks.values().forEach(this::touch);
+            epics.values().forEach(this::touch);
+        }
         for (Epic epic : epics.values()) {
-            epic.getPrioritizedSubTasks().clear();
+            epic.clearPrioritizedSubTasks();
         }
+        tasks.forEach((taskId, task) -> forgetDeleted(taskId));
+        subTasks.forEach((taskId, subTask) -> forgetDeleted(taskId));
+        epics.forEach((taskId, epic) -> forgetDeleted(taskId));
         tasks.clear();
         subTasks.clear();
         epics.clear();
         prioritizedTasks.clear();
+        scheduleIndex.clear();
+        taskStatuses.clear();
+        subTaskStatuses.clear();
+        epicStatuses.clear();
     }
 
     /**
@@ -201,14 +786,30 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpic(int id) {
         Epic epic = epics.get(id);
         if (epic == null) return;
+        touch(epic);
         // Удаляем все подзадачи этого эпика
         for (SubTask subTask : new ArrayList<>(epic.getPrioritizedSubTasks())) {
+            touch(subTask);
             subTasks.remove(subTask.getId());
-            prioritizedTasks.remove(subTask);
+            subTaskStatuses.remove(subTask);
+            removeFromSchedule(subTask);
+            forgetDeleted(subTask.getId());
         }
-        epic.getPrioritizedSubTasks().clear();
+        epic.clearPrioritizedSubTasks();
         epics.remove(id);
-        prioritizedTasks.remove(epic);
+        epicStatuses.remove(epic);
+        removeFromSchedule(epic);
+        forgetDeleted(id);
+    }
+
+    /**
+     * Убирает удалённую задачу из истории. В транзакции задача остаётся в истории до фиксации,
+     * чтобы откат не терял просмотры.
+     */
+    private void forgetDeleted(int taskId) {
+        if (transaction == null) {
+            historyManager.remove(taskId);
+        }
     }
 
     @Override
@@ -231,15 +832,27 @@ public class InMemoryTaskManager implements TaskManager {
                 throw new TaskOverlapException();
             }
         }
+        touch(taskToUpdate);
+        // Индексы обновляем только для задачи менеджера: чужой объект с тем же ID вытеснил бы её из индексов
+        boolean managed = isManaged(taskToUpdate);
         Optional.ofNullable(newName).ifPresent(taskToUpdate::setName);
         Optional.ofNullable(newDescription).ifPresent(taskToUpdate::setDescription);
+        Status previousStatus = taskToUpdate.getStatus();
         Optional.ofNullable(newStatus).ifPresent(taskToUpdate::setStatus);
-        Optional.ofNullable(newStartTime)
-                .map(timeStr -> LocalDateTime.parse(timeStr, DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")))
-                .ifPresent(taskToUpdate::setStartTime);
-        Optional.ofNullable(newDuration)
-                .map(Duration::ofMinutes)
-                .ifPresent(taskToUpdate::setDuration);
+        if (managed) {
+            taskStatuses.move(taskToUpdate, previousStatus);
+        }
+        if (newStartTime != null) {
+            // Время — ключ сортировки, поэтому задачу переиндексируем
+            if (managed) {
+                removeFromSchedule(taskToUpdate);
+            }
+            taskToUpdate.setStartTime(LocalDateTime.parse(newStartTime, DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")));
+            taskToUpdate.setDuration(Duration.ofMinutes(newDuration));
+            if (managed) {
+                addToSchedule(taskToUpdate);
+            }
+        }
     }
 
     @Override
@@ -261,10 +874,24 @@ public class InMemoryTaskManager implements TaskManager {
                 throw new TaskOverlapException();
             }
         }
+        touch(subTaskToUpdate);
+        // Индексы обновляем только для подзадачи менеджера: чужой объект с тем же ID вытеснил бы её из индексов
+        boolean managed = isManaged(subTaskToUpdate);
+        // Время — ключ сортировки, поэтому подзадачу убираем из индексов до изменения полей
+        Epic currentEpic = subTaskToUpdate.getEpic();
+        if (managed) {
+            currentEpic.deletePrioritizedSubTasks(subTaskToUpdate);
+            removeFromSchedule(subTaskToUpdate);
+        }
+
         // Обновление базовых полей
         Optional.ofNullable(newName).ifPresent(subTaskToUpdate::setName);
         Optional.ofNullable(newDescription).ifPresent(subTaskToUpdate::setDescription);
+        Status previousStatus = subTaskToUpdate.getStatus();
         Optional.ofNullable(newStatus).ifPresent(subTaskToUpdate::setStatus);
+        if (managed) {
+            subTaskStatuses.move(subTaskToUpdate, previousStatus);
+        }
         Optional.ofNullable(newStartTime)
                 .map(timeStr -> LocalDateTime.parse(timeStr, DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")))
                 .ifPresent(subTaskToUpdate::setStartTime);
@@ -276,25 +903,22 @@ public class InMemoryTaskManager implements TaskManager {
         Optional.ofNullable(newEpic).ifPresentOrElse(
                 // Если newEpic не null (эпик изменился)
                 updatedEpic -> {
-                    Epic currentEpic = subTaskToUpdate.getEpic();
-                    currentEpic.getPrioritizedSubTasks().remove(subTaskToUpdate);
-                    prioritizedTasks.remove(subTaskToUpdate);
-                    currentEpic.updateEpicStatus(currentEpic);
-                    currentEpic.updateEpicStatus(currentEpic);
+                    refreshEpic(currentEpic);
 
                     subTaskToUpdate.setEpic(updatedEpic);
-                    updatedEpic.getPrioritizedSubTasks().add(subTaskToUpdate);
-                    prioritizedTasks.add(subTaskToUpdate);
-                    updatedEpic.updateEpicStatus(updatedEpic);
-                    updatedEpic.updateEpicTimes(updatedEpic);
+                    if (managed) {
+                        updatedEpic.setPrioritizedSubTasks(subTaskToUpdate);
+                        addToSchedule(subTaskToUpdate);
+                    }
+                    refreshEpic(updatedEpic);
                 },
                 // Если newEpic null (эпик не изменился)
                 () -> {
-                    Epic currentEpic = subTaskToUpdate.getEpic();
-                    currentEpic.getPrioritizedSubTasks().remove(subTaskToUpdate);
-                    currentEpic.getPrioritizedSubTasks().add(subTaskToUpdate);
-                    currentEpic.updateEpicTimes(currentEpic);
-                    currentEpic.updateEpicStatus(currentEpic);
+                    if (managed) {
+                        currentEpic.setPrioritizedSubTasks(subTaskToUpdate);
+                        addToSchedule(subTaskToUpdate);
+                    }
+                    refreshEpic(currentEpic);
                 }
         );
     }
@@ -307,6 +931,7 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void updateEpic(Epic currentEpic, Epic updatedEpic) {
+        touch(currentEpic);
         currentEpic.setName(updatedEpic.getName());
         currentEpic.setDescription(updatedEpic.getDescription());
     }
@@ -319,17 +944,191 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void addSubtaskToEpic(Epic epic, SubTask subTask) {
-        epic.getPrioritizedSubTasks().add(subTask);
+        touch(subTask);
+        epic.setPrioritizedSubTasks(subTask);
         subTask.setEpic(epic);
-        epic.updateEpicStatus(epic);
-        epic.updateEpicTimes(epic);
+        refreshEpic(epic);
+    }
+
+    /**
+     * Выполняет несколько операций как одну транзакцию. Внутри транзакции операции меняют состояние сразу,
+     * но пересечения по времени не проверяются, а пересчёт статуса и времени эпиков откладывается.
+     * При фиксации каждый затронутый эпик пересчитывается один раз, а все затронутые задачи проверяются
+     * на пересечения в итоговом состоянии одним проходом. Если проверка не прошла или операция бросила
+     * исключение, все затронутые задачи и индексы возвращаются к состоянию до транзакции, а удалённые
+     * в транзакции задачи остаются в истории просмотров: из истории они уходят только при фиксации.
+     * Вложенные транзакции не поддерживаются.
+     *
+     * @param work Операции транзакции; выполнять их нужно через переданный менеджер
+     * @throws BatchOverlapException если в итоговом состоянии время задач пересекается
+     */
+    @Override
+    public void inTransaction(Consumer<? super TaskManager> work) {
+        if (transaction != null) {
+            throw new IllegalStateException("Транзакция уже открыта");
+        }
+        Transaction current = new Transaction(id);
+        transaction = current;
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollback(current);
+            throw e;
+        }
+        transaction = null;
+        refreshEpics(current.pendingEpics());
+
+        ConflictSweep sweep = new ConflictSweep();
+        Set<Integer> changedIds = new HashSet<>();
+        List<Task> saved = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        List<Integer> forgotten = new ArrayList<>(); // Удалённые в транзакции, в том числе созданные в ней же
+        for (Map.Entry<Task, Transaction.Snapshot> entry : current.touched().entrySet()) {
+            Task task = entry.getKey();
+            if (!isManaged(task)) {
+                forgotten.add(task.getId());
+                if (entry.getValue().managed()) {
+                    deleted.add(entry.getValue().id());
+                }
+                continue;
+            }
+            saved.add(task);
+            if (!(task instanceof Epic)) {
+                changedIds.add(task.getId());
+                int epicKey = task instanceof SubTask subTask ? subTask.getEpic().getId() : 0;
+                sweep.addBatch(task, task.getId(), epicKey, task.getStartTime(), task.getEndTime());
+            }
+        }
+        try {
+            checkBatchConflicts(sweep, changedIds);
+        } catch (BatchOverlapException e) {
+            rollback(current);
+            throw e;
+        }
+        forgotten.forEach(historyManager::remove);
+        // Эпики первыми, чтобы при чтении записей подзадачи находили свой эпик
+        saved.sort(Comparator.comparing(task -> !(task instanceof Epic)));
+        transactionCommitted(saved, deleted);
+    }
+
+    /**
+     * Вызывается после успешной фиксации транзакции, один раз на транзакцию.
+     *
+     * @param saved   Созданные и изменённые задачи, эпики первыми
+     * @param deleted Идентификаторы удалённых задач
+     */
+    protected void transactionCommitted(List<Task> saved, List<Integer> deleted) {
+    }
+
+    protected boolean isInTransaction() {
+        return transaction != null;
+    }
+
+    /**
+     * Отменяет транзакцию: убирает затронутые задачи из коллекций и индексов, возвращает им исходные
+     * значения полей и заново добавляет те, что были в менеджере до транзакции.
+     */
+    private void rollback(Transaction current) {
+        transaction = null;
+        Set<Epic> epicsToRefresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        epicsToRefresh.addAll(current.pendingEpics());
+        for (Task task : current.touched().keySet()) {
+            if (task instanceof SubTask subTask && subTask.getEpic() != null) {
+                epicsToRefresh.add(subTask.getEpic());
+            }
+            if (isManaged(task)) {
+                unregister(task);
+            }
+            if (!current.touched().get(task).managed()) {
+                historyManager.remove(task.getId()); // Идентификатор созданной задачи будет выдан заново
+            }
+        }
+        for (Map.Entry<Task, Transaction.Snapshot> entry : current.touched().entrySet()) {
+            entry.getValue().restore(entry.getKey());
+        }
+        for (Map.Entry<Task, Transaction.Snapshot> entry : current.touched().entrySet()) {
+            if (entry.getValue().managed()) {
+                register(entry.getKey());
+            }
+            if (entry.getKey() instanceof Epic epic) {
+                epicsToRefresh.add(epic);
+            }
+        }
+        // Подзадачи возвращаются в эпики, когда все эпики уже восстановлены
+        for (Map.Entry<Task, Transaction.Snapshot> entry : current.touched().entrySet()) {
+            if (entry.getKey() instanceof SubTask subTask && entry.getValue().managed()) {
+                subTask.getEpic().setPrioritizedSubTasks(subTask);
+                epicsToRefresh.add(subTask.getEpic());
+            }
+        }
+        id = current.savedId();
+        refreshEpics(epicsToRefresh);
+    }
+
+    private void touch(Task task) {
+        if (transaction != null) {
+            transaction.touch(task, isManaged(task));
+        }
+    }
+
+    private boolean isManaged(Task task) {
+        int taskId = task.getId();
+        if (task instanceof Epic) {
+            return epics.get(taskId) == task;
+        }
+        if (task instanceof SubTask) {
+            return subTasks.get(taskId) == task;
+        }
+        return tasks.get(taskId) == task;
+    }
+
+    /**
+     * Убирает задачу из коллекции своего типа, индекса статусов, расписания и эпика.
+     */
+    private void unregister(Task task) {
+        if (task instanceof Epic epic) {
+            epics.remove(epic.getId());
+            epicStatuses.remove(epic);
+        } else if (task instanceof SubTask subTask) {
+            subTask.getEpic().deletePrioritizedSubTasks(subTask);
+            subTasks.remove(subTask.getId());
+            subTaskStatuses.remove(subTask);
+        } else {
+            tasks.remove(task.getId());
+            taskStatuses.remove(task);
+        }
+        removeFromSchedule(task);
+    }
+
+    /**
+     * Добавляет задачу в коллекцию своего типа, индекс статусов и расписание. Подзадачу в эпик не добавляет.
+     */
+    private void register(Task task) {
+        if (task instanceof Epic epic) {
+            epics.put(epic.getId(), epic);
+            epicStatuses.add(epic);
+        } else if (task instanceof SubTask subTask) {
+            subTasks.put(subTask.getId(), subTask);
+            subTaskStatuses.add(subTask);
+        } else {
+            tasks.put(task.getId(), task);
+            taskStatuses.add(task);
+        }
+        addToSchedule(task);
     }
 
     @Override
     public String toString() {
-        return "Задачи= " + tasks + '\n' +
-                "Подзадачи= " + subTasks + '\n' +
-                "Эпики= " + epics;
+        return "Задачи= " + tasks.asMap() + '\n' +
+                "Подзадачи= " + subTasks.asMap() + '\n' +
+                "Эпики= " + epics.asMap();
+    }
+
+    /**
+     * Переносит просмотры из буфера в историю.
+     */
+    protected void drainHistory() {
+        historyManager.drain();
     }
 
     @Override
@@ -337,37 +1136,84 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public HistoryPage getHistoryPage(HistoryPage.Cursor cursor, int limit) {
+        return historyManager.getPage(cursor, limit);
+    }
+
+    /**
+     * Записи удалённых задач выбрасываются из истории сессии при этом чтении.
+     */
+    @Override
+    public List<Task> getHistory(String session) {
+        return sessionHistories.getHistory(session, this::findAnyTask);
+    }
+
+    /**
+     * Добавляет задачу в отсортированный список и индекс интервалов.
+     */
+    private void addToSchedule(Task task) {
+        prioritizedTasks.add(task);
+        scheduleIndex.add(task);
+    }
+
+    /**
+     * Удаляет задачу из отсортированного списка и индекса интервалов.
+     * Вызывать нужно до изменения времени задачи, пока ключ сортировки актуален.
+     */
+    private void removeFromSchedule(Task task) {
+        prioritizedTasks.remove(task);
+        scheduleIndex.remove(task);
+    }
+
+    /**
+     * Пересчитывает статус и время эпика. Если эпик зарегистрирован в менеджере,
+     * он переиндексируется, так как его интервал выполнения мог измениться.
+     */
+    private void refreshEpic(Epic epic) {
+        if (transaction != null) {
+            transaction.deferEpic(epic);
+            return;
+        }
+        boolean managed = epics.get(epic.getId()) == epic;
+        if (managed) {
+            removeFromSchedule(epic);
+        }
+        epic.updateEpicInterval(epic);
+        if (managed) {
+            addToSchedule(epic);
+        }
+        if (!deferEpicAggregates) {
+            indexEpicStatus(epic, refreshEpicAggregates(epic));
+        }
+    }
+
+    /**
+     * Пересчитывает статус и длительность эпика. Эти значения не участвуют в индексах расписания,
+     * поэтому их можно пересчитывать вне общей блокировки, удерживая только блокировку эпика.
+     * Индекс по статусу при этом не обновляется — для этого нужен {@link #indexEpicStatus(Epic, Status)}.
+     *
+     * @return Статус эпика до пересчёта
+     */
+    Status refreshEpicAggregates(Epic epic) {
+        Status previous = epic.getStatus();
+        epic.updateEpicStatus(epic);
+        epic.updateEpicDuration(epic);
+        return previous;
+    }
+
+    /**
+     * Переносит эпик в индексе статусов после пересчёта его статуса.
+     */
+    void indexEpicStatus(Epic epic, Status previous) {
+        epicStatuses.move(epic, previous);
+    }
+
     private boolean isExecutionOverlapInprioritizedTasks(Task taskToCheck) {
-        boolean result = false;
-        LocalDateTime startTimeTaskToCheck = (taskToCheck instanceof Epic) ? ((Epic) taskToCheck).getEpicStartTime() : taskToCheck.getStartTime();
-        LocalDateTime endTimeTaskToCheck = (taskToCheck instanceof Epic) ? ((Epic) taskToCheck).getEpicEndTime() : taskToCheck.getEndTime();
-        if (startTimeTaskToCheck == null || endTimeTaskToCheck == null) {
-            return result;
-        }
-
-        // Собираем ID задач, которые нужно исключить из проверки
-        Set<Integer> excludedIds = new HashSet<>();
-        excludedIds.add(taskToCheck.getId()); // всегда исключаем саму задачу
-
-        if (taskToCheck instanceof Epic) {
-            // Для эпика исключаем все его подзадачи
-            ((Epic) taskToCheck).getPrioritizedSubTasks()
-                    .forEach(subTask -> excludedIds.add(subTask.getId()));
-        } else if (taskToCheck instanceof SubTask) {
-            // Для подзадачи исключаем ее эпик
-            Epic epic = ((SubTask) taskToCheck).getEpic();
-            if (epic != null) {
-                excludedIds.add(epic.getId());
-            }
-        }
-        return prioritizedTasks.stream()
-                .filter(currentTask -> !excludedIds.contains(currentTask.getId()))
-                .anyMatch(currentTask -> {
-                    LocalDateTime currentTaskStartTime = (currentTask instanceof Epic) ? ((Epic) currentTask).getEpicStartTime() : currentTask.getStartTime();
-                    LocalDateTime currentTaskEndTime = (currentTask instanceof Epic) ? ((Epic) currentTask).getEpicEndTime() : currentTask.getEndTime();
-                    return currentTaskStartTime != null && currentTaskEndTime != null
-                            && startTimeTaskToCheck.isBefore(currentTaskEndTime)
-                            && currentTaskStartTime.isBefore(endTimeTaskToCheck);
-                });
+        if (transaction != null) {
+            return false; // Промежуточные пересечения допустимы, проверяется итоговое состояние
+        }
+        return scheduleIndex.hasOverlap(ScheduleIndex.startOf(taskToCheck), ScheduleIndex.endOf(taskToCheck),
+                ScheduleIndex.exclusionsFor(taskToCheck));
     }
 }
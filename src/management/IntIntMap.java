@@ -0,0 +1,133 @@
+package management;
+
+/**
+ * Отображение int → неотрицательный int с открытой адресацией, как {@link IntMap}, но без объектов:
+ * и ключи, и значения лежат в массивах int. Пустая ячейка — значение 0, поэтому значение хранится
+ * со сдвигом на единицу. Удаление — сдвигом назад, без надгробий.
+ */
+final class IntIntMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values; // Значение + 1, 0 — ячейка пуста
+    private int mask;
+    private int shift;
+    private int size;
+
+    IntIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Ожидаемое количество элементов, при котором таблица не будет расширяться
+     */
+    IntIntMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return Значение или -1, если ключа нет
+     */
+    int get(int key) {
+        int slot = find(key);
+        return slot < 0 ? -1 : values[slot] - 1;
+    }
+
+    /**
+     * @param value Неотрицательное значение
+     */
+    void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Значение должно быть неотрицательным: " + value);
+        }
+        int slot = slotOf(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        size++;
+        if (size * 3 >= values.length * 2) { // Коэффициент заполнения не больше 2/3
+            resize(values.length << 1);
+        }
+    }
+
+    /**
+     * @return Удалённое значение или -1, если ключа не было
+     */
+    int remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return -1;
+        }
+        int removed = values[slot] - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != 0) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = 0;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 3 / 2 + 1);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Слишком большой размер: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
@@ -0,0 +1,331 @@
+package management;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Отображение int → объект с открытой адресацией и линейным пробированием.
+ * Ключи хранятся в массиве int, поэтому поиск не упаковывает ключ и не создаёт объектов,
+ * а на элемент не тратится отдельный узел, как в {@link java.util.HashMap}.
+ * <p>
+ * Удаление выполняется сдвигом назад: следующие элементы той же цепочки переносятся в освободившуюся
+ * ячейку, поэтому надгробий нет и длина цепочек не растёт от чередования вставок и удалений.
+ * Значение null не допускается — пустая ячейка обозначается null в массиве значений.
+ * Обход без упаковки — {@link #forEach(EntryConsumer)} и {@link #values()}.
+ *
+ * @param <V> Тип значений
+ */
+public final class IntMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int modCount;
+    private Collection<V> valuesView;
+    private Map<Integer, V> mapView;
+
+    /**
+     * Обработчик пары ключ-значение без упаковки ключа.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Ожидаемое количество элементов, при котором таблица не будет расширяться
+     */
+    public IntMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : value(slot);
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return Предыдущее значение или null
+     */
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = value(slot);
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        modCount++;
+        if (size * 3 >= values.length * 2) { // Коэффициент заполнения не больше 2/3
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return Удалённое значение или null, если ключа не было
+     */
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = value(slot);
+        // Сдвиг назад: переносим в дыру элементы, чья исходная ячейка не лежит между дырой и их позицией
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != null) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = null;
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Обходит все пары без упаковки ключей. Порядок обхода не определён.
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        int expected = modCount;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(keys[slot], value(slot));
+            }
+        }
+        if (modCount != expected) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Живое представление значений только для чтения. Итератор быстро отказывает,
+     * если отображение изменили во время обхода.
+     */
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new ValueIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void forEach(Consumer<? super V> action) {
+                    IntMap.this.forEach((key, value) -> action.accept(value));
+                }
+            };
+        }
+        return valuesView;
+    }
+
+    /**
+     * Живое представление только для чтения в виде {@link Map}. Поиск по нему упаковывает только
+     * переданный ключ, обход создаёт объект {@link Map.Entry} на каждый элемент.
+     */
+    public Map<Integer, V> asMap() {
+        if (mapView == null) {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+
+    private int find(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Исходная ячейка ключа. Умножение на золотое сечение перемешивает последовательные id
+     * по всей таблице, а старшие биты произведения дают номер ячейки.
+     */
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 3 / 2 + 1);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Слишком большой размер: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * Обходит занятые ячейки таблицы. Быстро отказывает, если отображение изменили во время обхода.
+     */
+    private class SlotIterator {
+        private int next = advance(0);
+        private final int expected = modCount;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        int nextSlot() {
+            if (modCount != expected) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= values.length) {
+                throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(next + 1);
+            return slot;
+        }
+    }
+
+    private class ValueIterator extends SlotIterator implements Iterator<V> {
+        @Override
+        public V next() {
+            return value(nextSlot());
+        }
+    }
+
+    private class EntryIterator extends SlotIterator implements Iterator<Map.Entry<Integer, V>> {
+        @Override
+        public Map.Entry<Integer, V> next() {
+            int slot = nextSlot();
+            return new AbstractMap.SimpleImmutableEntry<>(keys[slot], value(slot));
+        }
+    }
+
+    private class MapView extends AbstractMap<Integer, V> {
+        private Set<Entry<Integer, V>> entries;
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer id ? IntMap.this.get(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer id && IntMap.this.containsKey(id);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Collection<V> values() {
+            return IntMap.this.values();
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            if (entries == null) {
+                entries = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Integer, V>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entries;
+        }
+    }
+}
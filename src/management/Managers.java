@@ -12,7 +12,70 @@ public final class Managers {
         return new InMemoryTaskManager();
     }
 
+    /**
+     * Возвращает TaskManager по умолчанию, история просмотров которого хранит не больше
+     * historyCapacity последних задач.
+     *
+     * @param historyCapacity Максимальное количество задач в истории
+     */
+    public static TaskManager getDefault(int historyCapacity) {
+        return new InMemoryTaskManager(getDefaultHistory(historyCapacity));
+    }
+
+    /**
+     * Возвращает потокобезопасный TaskManager, который можно использовать из нескольких потоков.
+     */
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    /**
+     * Возвращает потокобезопасный TaskManager с блокировками по эпикам:
+     * изменения подзадач разных эпиков выполняются параллельно.
+     *
+     * @param stripeCount Количество блокировок эпиков
+     */
+    public static TaskManager getConcurrent(int stripeCount) {
+        return new ConcurrentTaskManager(stripeCount);
+    }
+
+    /**
+     * Возвращает TaskManager с одним потоком записи: изменения ставятся в очередь команд,
+     * а чтение идёт по неизменяемому снимку без блокировок. Поток записи останавливает
+     * {@link EventLoopTaskManager#close()}.
+     */
+    public static EventLoopTaskManager getEventLoop() {
+        return new EventLoopTaskManager();
+    }
+
+    /**
+     * Возвращает пустой компактный менеджер: задачи хранятся в массивах примитивов,
+     * а объекты задач собираются при обращении.
+     */
+    public static TaskManager getCompact() {
+        return new CompactTaskManager();
+    }
+
+    /**
+     * Возвращает компактную копию менеджера. Изменения копии в исходный менеджер не попадают.
+     *
+     * @param source Менеджер, задачи которого копируются
+     */
+    public static TaskManager getCompact(TaskManager source) {
+        return new CompactTaskManager(source);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    /**
+     * Возвращает историю, которая хранит не больше capacity последних просмотренных задач.
+     * Самые старые просмотры вытесняются, поэтому память не растёт при постоянном потоке просмотров.
+     *
+     * @param capacity Максимальное количество задач в истории
+     */
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
 }
\ No newline at end of file
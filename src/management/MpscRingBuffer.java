@@ -0,0 +1,93 @@
+package management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный кольцевой буфер: много писателей без блокировок, один читатель.
+ * Писатель занимает позицию сдвигом tail через CAS и публикует элемент в ячейку;
+ * читатель забирает опубликованные элементы по порядку позиций и освобождает ячейки.
+ * Ячейка, которую уже заняли, но ещё не заполнили, останавливает выборку до следующего раза.
+ *
+ * @param <E> Тип элементов
+ */
+final class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Следующая позиция для записи
+    private volatile long head;                       // Следующая позиция для чтения, меняет только читатель
+
+    /**
+     * @param capacity Размер буфера, округляется вверх до степени двойки
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Добавляет элемент, не блокируясь.
+     *
+     * @return false, если буфер заполнен и его нужно опустошить
+     */
+    boolean offer(E element) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        slots.lazySet((int) position & mask, element);
+        return true;
+    }
+
+    /**
+     * Передаёт накопленные элементы в порядке добавления. Вызывать только из одного потока одновременно.
+     *
+     * @return Количество переданных элементов
+     */
+    int drain(Consumer<? super E> sink) {
+        return drain(sink, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Передаёт не больше limit накопленных элементов в порядке добавления.
+     * Вызывать только из одного потока одновременно.
+     *
+     * @return Количество переданных элементов
+     */
+    int drain(Consumer<? super E> sink, int limit) {
+        long position = head;
+        long end = Math.min(tail.get(), position + limit);
+        int drained = 0;
+        while (position < end) {
+            int slot = (int) position & mask;
+            E element = slots.get(slot);
+            if (element == null) {
+                break; // Писатель занял позицию, но ещё не записал элемент
+            }
+            slots.lazySet(slot, null);
+            sink.accept(element);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    /**
+     * @return true, если писатели не заняли ни одной позиции после прочитанных
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
@@ -6,6 +6,7 @@ public class Node {
     public Task task;
     public Node prev;
     public Node next;
+    public long sequence; // Порядковый номер просмотра: растёт с каждым переносом узла в конец списка
 
     public Node(Task task, Node prev, Node next) {
         this.task = task;
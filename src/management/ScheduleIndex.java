@@ -0,0 +1,300 @@
+package management;
+
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Индекс интервалов выполнения задач для быстрой проверки пересечений.
+ * Построен на AVL-дереве, упорядоченном по времени начала (при равенстве — по ID),
+ * где каждый узел хранит максимальное время окончания в своём поддереве.
+ * Поиск пересечений выполняется за O(log n + k), где k — количество найденных интервалов.
+ * <p>
+ * Интервал задачи запоминается в момент добавления, поэтому при изменении времени задачи
+ * её нужно переиндексировать через {@link #remove(Task)} и {@link #add(Task)}.
+ */
+public final class ScheduleIndex {
+    private final IntMap<IntervalNode> nodesById = new IntMap<>();
+    private IntervalNode root;
+
+    /**
+     * Возвращает время начала задачи с учётом особенностей эпика.
+     */
+    public static LocalDateTime startOf(Task task) {
+        return (task instanceof Epic) ? ((Epic) task).getEpicStartTime() : task.getStartTime();
+    }
+
+    /**
+     * Возвращает время окончания задачи с учётом особенностей эпика.
+     */
+    public static LocalDateTime endOf(Task task) {
+        return (task instanceof Epic) ? ((Epic) task).getEpicEndTime() : task.getEndTime();
+    }
+
+    /**
+     * Добавляет задачу в индекс. Задачи без времени начала или окончания не индексируются.
+     *
+     * @param task Задача для добавления
+     */
+    public void add(Task task) {
+        remove(task);
+        LocalDateTime start = startOf(task);
+        LocalDateTime end = endOf(task);
+        if (start == null || end == null) {
+            return;
+        }
+        IntervalNode node = new IntervalNode(task, start, end);
+        root = insert(root, node);
+        nodesById.put(task.getId(), node);
+    }
+
+    /**
+     * Удаляет задачу из индекса по её идентификатору.
+     *
+     * @param task Задача для удаления
+     */
+    public void remove(Task task) {
+        IntervalNode node = nodesById.remove(task.getId());
+        if (node != null) {
+            root = delete(root, node.start, node.task.getId());
+        }
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    /**
+     * Проверяет, пересекается ли интервал [start, end) хотя бы с одной задачей индекса.
+     *
+     * @param start Начало интервала
+     * @param end   Окончание интервала
+     * @param skip  Условие, по которому задача исключается из проверки
+     * @return true, если найдено пересечение
+     */
+    public boolean hasOverlap(LocalDateTime start, LocalDateTime end, Predicate<Task> skip) {
+        if (start == null || end == null) {
+            return false;
+        }
+        return findOverlap(root, start, end, skip) != null;
+    }
+
+    /**
+     * Находит самое раннее начало s &gt;= after, при котором интервал [s, s + duration) не пересекается
+     * ни с одной задачей индекса. Каждый шаг переходит к окончанию ближайшей мешающей задачи,
+     * поэтому поиск занимает O((m + 1) log n), где m — количество задач, которые пришлось обойти.
+     *
+     * @param after    Время, не раньше которого ищется окно
+     * @param duration Длительность окна, больше нуля
+     * @param skip     Условие, по которому задача не считается помехой
+     * @return Начало свободного окна
+     */
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration, Predicate<Task> skip) {
+        if (duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность окна должна быть положительной");
+        }
+        LocalDateTime start = after;
+        IntervalNode blocking;
+        while ((blocking = findOverlap(root, start, start.plus(duration), skip)) != null) {
+            start = blocking.end;
+        }
+        return start;
+    }
+
+    /**
+     * Возвращает все задачи, пересекающиеся с интервалом [start, end), в порядке времени начала.
+     */
+    public List<Task> overlaps(LocalDateTime start, LocalDateTime end) {
+        List<Task> result = new ArrayList<>();
+        if (start != null && end != null) {
+            collectOverlaps(root, start, end, result);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает самый ранний по началу узел, пересекающийся с [start, end), или null.
+     */
+    private IntervalNode findOverlap(IntervalNode node, LocalDateTime start, LocalDateTime end, Predicate<Task> skip) {
+        // Ни один интервал поддерева не заканчивается позже начала запроса
+        if (node == null || !start.isBefore(node.maxEnd)) {
+            return null;
+        }
+        IntervalNode found = findOverlap(node.left, start, end, skip);
+        if (found != null) {
+            return found;
+        }
+        // Все узлы правее начинаются не раньше текущего
+        if (!node.start.isBefore(end)) {
+            return null;
+        }
+        if (start.isBefore(node.end) && !skip.test(node.task)) {
+            return node;
+        }
+        return findOverlap(node.right, start, end, skip);
+    }
+
+    private void collectOverlaps(IntervalNode node, LocalDateTime start, LocalDateTime end, List<Task> result) {
+        if (node == null || !start.isBefore(node.maxEnd)) {
+            return;
+        }
+        collectOverlaps(node.left, start, end, result);
+        if (!node.start.isBefore(end)) {
+            return;
+        }
+        if (start.isBefore(node.end)) {
+            result.add(node.task);
+        }
+        collectOverlaps(node.right, start, end, result);
+    }
+
+    private static int compare(LocalDateTime start, int id, IntervalNode node) {
+        int byStart = start.compareTo(node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.task.getId());
+    }
+
+    private static IntervalNode insert(IntervalNode node, IntervalNode newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.start, newNode.task.getId(), node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private static IntervalNode delete(IntervalNode node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            IntervalNode successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static IntervalNode deleteMin(IntervalNode node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(IntervalNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(IntervalNode node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static IntervalNode balance(IntervalNode node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static IntervalNode rotateRight(IntervalNode node) {
+        IntervalNode left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static IntervalNode rotateLeft(IntervalNode node) {
+        IntervalNode right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Проверяет, нужно ли исключить задачу из проверки пересечений с taskToCheck:
+     * сама задача, подзадачи проверяемого эпика и эпик проверяемой подзадачи не считаются пересечением.
+     */
+    public static Predicate<Task> exclusionsFor(Task taskToCheck) {
+        int id = taskToCheck.getId();
+        if (taskToCheck instanceof Epic) {
+            return task -> task.getId() == id
+                    || (task instanceof SubTask && ((SubTask) task).getEpic() != null
+                    && ((SubTask) task).getEpic().getId() == id);
+        }
+        if (taskToCheck instanceof SubTask && ((SubTask) taskToCheck).getEpic() != null) {
+            int epicId = ((SubTask) taskToCheck).getEpic().getId();
+            return task -> task.getId() == id || task.getId() == epicId;
+        }
+        return task -> task.getId() == id;
+    }
+
+    private static final class IntervalNode {
+        private final Task task;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private IntervalNode left;
+        private IntervalNode right;
+
+        private IntervalNode(Task task, LocalDateTime start, LocalDateTime end) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
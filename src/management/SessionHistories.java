@@ -0,0 +1,213 @@
+package management;
+
+import task.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Истории просмотров, разделённые по ключу сессии. Сами задачи общие: история сессии хранит только
+ * идентификаторы в порядке просмотра, а задачи находит по ним при чтении.
+ * <p>
+ * Удаление задачи не обходит сессии: при чтении истории запись, для которой задача больше
+ * не находится, удаляется из этой сессии. Сессия, в которой дольше idleTimeout не было просмотров
+ * и чтений, удаляется целиком — при каждом {@link #EXPIRY_INTERVAL}-м просмотре или
+ * при вызове {@link #expireIdle()}.
+ */
+public final class SessionHistories {
+    static final int EXPIRY_INTERVAL = 1024;
+
+    private final Map<String, Partition> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final int capacity;
+    private final LongSupplier ticker;
+    private final AtomicInteger recordsSinceExpiry = new AtomicInteger();
+
+    /**
+     * @param idleTimeout Время без обращений, после которого сессия удаляется
+     * @param capacity    Максимальное количество задач в истории одной сессии
+     */
+    public SessionHistories(Duration idleTimeout, int capacity) {
+        this(idleTimeout, capacity, System::nanoTime);
+    }
+
+    /**
+     * @param ticker Источник времени в наносекундах
+     */
+    public SessionHistories(Duration idleTimeout, int capacity, LongSupplier ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.capacity = capacity;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Записывает просмотр задачи в историю сессии, создавая сессию при первом обращении.
+     */
+    public void record(String session, int taskId) {
+        Objects.requireNonNull(session, "Ключ сессии не может быть null");
+        long now = ticker.getAsLong();
+        // Сессию могли удалить как неактивную между поиском и записью — тогда берём новую
+        while (!sessions.computeIfAbsent(session, key -> new Partition()).add(taskId, capacity, now)) {
+            Thread.onSpinWait();
+        }
+        if (recordsSinceExpiry.incrementAndGet() >= EXPIRY_INTERVAL) {
+            recordsSinceExpiry.set(0);
+            expireIdle();
+        }
+    }
+
+    /**
+     * Возвращает историю сессии от новых просмотров к старым.
+     *
+     * @param lookup Поиск задачи по идентификатору; null — задача удалена, и запись выбрасывается
+     */
+    public List<Task> getHistory(String session, IntFunction<? extends Task> lookup) {
+        Partition partition = sessions.get(session);
+        return partition == null ? List.of() : partition.resolve(lookup, ticker.getAsLong());
+    }
+
+    /**
+     * Завершает сессию и удаляет её историю.
+     */
+    public void endSession(String session) {
+        Partition partition = sessions.remove(session);
+        if (partition != null) {
+            partition.expire();
+        }
+    }
+
+    /**
+     * Удаляет сессии, в которых дольше idleTimeout не было обращений.
+     *
+     * @return Количество удалённых сессий
+     */
+    public int expireIdle() {
+        long now = ticker.getAsLong();
+        int expired = 0;
+        for (Map.Entry<String, Partition> entry : sessions.entrySet()) {
+            if (entry.getValue().expireIfIdle(now, idleTimeoutNanos)) {
+                sessions.remove(entry.getKey(), entry.getValue());
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * История одной сессии: двусвязный список идентификаторов от старых просмотров к новым
+     * и индекс узлов по id. Все методы синхронизированы на самой истории.
+     */
+    private static final class Partition {
+        private final IntMap<Node> nodes = new IntMap<>();
+        private Node head;
+        private Node tail;
+        private long lastAccess;
+        private boolean expired;
+
+        /**
+         * @return false, если сессия уже удалена и просмотр нужно записать в новую
+         */
+        synchronized boolean add(int taskId, int capacity, long now) {
+            if (expired) {
+                return false;
+            }
+            lastAccess = now;
+            Node node = nodes.get(taskId);
+            if (node != null) {
+                if (node != tail) {
+                    unlink(node);
+                    linkLast(node);
+                }
+                return true;
+            }
+            if (nodes.size() >= capacity) {
+                node = head;
+                unlink(node);
+                nodes.remove(node.taskId);
+            } else {
+                node = new Node();
+            }
+            node.taskId = taskId;
+            linkLast(node);
+            nodes.put(taskId, node);
+            return true;
+        }
+
+        synchronized List<Task> resolve(IntFunction<? extends Task> lookup, long now) {
+            lastAccess = now;
+            List<Task> tasks = new ArrayList<>(nodes.size());
+            Node node = tail;
+            while (node != null) {
+                Node previous = node.prev;
+                Task task = lookup.apply(node.taskId);
+                if (task == null) {
+                    unlink(node); // Задачу удалили: убираем запись только из этой сессии
+                    nodes.remove(node.taskId);
+                } else {
+                    tasks.add(task);
+                }
+                node = previous;
+            }
+            return Collections.unmodifiableList(tasks);
+        }
+
+        synchronized boolean expireIfIdle(long now, long idleTimeoutNanos) {
+            if (now - lastAccess < idleTimeoutNanos) {
+                return false;
+            }
+            expired = true;
+            return true;
+        }
+
+        synchronized void expire() {
+            expired = true;
+        }
+
+        private void linkLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    private static final class Node {
+        int taskId;
+        Node prev;
+        Node next;
+    }
+}
@@ -0,0 +1,66 @@
+package management;
+
+import exceptions.ManagerSaveException;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Преобразует снимок задач между форматами CSV и двоичным ({@link BinaryFormat}).
+ * Формат входного файла определяется по сигнатуре.
+ * Запуск: java management.SnapshotConverter &lt;входной файл&gt; &lt;выходной файл&gt;
+ */
+public final class SnapshotConverter {
+    private SnapshotConverter() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Использование: java management.SnapshotConverter <входной файл> <выходной файл>");
+            return;
+        }
+        Path source = Path.of(args[0]);
+        Path target = Path.of(args[1]);
+        if (BinaryFormat.isBinary(source)) {
+            toCsv(source, target);
+            System.out.println("Двоичный снимок преобразован в CSV: " + target);
+        } else {
+            toBinary(source, target);
+            System.out.println("CSV преобразован в двоичный снимок: " + target);
+        }
+    }
+
+    public static void toBinary(Path csvFile, Path binaryFile) {
+        BinaryFormat.write(restore(CSVLoader.readTasks(csvFile)), binaryFile);
+    }
+
+    public static void toCsv(Path binaryFile, Path csvFile) {
+        Collection<Task> tasks = restore(BinaryFormat.readTasks(binaryFile));
+        List<String> lines = new ArrayList<>(tasks.size() + 1);
+        lines.add(CSVFormat.HEADER);
+        for (Task task : tasks) {
+            lines.add(CSVFormat.taskToCSVString(task));
+        }
+        try {
+            Files.write(csvFile, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to save tasks to file: " + csvFile, e);
+        }
+    }
+
+    /**
+     * Восстанавливает задачи в менеджере, чтобы время и статус эпиков были пересчитаны по подзадачам,
+     * как при обычном сохранении.
+     */
+    private static Collection<Task> restore(List<Task> tasks) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        manager.restoreAll(tasks);
+        return manager.getAllTasksTypes();
+    }
+}
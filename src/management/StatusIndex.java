@@ -0,0 +1,68 @@
+package management;
+
+import task.Status;
+import task.Task;
+
+import java.util.Collection;
+import java.util.EnumMap;
+
+/**
+ * Вторичный индекс задач одного типа по статусу. Для каждого статуса хранит задачи по идентификатору,
+ * поэтому выборка «все задачи в статусе X» не требует обхода всех задач.
+ * Статус — ключ индекса: при его изменении нужно вызвать {@link #move(Task, Status)} с прежним значением.
+ *
+ * @param <T> Тип задач в индексе
+ */
+final class StatusIndex<T extends Task> {
+    private final EnumMap<Status, IntMap<T>> buckets = new EnumMap<>(Status.class);
+    private final EnumMap<Status, Collection<T>> views = new EnumMap<>(Status.class);
+
+    StatusIndex() {
+        for (Status status : Status.values()) {
+            IntMap<T> bucket = new IntMap<>();
+            buckets.put(status, bucket);
+            views.put(status, bucket.values());
+        }
+    }
+
+    void add(T task) {
+        buckets.get(task.getStatus()).put(task.getId(), task);
+    }
+
+    void remove(T task) {
+        IntMap<T> bucket = buckets.get(task.getStatus());
+        if (bucket.get(task.getId()) == task) {
+            bucket.remove(task.getId());
+        }
+    }
+
+    /**
+     * Переносит задачу в корзину её текущего статуса. Задачи, которых нет в индексе, пропускаются.
+     *
+     * @param task     Задача с уже изменённым статусом
+     * @param previous Статус задачи до изменения
+     */
+    void move(T task, Status previous) {
+        if (previous == task.getStatus()) {
+            return;
+        }
+        IntMap<T> bucket = buckets.get(previous);
+        if (bucket.get(task.getId()) == task) {
+            bucket.remove(task.getId());
+            add(task);
+        }
+    }
+
+    void clear() {
+        for (IntMap<T> bucket : buckets.values()) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Возвращает живое представление задач в статусе только для чтения.
+     */
+    Collection<T> get(Status status) {
+        return views.get(status);
+    }
+}
@@ -0,0 +1,10 @@
+package management;
+
+/**
+ * Формат файла снимка FileBackedTaskManager. По умолчанию используется CSV: в нём же пишется журнал
+ * изменений, и файл остаётся читаемым. Загрузка распознаёт оба формата по сигнатуре.
+ */
+public enum StorageFormat {
+    CSV,    // Текстовый формат CSVFormat, подходит для экспорта
+    BINARY  // Двоичный формат BinaryFormat для быстрого сохранения и загрузки
+}
@@ -0,0 +1,245 @@
+package management;
+
+import exceptions.ManagerSaveException;
+import task.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений задач, который дописывается в конец файла.
+ * Каждая строка — одна операция:
+ * <pre>
+ * PUT,&lt;строка задачи в формате CSVFormat&gt;  — создание или обновление
+ * DEL,&lt;id&gt;                             — удаление задачи по идентификатору
+ * CLEAR                                  — удаление всех задач
+ * BEGIN,&lt;n&gt;                             — начало пакета из n записей
+ * COMMIT                                 — конец пакета
+ * </pre>
+ * Пакет пишется одним сбросом буфера, но на диск может попасть не целиком. Поэтому записи пакета
+ * применяются при чтении только после COMMIT, а пакет без COMMIT или с другим количеством записей
+ * отбрасывается целиком.
+ * При сворачивании журнал переименовывается в файл с суффиксом ".old", который удаляется
+ * после записи нового снимка. Если запись снимка не завершилась, ".old" воспроизводится при загрузке.
+ */
+public class TaskJournal {
+    private final Path path;
+    private final Path rotatedPath;
+    private static final String BEGIN = "BEGIN,";
+    private static final String COMMIT = "COMMIT";
+
+    private BufferedWriter writer;
+    private int size; // Количество строк в текущем журнале, включая границы пакетов
+    private boolean torn; // При чтении были отброшены недописанные записи
+
+    public TaskJournal(Path snapshotPath) {
+        this.path = sibling(snapshotPath, ".journal");
+        this.rotatedPath = sibling(snapshotPath, ".journal.old");
+    }
+
+    public static String put(Task task) {
+        return "PUT," + CSVFormat.taskToCSVString(task);
+    }
+
+    public static String delete(int id) {
+        return "DEL," + id;
+    }
+
+    public static String clear() {
+        return "CLEAR";
+    }
+
+    /**
+     * Дописывает запись в конец журнала.
+     *
+     * @param record Запись, сформированная методами {@link #put}, {@link #delete} или {@link #clear}
+     */
+    public void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Дописывает записи одного изменения. Несколько записей обрамляются BEGIN и COMMIT,
+     * чтобы при чтении они применились все или ни одной.
+     *
+     * @param records Записи, сформированные методами {@link #put}, {@link #delete} или {@link #clear}
+     */
+    public void appendAll(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            boolean batch = records.size() > 1;
+            if (batch) {
+                writeLine(BEGIN + records.size());
+            }
+            for (String record : records) {
+                writeLine(record);
+            }
+            if (batch) {
+                writeLine(COMMIT);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to append to journal: " + path, e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Закрывает текущий журнал и переносит его записи в ".old", после чего новые записи
+     * пишутся в пустой журнал.
+     */
+    public void rotate() {
+        close();
+        try {
+            if (Files.exists(path)) {
+                if (Files.exists(rotatedPath)) {
+                    // Предыдущий снимок не был записан — сохраняем обе части журнала
+                    Files.write(rotatedPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                    Files.delete(path);
+                } else {
+                    Files.move(path, rotatedPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to rotate journal: " + path, e);
+        }
+        size = 0;
+    }
+
+    /**
+     * Удаляет ".old" после того, как его записи попали в снимок.
+     */
+    public void deleteRotated() {
+        try {
+            Files.deleteIfExists(rotatedPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete journal: " + rotatedPath, e);
+        }
+    }
+
+    /**
+     * Удаляет оба файла журнала.
+     */
+    public void deleteAll() {
+        close();
+        deleteRotated();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to delete journal: " + path, e);
+        }
+        size = 0;
+    }
+
+    public boolean exists() {
+        return Files.exists(path) || Files.exists(rotatedPath);
+    }
+
+    /**
+     * Передаёт обработчику все записи журнала в порядке их появления: сначала ".old", затем текущий файл.
+     * Недописанная последняя строка (например, после аварийного завершения) пропускается,
+     * как и пакет без COMMIT.
+     *
+     * @param consumer Обработчик записи
+     * @return true, если журнал прочитан целиком; false, если недописанные записи были отброшены
+     *         и дописывать журнал дальше нельзя
+     */
+    public boolean replay(Consumer<String> consumer) {
+        torn = false;
+        replayFile(rotatedPath, consumer);
+        size = replayFile(path, consumer);
+        return !torn;
+    }
+
+    private int replayFile(Path file, Consumer<String> consumer) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int count = 0;
+        List<String> batch = null; // Записи открытого пакета
+        int expected = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (!line.isEmpty()) {
+                    count++;
+                    if (line.startsWith(BEGIN)) {
+                        torn |= batch != null; // Предыдущий пакет оборвался
+                        batch = new ArrayList<>();
+                        try {
+                            expected = Integer.parseInt(line.substring(BEGIN.length()));
+                        } catch (NumberFormatException e) {
+                            torn = true;
+                            batch = null;
+                        }
+                    } else if (line.equals(COMMIT)) {
+                        if (batch != null && batch.size() == expected) {
+                            batch.forEach(consumer);
+                        } else {
+                            torn = true;
+                        }
+                        batch = null;
+                    } else if (batch != null) {
+                        batch.add(line);
+                    } else {
+                        try {
+                            consumer.accept(line);
+                        } catch (RuntimeException e) {
+                            if (next != null) {
+                                throw e;
+                            }
+                            torn = true;
+                        }
+                    }
+                }
+                line = next;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала " + file, e);
+        }
+        torn |= batch != null;
+        return count;
+    }
+
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Failed to close journal: " + path, e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private static Path sibling(Path snapshotPath, String suffix) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + suffix);
+    }
+}
@@ -5,7 +5,10 @@ import task.Status;
 import task.SubTask;
 import task.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 public interface TaskManager {
     void createTask(Task task);
@@ -14,11 +17,11 @@ public interface TaskManager {
 
     void createEpic(Epic epic);
 
-    HashMap<Integer, Task> getAllTasks();
+    Map<Integer, Task> getAllTasks();
 
-    HashMap<Integer, Epic> getAllEpics();
+    Map<Integer, Epic> getAllEpics();
 
-    HashMap<Integer, SubTask> getAllSubTasks();
+    Map<Integer, SubTask> getAllSubTasks();
 
     Task getTask(int id);
 
@@ -26,6 +29,17 @@ public interface TaskManager {
 
     Epic getEpic(int id);
 
+    /**
+     * Возвращает задачу и записывает просмотр в историю сессии, а не в общую историю.
+     *
+     * @param session Ключ сессии или пользователя
+     */
+    Task getTask(String session, int id);
+
+    SubTask getSubTask(String session, int id);
+
+    Epic getEpic(String session, int id);
+
     void deleteTask(int id);
 
     void deleteSubTask(int id);
@@ -54,4 +68,45 @@ public interface TaskManager {
     void addSubtaskToEpic(Epic epic, SubTask subTask);
 
     List<Task> getHistory();
+
+    /**
+     * Страница истории просмотров от новых к старым; копируются только задачи страницы.
+     *
+     * @param cursor Курсор из предыдущей страницы; null — первая страница
+     * @throws ConcurrentModificationException если история изменилась после выдачи курсора
+     */
+    HistoryPage getHistoryPage(HistoryPage.Cursor cursor, int limit);
+
+    /**
+     * История просмотров сессии от новых к старым. Удалённые задачи в неё не попадают.
+     */
+    List<Task> getHistory(String session);
+
+    List<Task> getPrioritizedTasks();
+
+    Collection<Task> getTasksByStatus(Status status);
+
+    Collection<SubTask> getSubTasksByStatus(Status status);
+
+    Collection<Epic> getEpicsByStatus(Status status);
+
+    NavigableSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to);
+
+    List<Task> getTasksActiveAt(LocalDateTime instant);
+
+    List<Task> getNextTasks(LocalDateTime after, int limit);
+
+    LocalDateTime findNextFreeSlot(LocalDateTime after, Duration duration);
+
+    LocalDateTime findNextFreeSlot(Epic epic, LocalDateTime after, Duration duration);
+
+    List<LocalDateTime> findFreeSlots(LocalDateTime after, Duration duration, int count);
+
+    void scheduleTasks(List<TaskScheduler.Job> jobs, LocalDateTime notBefore);
+
+    void createAll(Collection<? extends Task> batch);
+
+    void updateAll(Collection<? extends Task> changes);
+
+    void inTransaction(Consumer<? super TaskManager> work);
 }
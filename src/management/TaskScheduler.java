@@ -0,0 +1,294 @@
+package management;
+
+import task.Task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Жадный планировщик: раскладывает пакет задач по свободным промежуткам расписания.
+ * Задачи обрабатываются по убыванию приоритета, затем по самому раннему допустимому началу,
+ * и каждая занимает первый подходящий промежуток (first fit).
+ * <p>
+ * Свободные промежутки хранятся в декартовом дереве по времени начала, где каждый узел знает
+ * длину самого большого промежутка в своём поддереве. Поэтому первый промежуток нужной длины
+ * находится за O(log n) без перебора коротких промежутков, а после размещения промежуток
+ * укорачивается или делится на два. Время внутри хранится в наносекундах от эпохи UTC,
+ * что покрывает даты до 2262 года.
+ */
+public final class TaskScheduler {
+    private final Random random = new Random(0);
+    private GapNode root;
+    private long tailStart; // После этого времени расписание свободно
+
+    /**
+     * Задача для планирования.
+     *
+     * @param task          Новая обычная задача, её длительность должна быть задана
+     * @param priority      Приоритет: задачи с большим значением размещаются раньше
+     * @param earliestStart Самое раннее допустимое начало; null — без ограничения
+     */
+    public record Job(Task task, int priority, LocalDateTime earliestStart) {
+    }
+
+    /**
+     * Строит дерево свободных промежутков после notBefore по задачам, отсортированным по времени начала.
+     *
+     * @param scheduled Задачи расписания в порядке времени начала
+     * @param notBefore Время, раньше которого задачи не размещаются
+     */
+    TaskScheduler(Iterable<Task> scheduled, LocalDateTime notBefore) {
+        long cursor = toNanos(notBefore);
+        for (Task task : scheduled) {
+            LocalDateTime startTime = ScheduleIndex.startOf(task);
+            LocalDateTime endTime = ScheduleIndex.endOf(task);
+            if (startTime == null || endTime == null) {
+                continue;
+            }
+            long end = toNanos(endTime);
+            if (end <= cursor) {
+                continue;
+            }
+            long start = toNanos(startTime);
+            if (start > cursor) {
+                insert(new GapNode(cursor, start, random.nextInt()));
+            }
+            cursor = end;
+        }
+        tailStart = cursor;
+    }
+
+    /**
+     * Раскладывает задания и назначает задачам время начала.
+     * Задания размещаются по убыванию приоритета, затем по раннему началу; при равенстве — в исходном порядке.
+     *
+     * @param jobs      Задания
+     * @param notBefore Время, раньше которого задачи не размещаются
+     */
+    void scheduleAll(List<Job> jobs, LocalDateTime notBefore) {
+        long lowerBound = toNanos(notBefore);
+        Placement[] order = new Placement[jobs.size()];
+        for (int i = 0; i < order.length; i++) {
+            Job job = jobs.get(i);
+            long earliest = job.earliestStart() == null ? lowerBound
+                    : Math.max(lowerBound, toNanos(job.earliestStart()));
+            order[i] = new Placement(job.task(), job.priority(), earliest);
+        }
+        Arrays.sort(order);
+        for (Placement placement : order) {
+            long start = place(placement.earliest, placement.task.getDuration().toNanos());
+            placement.task.setStartTime(fromNanos(start));
+        }
+    }
+
+    /**
+     * Находит первый свободный промежуток длиной не меньше duration, начиная с from, и занимает его.
+     *
+     * @return Время начала размещённой задачи
+     */
+    private long place(long from, long duration) {
+        GapNode gap = floor(from);
+        long start;
+        if (gap != null && from + duration <= gap.end) {
+            start = from;
+        } else {
+            gap = firstFitting(root, from, duration);
+            start = gap == null ? 0 : gap.start;
+        }
+
+        if (gap == null) {
+            start = Math.max(from, tailStart);
+            if (start > tailStart) {
+                insert(new GapNode(tailStart, start, random.nextInt()));
+            }
+            tailStart = start + duration;
+            return start;
+        }
+        long end = start + duration;
+        long gapEnd = gap.end;
+        // Оставшиеся части лежат внутри исходного промежутка, поэтому узел можно изменить на месте
+        if (start > gap.start) {
+            root = resize(root, gap.start, gap.start, start);
+            if (end < gapEnd) {
+                insert(new GapNode(end, gapEnd, random.nextInt()));
+            }
+        } else if (end < gapEnd) {
+            root = resize(root, gap.start, end, gapEnd);
+        } else {
+            remove(gap.start);
+        }
+        return start;
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), time.getNano());
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Промежуток с наибольшим началом, не превосходящим time.
+     */
+    private GapNode floor(long time) {
+        GapNode node = root;
+        GapNode result = null;
+        while (node != null) {
+            if (node.start > time) {
+                node = node.left;
+            } else {
+                result = node;
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Самый ранний промежуток, который начинается после from и вмещает duration.
+     */
+    private static GapNode firstFitting(GapNode node, long from, long duration) {
+        if (node == null || node.maxLength < duration) {
+            return null;
+        }
+        if (node.start <= from) {
+            return firstFitting(node.right, from, duration);
+        }
+        GapNode found = firstFitting(node.left, from, duration);
+        if (found != null) {
+            return found;
+        }
+        if (node.end - node.start >= duration) {
+            return node;
+        }
+        return firstFitting(node.right, from, duration);
+    }
+
+    private void insert(GapNode node) {
+        GapNode[] parts = split(root, node.start);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    /**
+     * Сужает промежуток с началом key до [start, end), не выходя за его прежние границы,
+     * и обновляет максимальные длины на пути от корня.
+     */
+    private static GapNode resize(GapNode node, long key, long start, long end) {
+        if (node.start == key) {
+            node.start = start;
+            node.end = end;
+        } else if (key < node.start) {
+            node.left = resize(node.left, key, start, end);
+        } else {
+            node.right = resize(node.right, key, start, end);
+        }
+        node.update();
+        return node;
+    }
+
+    private void remove(long start) {
+        root = remove(root, start);
+    }
+
+    private static GapNode remove(GapNode node, long start) {
+        if (node == null) {
+            return null;
+        }
+        int compare = Long.compare(start, node.start);
+        if (compare == 0) {
+            return merge(node.left, node.right);
+        }
+        if (compare < 0) {
+            node.left = remove(node.left, start);
+        } else {
+            node.right = remove(node.right, start);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Делит дерево на промежутки, начинающиеся раньше key, и все остальные.
+     */
+    private static GapNode[] split(GapNode node, long key) {
+        if (node == null) {
+            return new GapNode[]{null, null};
+        }
+        if (node.start < key) {
+            GapNode[] parts = split(node.right, key);
+            node.right = parts[0];
+            node.update();
+            return new GapNode[]{node, parts[1]};
+        }
+        GapNode[] parts = split(node.left, key);
+        node.left = parts[1];
+        node.update();
+        return new GapNode[]{parts[0], node};
+    }
+
+    private static GapNode merge(GapNode left, GapNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static final class Placement implements Comparable<Placement> {
+        private final Task task;
+        private final int priority;
+        private final long earliest;
+
+        private Placement(Task task, int priority, long earliest) {
+            this.task = task;
+            this.priority = priority;
+            this.earliest = earliest;
+        }
+
+        @Override
+        public int compareTo(Placement other) {
+            int byPriority = Integer.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(earliest, other.earliest);
+        }
+    }
+
+    private static final class GapNode {
+        private long start;
+        private long end;
+        private final int priority;
+        private long maxLength; // Наибольшая длина промежутка в поддереве
+        private GapNode left;
+        private GapNode right;
+
+        private GapNode(long start, long end, int priority) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxLength = end - start;
+        }
+
+        private void update() {
+            maxLength = end - start;
+            if (left != null && left.maxLength > maxLength) {
+                maxLength = left.maxLength;
+            }
+            if (right != null && right.maxLength > maxLength) {
+                maxLength = right.maxLength;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package management;
+
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние открытой транзакции {@link InMemoryTaskManager}: исходные значения полей каждой задачи,
+ * которую затронули операции транзакции, и эпики, пересчёт которых отложен до фиксации.
+ * Задачи сравниваются по ссылке, потому что у новых задач до создания ещё нет идентификатора.
+ */
+final class Transaction {
+    private final int savedId;
+    private final Map<Task, Snapshot> touched = new IdentityHashMap<>();
+    private final Set<Epic> pendingEpics = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Значения полей задачи до первого изменения в транзакции.
+     *
+     * @param managed Была ли задача в менеджере
+     */
+    record Snapshot(int id, String name, String description, Status status, LocalDateTime startTime,
+                    Duration duration, LocalDateTime epicEndTime, Epic epic, boolean managed) {
+
+        /**
+         * Возвращает задаче сохранённые значения полей. Задача не должна быть в индексах менеджера.
+         */
+        void restore(Task task) {
+            task.setId(id);
+            task.setName(name);
+            task.setDescription(description);
+            task.setStatus(status);
+            task.setStartTime(startTime);
+            task.setDuration(duration);
+            if (task instanceof Epic epicTask) {
+                epicTask.setEpicEndTime(epicEndTime);
+            } else if (task instanceof SubTask subTask) {
+                subTask.setEpic(epic);
+            }
+        }
+    }
+
+    Transaction(int savedId) {
+        this.savedId = savedId;
+    }
+
+    int savedId() {
+        return savedId;
+    }
+
+    /**
+     * Запоминает состояние задачи, если в этой транзакции она ещё не менялась.
+     */
+    void touch(Task task, boolean managed) {
+        if (touched.containsKey(task)) {
+            return;
+        }
+        Duration duration = task instanceof Epic epic ? epic.getEpicDuration() : rawDuration(task);
+        touched.put(task, new Snapshot(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), duration, task instanceof Epic epic ? epic.getEpicEndTime() : null,
+                task instanceof SubTask subTask ? subTask.getEpic() : null, managed));
+    }
+
+    Map<Task, Snapshot> touched() {
+        return touched;
+    }
+
+    void deferEpic(Epic epic) {
+        pendingEpics.add(epic);
+    }
+
+    Set<Epic> pendingEpics() {
+        return pendingEpics;
+    }
+
+    private static Duration rawDuration(Task task) {
+        try {
+            return task.getDuration();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeSet;
@@ -17,7 +20,16 @@ public class Epic extends Task {
             Comparator.comparing(SubTask::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
                     .thenComparing(SubTask::getId)
     );
-    private LocalDateTime epicEndTime; // Время окончания эпика (=времени окончания 1 задачи в subtasks) (2023-11-15T14:30)
+    private final NavigableSet<SubTask> subTasksView = Collections.unmodifiableNavigableSet(prioritizedSubTasks);
+    // Те же подзадачи, упорядоченные по времени окончания: последняя определяет окончание эпика
+    private final TreeSet<SubTask> subTasksByEndTime = new TreeSet<>(
+            Comparator.comparing(SubTask::getEndTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(SubTask::getId)
+    );
+    private Duration subTasksDuration = Duration.ZERO; // Суммарная длительность подзадач
+    // Количество подзадач в каждом статусе, индекс — Status.ordinal()
+    private final int[] statusCounts = new int[Status.values().length];
+    private LocalDateTime epicEndTime; // Время окончания эпика (=самому позднему окончанию подзадач) (2023-11-15T14:30)
 
     /**
      * Конструктор для создания эпика, когда список подзадач неизвестен.
@@ -32,39 +44,52 @@ public class Epic extends Task {
 
     /**
      * Метод для обновления статуса эпика на основе статусов его подзадач.
+     * Статус вычисляется за O(1) по счётчикам подзадач в каждом статусе.
      * Логика обновления:
      * 1. Если список подзадач пуст или все подзадачи имеют статус NEW, то статус эпика — NEW.
      * 2. Если все подзадачи имеют статус DONE, то статус эпика — DONE.
      * 3. В остальных случаях статус эпика — IN_PROGRESS.
      */
     public void updateEpicStatus(Epic epic) {
-        if (prioritizedSubTasks.isEmpty()) {
-            epic.setStatus(Status.NEW); // Если подзадач нет, статус NEW
-            return;
-        }
-
-        boolean allDone = true; // Предполагаем, что все подзадачи завершены
-        boolean allNew = true;  // Предполагаем, что все подзадачи новые
-        // Проверяем статусы всех подзадач
-        for (SubTask subTask : prioritizedSubTasks) {
-            if (subTask.getStatus() != Status.DONE) {
-                allDone = false; // Если хотя бы одна подзадача не DONE, то Epic не DONE
-            }
-            if (subTask.getStatus() != Status.NEW) {
-                allNew = false; // Если хотя бы одна подзадача не NEW, то Epic не NEW
-            }
-        }
-        // Устанавливаем статус эпика на основе проверки
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (allNew) {
+        int total = prioritizedSubTasks.size();
+        if (total == 0 || statusCounts[Status.NEW.ordinal()] == total) {
             epic.setStatus(Status.NEW);
+        } else if (statusCounts[Status.DONE.ordinal()] == total) {
+            epic.setStatus(Status.DONE);
         } else {
             epic.setStatus(Status.IN_PROGRESS);
         }
     }
 
+    /**
+     * Проверяет, что счётчики статусов совпадают с полным пересчётом по подзадачам.
+     * Счётчики расходятся, если статус или время подзадачи изменили, пока она входит в эпик,
+     * поэтому менеджер убирает подзадачу из эпика до изменения и возвращает после.
+     *
+     * @return true, если счётчики согласованы
+     */
+    public boolean hasConsistentStatusCounts() {
+        int[] actual = new int[statusCounts.length];
+        for (SubTask subTask : prioritizedSubTasks) {
+            actual[subTask.getStatus().ordinal()]++;
+        }
+        return Arrays.equals(actual, statusCounts);
+    }
+
+    public int getSubTaskCount(Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
     public void updateEpicTimes(Epic epic) {
+        updateEpicInterval(epic);
+        updateEpicDuration(epic);
+    }
+
+    /**
+     * Пересчитывает время начала и окончания эпика: начало — у самой ранней подзадачи,
+     * окончание — самое позднее среди всех подзадач. Выполняется за O(log n).
+     */
+    public void updateEpicInterval(Epic epic) {
         if (prioritizedSubTasks.isEmpty()) {
             epic.setEpicStartTime(this.startTime);
             epic.setEpicEndTime(this.epicEndTime);
@@ -74,26 +99,70 @@ public class Epic extends Task {
         SubTask first = prioritizedSubTasks.first();
         epic.setEpicStartTime(first.getStartTime());
 
-        SubTask last = prioritizedSubTasks.last();
+        SubTask last = subTasksByEndTime.last();
         epic.setEpicEndTime(last.getEndTime());
+    }
+
+    /**
+     * Устанавливает суммарную длительность подзадач эпика, которая поддерживается при их добавлении и удалении.
+     */
+    public void updateEpicDuration(Epic epic) {
+        if (prioritizedSubTasks.isEmpty()) {
+            return;
+        }
+        epic.setEpicDuration(subTasksDuration);
+    }
 
+    /**
+     * Проверяет счётчики статусов, суммарную длительность и индекс по времени окончания
+     * против полного пересчёта по подзадачам.
+     *
+     * @return true, если все поддерживаемые значения согласованы
+     */
+    public boolean hasConsistentAggregates() {
         Duration duration = prioritizedSubTasks.stream()
-                .map(SubTask::getDuration)
+                .map(subTask -> subTask.duration)
                 .filter(Objects::nonNull)
                 .reduce(Duration.ZERO, Duration::plus);
-        epic.setEpicDuration(duration);
+        return hasConsistentStatusCounts()
+                && duration.equals(subTasksDuration)
+                && subTasksByEndTime.size() == prioritizedSubTasks.size()
+                && subTasksByEndTime.containsAll(prioritizedSubTasks);
     }
 
     public void setPrioritizedSubTasks(SubTask subTask) {
-        prioritizedSubTasks.add(subTask);
+        if (prioritizedSubTasks.add(subTask)) {
+            subTasksByEndTime.add(subTask);
+            statusCounts[subTask.getStatus().ordinal()]++;
+            if (subTask.duration != null) {
+                subTasksDuration = subTasksDuration.plus(subTask.duration);
+            }
+        }
     }
 
     public void deletePrioritizedSubTasks(SubTask subTask) {
-        prioritizedSubTasks.remove(subTask);
+        if (prioritizedSubTasks.remove(subTask)) {
+            subTasksByEndTime.remove(subTask);
+            statusCounts[subTask.getStatus().ordinal()]--;
+            if (subTask.duration != null) {
+                subTasksDuration = subTasksDuration.minus(subTask.duration);
+            }
+        }
+    }
+
+    public void clearPrioritizedSubTasks() {
+        prioritizedSubTasks.clear();
+        subTasksByEndTime.clear();
+        Arrays.fill(statusCounts, 0);
+        subTasksDuration = Duration.ZERO;
     }
 
-    public TreeSet<SubTask> getPrioritizedSubTasks() {
-        return prioritizedSubTasks;
+    /**
+     * Возвращает подзадачи эпика, отсортированные по времени начала, только для чтения.
+     * Изменять состав подзадач нужно через методы эпика, чтобы счётчики статусов оставались верными.
+     */
+    public NavigableSet<SubTask> getPrioritizedSubTasks() {
+        return subTasksView;
     }
 
     public void setEpicStartTime(LocalDateTime epicStartTime) {
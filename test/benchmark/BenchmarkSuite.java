@@ -0,0 +1,472 @@
+package benchmark;
+
+import management.FileBackedTaskManager;
+import management.InMemoryHistoryManager;
+import management.InMemoryTaskManager;
+import management.StorageFormat;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Набор замеров горячих путей TaskManager и HistoryManager на досках разного размера.
+ * Запуск одной командой из корня репозитория:
+ * <pre>
+ * javac -encoding UTF-8 -d out/bench $(find src test/benchmark -name '*.java') &amp;&amp; java -Xmx2g -cp out/bench benchmark.BenchmarkSuite
+ * </pre>
+ * Параметры (все необязательные):
+ * <pre>
+ * --sizes=1000,10000,100000  размеры доски
+ * --filter=regex             только замеры, имя которых содержит совпадение
+ * --warmup=3 --iterations=5  количество прогревочных и измеряемых прогонов
+ * --format=csv|json          CSV (по умолчанию) или JSON Lines
+ * </pre>
+ * Каждый прогон выполняет серию операций; в результат попадает медиана и минимум времени на операцию
+ * по измеряемым прогонам, а также медиана выделенной памяти на операцию (com.sun.management.ThreadMXBean).
+ * Результат CSV: benchmark,size,ops,median_ns_per_op,min_ns_per_op,bytes_per_op
+ */
+public class BenchmarkSuite {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final LocalDateTime BASE = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /**
+     * Замер: подготавливает состояние для размера доски и выполняет серию операций.
+     */
+    private interface Scenario {
+        void setUp(int size) throws IOException;
+
+        /**
+         * @return Количество выполненных операций
+         */
+        int run() throws IOException;
+
+        default void tearDown() throws IOException {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int[] sizes = Arrays.stream(options.getOrDefault("sizes", "1000,10000,100000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Pattern filter = Pattern.compile(options.getOrDefault("filter", ""));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        boolean json = options.getOrDefault("format", "csv").equals("json");
+
+        Map<String, Supplier<Scenario>> scenarios = new LinkedHashMap<>();
+        scenarios.put("manager.crudMix", CrudMix::new);
+        scenarios.put("manager.createOverlapCheck", CreateOverlapCheck::new);
+        scenarios.put("manager.epicRecompute", EpicRecompute::new);
+        scenarios.put("manager.getTask", GetTask::new);
+        scenarios.put("history.churn", () -> new HistoryChurn(0));
+        scenarios.put("history.churnBounded", () -> new HistoryChurn(100));
+        scenarios.put("history.readFull", () -> new HistoryRead(0));
+        scenarios.put("history.readLatest20", () -> new HistoryRead(20));
+        scenarios.put("file.saveCsv", () -> new Save(StorageFormat.CSV));
+        scenarios.put("file.saveBinary", () -> new Save(StorageFormat.BINARY));
+        scenarios.put("file.loadCsv", () -> new Load(StorageFormat.CSV));
+        scenarios.put("file.loadBinary", () -> new Load(StorageFormat.BINARY));
+
+        if (!json) {
+            System.out.println("benchmark,size,ops,median_ns_per_op,min_ns_per_op,bytes_per_op");
+        }
+        for (Map.Entry<String, Supplier<Scenario>> entry : scenarios.entrySet()) {
+            if (!filter.matcher(entry.getKey()).find()) {
+                continue;
+            }
+            for (int size : sizes) {
+                Scenario scenario = entry.getValue().get();
+                scenario.setUp(size);
+                try {
+                    report(entry.getKey(), size, measure(scenario, warmup, iterations), json);
+                } finally {
+                    scenario.tearDown();
+                }
+            }
+        }
+    }
+
+    private record Result(int ops, double medianNanos, double minNanos, double bytes) {
+    }
+
+    private static Result measure(Scenario scenario, int warmup, int iterations) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            scenario.run();
+        }
+        double[] nanos = new double[iterations];
+        double[] bytes = new double[iterations];
+        int ops = 0;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            ops = scenario.run();
+            nanos[i] = (double) (System.nanoTime() - start) / ops;
+            bytes[i] = (double) (THREADS.getThreadAllocatedBytes(thread) - allocatedBefore) / ops;
+        }
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        return new Result(ops, nanos[iterations / 2], nanos[0], bytes[iterations / 2]);
+    }
+
+    private static void report(String name, int size, Result result, boolean json) {
+        if (json) {
+            System.out.printf(Locale.ROOT, "{\"benchmark\":\"%s\",\"size\":%d,\"ops\":%d,\"medianNsPerOp\":%.1f,"
+                            + "\"minNsPerOp\":%.1f,\"bytesPerOp\":%.1f}%n",
+                    name, size, result.ops(), result.medianNanos(), result.minNanos(), result.bytes());
+        } else {
+            System.out.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.1f,%.1f%n",
+                    name, size, result.ops(), result.medianNanos(), result.minNanos(), result.bytes());
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Ожидается параметр вида --имя=значение: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Заполняет менеджер доской без пересечений: задачи по 30 минут в начале каждого часа,
+     * каждая десятая — эпик, за ним пять его подзадач, остальные — обычные задачи.
+     *
+     * @return Обычные задачи доски
+     */
+    static List<Task> fillBoard(InMemoryTaskManager manager, int size) {
+        List<Task> batch = new ArrayList<>(size);
+        List<Task> plain = new ArrayList<>();
+        Epic epic = null;
+        for (int i = 0; i < size; i++) {
+            String start = slot(i).format(Task.formatter);
+            int position = i % 10;
+            if (position == 0) {
+                epic = new Epic("Epic" + i, "description");
+                batch.add(epic);
+            } else if (position <= 5) {
+                batch.add(new SubTask("SubTask" + i, "description", start, 30L, epic));
+            } else {
+                Task task = new Task("Task" + i, "description", start, 30L);
+                batch.add(task);
+                plain.add(task);
+            }
+        }
+        manager.createAll(batch);
+        return plain;
+    }
+
+    private static LocalDateTime slot(long index) {
+        return BASE.plusHours(index);
+    }
+
+    /**
+     * Операций в прогоне: на больших досках меньше, чтобы прогон не длился слишком долго.
+     */
+    private static int opsFor(int size, int budget) {
+        return Math.max(1, Math.min(10_000, budget / size));
+    }
+
+    /**
+     * Смесь изменений: 60% переносов задачи внутри её часа, 20% созданий после конца доски
+     * и 20% удалений ранее созданных задач. Каждое создание и перенос проверяют пересечения.
+     */
+    private static class CrudMix implements Scenario {
+        private final Random random = new Random(42);
+        private InMemoryTaskManager manager;
+        private List<Task> plain;
+        private final List<Integer> created = new ArrayList<>();
+        private long nextSlot;
+
+        @Override
+        public void setUp(int size) {
+            manager = new InMemoryTaskManager();
+            plain = fillBoard(manager, size);
+            nextSlot = size;
+        }
+
+        @Override
+        public int run() {
+            int ops = 10_000;
+            for (int i = 0; i < ops; i++) {
+                switch (i % 5) {
+                    case 0 -> {
+                        Task task = new Task("Extra", "description", slot(nextSlot++).format(Task.formatter), 30L);
+                        manager.createTask(task);
+                        created.add(task.getId());
+                    }
+                    case 1 -> manager.deleteTask(created.remove(created.size() - 1));
+                    default -> {
+                        Task task = plain.get(random.nextInt(plain.size()));
+                        LocalDateTime start = task.getStartTime();
+                        int offset = start.getMinute() == 0 ? 15 : -15;
+                        manager.updateTask(task, null, null, null,
+                                start.plusMinutes(offset).format(Task.formatter), 30L);
+                    }
+                }
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Чтение случайных задач по id: каждое чтение записывает просмотр в историю менеджера.
+     */
+    private static class GetTask implements Scenario {
+        private final Random random = new Random(42);
+        private InMemoryTaskManager manager;
+        private int[] ids;
+
+        @Override
+        public void setUp(int size) {
+            manager = new InMemoryTaskManager();
+            ids = fillBoard(manager, size).stream().mapToInt(Task::getId).toArray();
+        }
+
+        @Override
+        public int run() {
+            int ops = 100_000;
+            for (int i = 0; i < ops; i++) {
+                manager.getTask(ids[random.nextInt(ids.length)]);
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Попытка создать задачу на занятое время: проверка пересечений без изменения доски.
+     */
+    private static class CreateOverlapCheck implements Scenario {
+        private final Random random = new Random(42);
+        private InMemoryTaskManager manager;
+        private int size;
+
+        @Override
+        public void setUp(int size) {
+            this.size = size;
+            manager = new InMemoryTaskManager();
+            fillBoard(manager, size);
+        }
+
+        @Override
+        public int run() {
+            int ops = 10_000;
+            for (int i = 0; i < ops; i++) {
+                Task task = new Task("Overlap", "description",
+                        slot(random.nextInt(size)).plusMinutes(10).format(Task.formatter), 10L);
+                try {
+                    manager.createTask(task);
+                    manager.deleteTask(task.getId()); // Попали в эпик без подзадач — время свободно
+                } catch (RuntimeException expected) {
+                    // Пересечение найдено
+                }
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Смена статуса подзадачи в одном большом эпике из size подзадач: пересчёт статуса, времени и длительности эпика.
+     */
+    private static class EpicRecompute implements Scenario {
+        private final Random random = new Random(42);
+        private InMemoryTaskManager manager;
+        private final List<SubTask> subTasks = new ArrayList<>();
+
+        @Override
+        public void setUp(int size) {
+            manager = new InMemoryTaskManager();
+            Epic epic = new Epic("Epic", "description");
+            List<Task> batch = new ArrayList<>(size + 1);
+            batch.add(epic);
+            for (int i = 0; i < size; i++) {
+                SubTask subTask = new SubTask("SubTask" + i, "description", slot(i).format(Task.formatter), 30L, epic);
+                batch.add(subTask);
+                subTasks.add(subTask);
+            }
+            manager.createAll(batch);
+        }
+
+        @Override
+        public int run() {
+            int ops = 10_000;
+            for (int i = 0; i < ops; i++) {
+                SubTask subTask = subTasks.get(random.nextInt(subTasks.size()));
+                Status status = subTask.getStatus() == Status.DONE ? Status.NEW : Status.DONE;
+                manager.updateSubTask(subTask, null, null, status, null, null, null);
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Просмотры случайных задач из size разных: каждая запись перемещает задачу в конец истории,
+     * а в ограниченной истории большинство просмотров вытесняет самую старую запись.
+     */
+    private static class HistoryChurn implements Scenario {
+        private final Random random = new Random(42);
+        private final int capacity; // 0 — без ограничения
+        private InMemoryHistoryManager history;
+        private Task[] tasks;
+
+        HistoryChurn(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void setUp(int size) {
+            history = capacity == 0 ? new InMemoryHistoryManager() : new InMemoryHistoryManager(capacity);
+            tasks = new Task[size];
+            for (int i = 0; i < size; i++) {
+                tasks[i] = new Task("Task" + i, "description");
+                tasks[i].setId(i + 1);
+            }
+        }
+
+        @Override
+        public int run() {
+            int ops = 100_000;
+            for (int i = 0; i < ops; i++) {
+                history.addToHistory(tasks[random.nextInt(tasks.length)]);
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Чтение истории из size просмотров: полная копия {@link InMemoryHistoryManager#getHistory()}
+     * против последних limit задач через {@link InMemoryHistoryManager#getLatest(int)}.
+     */
+    private static class HistoryRead implements Scenario {
+        private final int limit; // 0 — вся история
+        private InMemoryHistoryManager history;
+        private int checksum;
+
+        HistoryRead(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void setUp(int size) {
+            history = new InMemoryHistoryManager();
+            for (int i = 0; i < size; i++) {
+                Task task = new Task("Task" + i, "description");
+                task.setId(i + 1);
+                history.addToHistory(task);
+            }
+        }
+
+        @Override
+        public int run() {
+            int ops = 1_000;
+            for (int i = 0; i < ops; i++) {
+                List<Task> page = limit == 0 ? history.getHistory() : history.getLatest(limit);
+                checksum += page.size();
+            }
+            return ops;
+        }
+    }
+
+    /**
+     * Полная перезапись снимка после изменения одной задачи.
+     */
+    private static class Save implements Scenario {
+        private final StorageFormat format;
+        private Path dir;
+        private FileBackedTaskManager manager;
+        private List<Task> plain;
+        private int ops;
+
+        Save(StorageFormat format) {
+            this.format = format;
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            dir = Files.createTempDirectory("kanban-bench");
+            manager = new FileBackedTaskManager(dir.resolve("tasks").toString(), format);
+            plain = fillBoard(manager, size);
+            ops = opsFor(size, 1_000_000);
+        }
+
+        @Override
+        public int run() {
+            for (int i = 0; i < ops; i++) {
+                manager.updateTask(plain.get(i % plain.size()), "Renamed" + i, null, null, null, null);
+            }
+            return ops;
+        }
+
+        @Override
+        public void tearDown() throws IOException {
+            manager.close();
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Загрузка менеджера из снимка доски.
+     */
+    private static class Load implements Scenario {
+        private final StorageFormat format;
+        private Path dir;
+        private Path file;
+        private int ops;
+
+        Load(StorageFormat format) {
+            this.format = format;
+        }
+
+        @Override
+        public void setUp(int size) throws IOException {
+            dir = Files.createTempDirectory("kanban-bench");
+            file = dir.resolve("tasks");
+            try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), format)) {
+                fillBoard(manager, size);
+            }
+            ops = opsFor(size, 1_000_000);
+        }
+
+        @Override
+        public int run() {
+            for (int i = 0; i < ops; i++) {
+                new FileBackedTaskManager(file.toString(), format).loadFromFile(file.toFile()).close();
+            }
+            return ops;
+        }
+
+        @Override
+        public void tearDown() throws IOException {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+}
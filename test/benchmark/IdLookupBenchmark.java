@@ -0,0 +1,70 @@
+package benchmark;
+
+import management.IntMap;
+import task.Task;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Сравнение поиска задачи по id: HashMap&lt;Integer, Task&gt; против IntMap.
+ * Запуск: java -cp &lt;classes&gt; benchmark.IdLookupBenchmark [количество задач] [количество поисков]
+ * Кроме времени замеряется выделенная потоком память на один поиск (через com.sun.management.ThreadMXBean):
+ * HashMap упаковывает каждый id больше 127, IntMap не должен выделять ничего.
+ * Результат выводится в формате CSV: map,tasks,lookups,nanos_per_get,bytes_per_get
+ */
+public class IdLookupBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        HashMap<Integer, Task> hashMap = new HashMap<>();
+        IntMap<Task> intMap = new IntMap<>();
+        for (int id = 1; id <= size; id++) {
+            Task task = new Task("Task" + id, "description");
+            task.setId(id);
+            hashMap.put(id, task);
+            intMap.put(id, task);
+        }
+        int[] ids = new int[1 << 16];
+        Random random = new Random(42);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextInt(size);
+        }
+
+        System.out.println("map,tasks,lookups,nanos_per_get,bytes_per_get");
+        for (int round = 0; round < 3; round++) { // Первые проходы — прогрев
+            boolean print = round == 2;
+            measure("HashMap", size, lookups, print, ids, id -> hashMap.get(id));
+            measure("IntMap", size, lookups, print, ids, intMap::get);
+        }
+    }
+
+    private interface Lookup {
+        Task get(int id);
+    }
+
+    private static void measure(String name, int size, int lookups, boolean print, int[] ids, Lookup lookup) {
+        long thread = Thread.currentThread().getId();
+        int mask = ids.length - 1;
+        long found = 0;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            Task task = lookup.get(ids[i & mask]);
+            found += task.getId();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+        if (print) {
+            System.out.printf("%s,%d,%d,%.1f,%.2f%n", name, size, lookups, (double) nanos / lookups,
+                    (double) allocated / lookups);
+        }
+        if (found == 0) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import management.CompactTaskManager;
+import management.InMemoryTaskManager;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сравнение занимаемой памяти: InMemoryTaskManager против CompactTaskManager на 1 млн задач.
+ * Запуск: java -Xmx3g -cp &lt;classes&gt; benchmark.MemoryFootprintBenchmark [количество задач]
+ * Каждая десятая задача — эпик, за ним пять его подзадач, остальные — обычные задачи.
+ * <p>
+ * Строки названий и описаний создаются заранее и общие для обоих менеджеров, поэтому в строки
+ * manager и compact они не входят: это накладные расходы структуры без текста. Строка text показывает
+ * сам текст; полный размер варианта — его строка плюс text. Компактный менеджер хранит только строки
+ * массивов, поэтому объекты задач, которые он собирает при чтении, здесь не учитываются.
+ * Результат выводится в формате CSV: storage,tasks,bytes,bytes_per_task
+ */
+public class MemoryFootprintBenchmark {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("storage,tasks,bytes,bytes_per_task");
+        long before = usedMemory();
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = "Task" + i;
+        }
+        print("text", size, usedMemory() - before);
+
+        before = usedMemory();
+        InMemoryTaskManager manager = fill(names);
+        long managerBytes = usedMemory() - before;
+        print("manager", size, managerBytes);
+
+        before = usedMemory();
+        CompactTaskManager compact = new CompactTaskManager(manager);
+        long compactBytes = usedMemory() - before;
+        print("compact", size, compactBytes);
+        int copied = compact.getAllTasks().size() + compact.getAllEpics().size() + compact.getAllSubTasks().size();
+        if (copied != size) {
+            throw new IllegalStateException("В компактном менеджере " + copied + " задач вместо " + size);
+        }
+    }
+
+    private static InMemoryTaskManager fill(String[] names) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<Task> batch = new ArrayList<>(names.length);
+        Epic epic = null;
+        for (int i = 0; i < names.length; i++) {
+            String start = base.plusMinutes(60L * i).format(Task.formatter);
+            int position = i % 10;
+            if (position == 0) {
+                epic = new Epic(names[i], "description");
+                batch.add(epic);
+            } else if (position <= 5) {
+                batch.add(new SubTask(names[i], "description", start, 30L, epic));
+            } else {
+                batch.add(new Task(names[i], "description", start, 30L, Status.NEW));
+            }
+        }
+        manager.createAll(batch);
+        return manager;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void print(String storage, int size, long bytes) {
+        System.out.printf("%s,%d,%d,%d%n", storage, size, bytes, bytes / size);
+    }
+}
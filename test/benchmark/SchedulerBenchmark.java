@@ -0,0 +1,57 @@
+package benchmark;
+
+import management.InMemoryTaskManager;
+import management.TaskScheduler;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Замер планирования пакета задач в свободные промежутки уже заполненного расписания.
+ * Запуск: java -cp &lt;classes&gt; benchmark.SchedulerBenchmark [размер пакета] [задач в расписании]
+ * Результат выводится в формате CSV: existing,batch,millis
+ */
+public class SchedulerBenchmark {
+    public static void main(String[] args) {
+        int batch = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int existing = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        System.out.println("existing,batch,millis");
+        for (int round = 0; round < 2; round++) { // Первый проход — прогрев
+            run(existing, batch, round == 1);
+        }
+    }
+
+    private static void run(int existing, int batch, boolean print) {
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        Random random = new Random(42);
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        // Занятые часы с промежутками разной длины
+        LocalDateTime start = base;
+        for (int i = 0; i < existing; i++) {
+            start = start.plusMinutes(15L * (1 + random.nextInt(8)));
+            Task task = new Task("Existing" + i, "description");
+            task.setStartTime(start);
+            task.setDuration(Duration.ofMinutes(60));
+            manager.createTask(task);
+            start = start.plusMinutes(60);
+        }
+        List<TaskScheduler.Job> jobs = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            Task task = new Task("Planned" + i, "description");
+            task.setDuration(Duration.ofMinutes(15L * (1 + random.nextInt(6))));
+            LocalDateTime earliest = random.nextInt(4) == 0 ? base.plusHours(random.nextInt(existing)) : null;
+            jobs.add(new TaskScheduler.Job(task, random.nextInt(5), earliest));
+        }
+
+        long begin = System.nanoTime();
+        manager.scheduleTasks(jobs, base);
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        if (print) {
+            System.out.printf("%d,%d,%d%n", existing, batch, millis);
+        }
+    }
+}
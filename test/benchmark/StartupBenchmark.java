@@ -0,0 +1,86 @@
+package benchmark;
+
+import management.FileBackedTaskManager;
+import management.SnapshotConverter;
+import task.Task;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Замер времени загрузки FileBackedTaskManager из снимка на 10 тыс., 100 тыс. и 1 млн строк.
+ * Запуск: java -cp &lt;classes&gt; benchmark.StartupBenchmark [количество строк ...]
+ * Каждый размер замеряется для CSV и для двоичного снимка.
+ * Результат выводится в формате CSV: format,rows,millis,tasks,subtasks,epics
+ */
+public class StartupBenchmark {
+    private static final int WARMUP_ROWS = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000} : parseSizes(args);
+        Path dir = Files.createTempDirectory("kanban-startup");
+
+        load(writeBoard(dir.resolve("warmup.csv"), WARMUP_ROWS));
+        System.out.println("format,rows,millis,tasks,subtasks,epics");
+        for (int rows : sizes) {
+            Path file = writeBoard(dir.resolve("board-" + rows + ".csv"), rows);
+            Path binary = dir.resolve("board-" + rows + ".bin");
+            SnapshotConverter.toBinary(file, binary);
+            measure("csv", rows, file);
+            measure("binary", rows, binary);
+            Files.delete(file);
+            Files.delete(binary);
+        }
+        Files.deleteIfExists(dir.resolve("warmup.csv"));
+        Files.delete(dir);
+    }
+
+    private static void measure(String format, int rows, Path file) {
+        long start = System.nanoTime();
+        FileBackedTaskManager manager = load(file);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%s,%d,%d,%d,%d,%d%n", format, rows, millis, manager.getAllTasks().size(),
+                manager.getAllSubTasks().size(), manager.getAllEpics().size());
+    }
+
+    private static FileBackedTaskManager load(Path file) {
+        return new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+    }
+
+    /**
+     * Формирует доску без пересечений: каждая десятая строка — эпик, за ним пять его подзадач,
+     * остальные строки — обычные задачи. Строки перемешаны по времени так же, как при сохранении.
+     */
+    static Path writeBoard(Path file, int rows) throws IOException {
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id,type,name,status,description,startTime,duration,epic\n");
+            int epicId = 0;
+            for (int id = 1; id <= rows; id++) {
+                String start = base.plusMinutes(60L * id).format(Task.formatter);
+                int position = (id - 1) % 10;
+                if (position == 0) {
+                    epicId = id;
+                    writer.write(id + ",EPIC,Epic" + id + ",NEW,description," + start + ",30,\n");
+                } else if (position <= 5) {
+                    writer.write(id + ",SUBTASK,SubTask" + id + ",NEW,description," + start + ",30," + epicId + "\n");
+                } else {
+                    writer.write(id + ",TASK,Task" + id + ",NEW,description," + start + ",30,\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    private static int[] parseSizes(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import management.InMemoryTaskManager;
+import task.Status;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Сравнение выборки задач по статусу через индекс и полным обходом getAllTasks().
+ * Запуск: java -cp &lt;classes&gt; benchmark.StatusQueryBenchmark [количество задач] [количество запросов]
+ * Результат выводится в формате CSV: query,tasks,queries,micros_per_query,result
+ */
+public class StatusQueryBenchmark {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        InMemoryTaskManager manager = fill(size);
+
+        System.out.println("query,tasks,queries,micros_per_query,result");
+        for (int round = 0; round < 2; round++) { // Первый проход — прогрев
+            measure("scan", size, queries, round == 1, () -> scan(manager));
+            measure("index", size, queries, round == 1, () -> manager.getTasksByStatus(Status.IN_PROGRESS).size());
+        }
+    }
+
+    private static InMemoryTaskManager fill(int size) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        Status[] statuses = Status.values();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            Task task = new Task("Task" + i, "description", statuses[random.nextInt(statuses.length)]);
+            task.setStartTime(base.plusMinutes(60L * i));
+            task.setDuration(Duration.ofMinutes(30));
+            manager.createTask(task);
+        }
+        return manager;
+    }
+
+    private static int scan(InMemoryTaskManager manager) {
+        int count = 0;
+        for (Task task : manager.getAllTasks().values()) {
+            if (task.getStatus() == Status.IN_PROGRESS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void measure(String query, int size, int queries, boolean print, Query body) {
+        int result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            result += body.run();
+        }
+        long micros = (System.nanoTime() - start) / 1_000 / queries;
+        if (print) {
+            System.out.printf("%s,%d,%d,%d,%d%n", query, size, queries, micros, result / queries);
+        }
+    }
+
+    private interface Query {
+        int run();
+    }
+}
@@ -0,0 +1,45 @@
+package manager;
+
+import management.BufferedHistoryManager;
+import management.InMemoryHistoryManager;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task task = new Task("Task" + id, "Description");
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void shouldApplyBufferedViewsInOrderWhenFull() {
+        InMemoryHistoryManager history = new InMemoryHistoryManager();
+        BufferedHistoryManager buffered = new BufferedHistoryManager(history, 4);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            tasks.add(task(i));
+            buffered.addToHistory(tasks.get(i - 1));
+        }
+        assertTrue(history.size() >= 6, "Заполненный буфер переносится в историю писателем");
+        assertEquals(10, buffered.getHistory().size(), "Чтение истории переносит остаток буфера");
+        assertEquals(tasks.get(9), buffered.getHistory().get(0));
+        assertEquals(0, buffered.drain(), "Буфер пуст после чтения истории");
+    }
+
+    @Test
+    void removeShouldNotBeUndoneByBufferedView() {
+        BufferedHistoryManager buffered = new BufferedHistoryManager(new InMemoryHistoryManager());
+        Task first = task(1);
+        buffered.addToHistory(first);
+        buffered.addToHistory(task(2));
+        buffered.remove(first.getId());
+        assertEquals(List.of(2), buffered.getHistory().stream().map(Task::getId).toList());
+    }
+}
@@ -0,0 +1,184 @@
+package manager;
+
+import exceptions.BatchOverlapException;
+import exceptions.TaskOverlapException;
+import management.CompactTaskManager;
+import management.InMemoryTaskManager;
+import management.Managers;
+import management.TaskManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTaskManagerTest {
+    private final LocalDateTime base = LocalDateTime.of(2030, 1, 1, 9, 0);
+    private InMemoryTaskManager source;
+    private TaskManager compact;
+    private Epic epic;
+    private SubTask first;
+    private Task task;
+
+    @BeforeEach
+    void setUp() {
+        source = new InMemoryTaskManager();
+        epic = new Epic("Epic", "Description");
+        source.createEpic(epic);
+        first = new SubTask("First", "Description", "01.01.2030 09:00", 60L, epic);
+        first.setStatus(Status.DONE);
+        source.createSubTask(first);
+        source.createSubTask(new SubTask("Second", "Description", "01.01.2030 12:00", 30L, epic));
+        task = new Task("Task", "Description", "01.01.2030 13:00", 45L);
+        source.createTask(task);
+        Task untimed = new Task("Untimed", "Description", Status.IN_PROGRESS);
+        untimed.setStartTime(null);
+        untimed.setDuration(null);
+        source.createTask(untimed);
+        source.createEpic(new Epic("Empty", "Description"));
+        compact = new CompactTaskManager(source);
+    }
+
+    @Test
+    void shouldReturnSameTasksAsSource() {
+        assertEquals(source.getAllTasks().keySet(), compact.getAllTasks().keySet());
+        assertEquals(source.getAllEpics().keySet(), compact.getAllEpics().keySet());
+        assertEquals(source.getAllSubTasks().keySet(), compact.getAllSubTasks().keySet());
+        assertNull(compact.getAllTasks().get(epic.getId()), "Эпик не попадает в обычные задачи");
+
+        Epic restored = compact.getEpic(epic.getId());
+        assertEquals(Status.IN_PROGRESS, restored.getStatus());
+        assertEquals(epic.getEpicStartTime(), restored.getEpicStartTime());
+        assertEquals(epic.getEpicEndTime(), restored.getEpicEndTime());
+        assertEquals(2, restored.getPrioritizedSubTasks().size(), "Эпик собирается с подзадачами");
+        assertSame(restored, restored.getPrioritizedSubTasks().first().getEpic());
+        assertEquals(epic.getId(), compact.getSubTask(first.getId()).getEpic().getId());
+        assertNotSame(compact.getTask(task.getId()), compact.getTask(task.getId()), "Задачи собираются при обращении");
+    }
+
+    @Test
+    void shouldAnswerQueriesLikeSource() {
+        assertEquals(ids(source.getPrioritizedTasks()), ids(compact.getPrioritizedTasks()));
+        for (Status status : Status.values()) {
+            assertEquals(ids(source.getTasksByStatus(status)), ids(compact.getTasksByStatus(status)));
+            assertEquals(ids(source.getSubTasksByStatus(status)), ids(compact.getSubTasksByStatus(status)));
+            assertEquals(ids(source.getEpicsByStatus(status)), ids(compact.getEpicsByStatus(status)));
+        }
+        for (int minutes = -60; minutes <= 300; minutes += 15) {
+            LocalDateTime time = base.plusMinutes(minutes);
+            assertEquals(ids(source.getTasksActiveAt(time)), ids(compact.getTasksActiveAt(time)), "В " + time);
+            assertEquals(ids(source.getNextTasks(time, 2)), ids(compact.getNextTasks(time, 2)), "После " + time);
+            assertEquals(ids(source.getTasksStartingBetween(time, time.plusHours(2))),
+                    ids(compact.getTasksStartingBetween(time, time.plusHours(2))), "С " + time);
+            assertEquals(source.findNextFreeSlot(time, Duration.ofMinutes(45)),
+                    compact.findNextFreeSlot(time, Duration.ofMinutes(45)), "Окно после " + time);
+            assertEquals(source.findNextFreeSlot(epic, time, Duration.ofMinutes(45)),
+                    compact.findNextFreeSlot(epic, time, Duration.ofMinutes(45)), "Окно эпика после " + time);
+        }
+        assertEquals(source.findFreeSlots(base, Duration.ofMinutes(30), 4),
+                compact.findFreeSlots(base, Duration.ofMinutes(30), 4));
+    }
+
+    @Test
+    void shouldRecordHistoryAndForgetDeletedTasks() {
+        compact.getTask(task.getId());
+        compact.getEpic(epic.getId());
+        compact.getSubTask("session", first.getId());
+        assertEquals(List.of(epic.getId(), task.getId()), ids(compact.getHistory()), "Последний просмотр — первым");
+        assertEquals(List.of(first.getId()), ids(compact.getHistory("session")));
+
+        compact.updateTask(compact.getTask(task.getId()), "Renamed", null, null, null, null);
+        assertEquals("Renamed", compact.getHistory().get(0).getName(), "История отдаёт текущую строку задачи");
+
+        compact.deleteTask(task.getId());
+        assertEquals(List.of(epic.getId()), ids(compact.getHistory()));
+        assertTrue(source.getAllTasks().containsKey(task.getId()), "Исходный менеджер не меняется");
+        assertThrows(UnsupportedOperationException.class, () -> compact.getAllSubTasks().remove(first.getId()));
+    }
+
+    @Test
+    void shouldApplyChangesLikeInMemoryManager() {
+        TaskManager expected = new InMemoryTaskManager();
+        TaskManager actual = Managers.getCompact();
+        for (TaskManager manager : List.of(expected, actual)) {
+            Epic first = new Epic("First", "Description");
+            Epic second = new Epic("Second", "Description");
+            manager.createEpic(first);
+            manager.createEpic(second);
+            SubTask moved = new SubTask("Moved", "Description", "01.01.2030 09:00", 60L, first);
+            manager.createSubTask(moved);
+            SubTask done = new SubTask("Done", "Description", "01.01.2030 11:00", 30L, first);
+            done.setStatus(Status.DONE);
+            manager.createSubTask(done);
+            manager.createTask(new Task("Task", "Description", "01.01.2030 13:00", 45L));
+            Task removed = new Task("Removed", "Description", "01.01.2030 15:00", 15L);
+            manager.createTask(removed);
+
+            manager.updateSubTask(manager.getSubTask(moved.getId()), null, null, Status.IN_PROGRESS,
+                    "01.01.2030 08:00", 30L, manager.getEpic(second.getId()));
+            manager.updateTask(manager.getTask(removed.getId()), "Renamed", null, Status.DONE, null, null);
+            manager.deleteTask(removed.getId());
+            manager.createAll(List.of(new Task("Batch", "Description", "02.01.2030 09:00", 30L)));
+        }
+
+        assertEquals(expected.getAllTasks().keySet(), actual.getAllTasks().keySet());
+        assertEquals(expected.getAllSubTasks().keySet(), actual.getAllSubTasks().keySet());
+        assertEquals(ids(expected.getPrioritizedTasks()), ids(actual.getPrioritizedTasks()));
+        for (Status status : Status.values()) {
+            assertEquals(sortedIds(expected.getTasksByStatus(status)), sortedIds(actual.getTasksByStatus(status)));
+            assertEquals(sortedIds(expected.getSubTasksByStatus(status)), sortedIds(actual.getSubTasksByStatus(status)));
+            assertEquals(sortedIds(expected.getEpicsByStatus(status)), sortedIds(actual.getEpicsByStatus(status)));
+        }
+        for (Epic epic : expected.getAllEpics().values()) {
+            Epic restored = actual.getAllEpics().get(epic.getId());
+            assertEquals(epic.getStatus(), restored.getStatus());
+            assertEquals(epic.getEpicStartTime(), restored.getEpicStartTime());
+            assertEquals(epic.getEpicEndTime(), restored.getEpicEndTime());
+            assertEquals(ids(epic.getPrioritizedSubTasks()), ids(restored.getPrioritizedSubTasks()));
+        }
+        LocalDateTime time = base.minusHours(2);
+        assertEquals(expected.findFreeSlots(time, Duration.ofMinutes(30), 5), actual.findFreeSlots(time, Duration.ofMinutes(30), 5));
+    }
+
+    @Test
+    void shouldRejectOverlapsAndRollBackTransaction() {
+        assertThrows(TaskOverlapException.class,
+                () -> compact.createTask(new Task("Overlap", "Description", "01.01.2030 13:30", 15L)));
+        assertThrows(BatchOverlapException.class,
+                () -> compact.createAll(List.of(new Task("Overlap", "Description", "01.01.2030 13:30", 15L))));
+        int size = compact.getAllTasks().size();
+
+        assertThrows(BatchOverlapException.class, () -> compact.inTransaction(manager -> {
+            manager.deleteTask(task.getId());
+            manager.createTask(new Task("First", "Description", "01.01.2030 16:00", 30L));
+            manager.createTask(new Task("Second", "Description", "01.01.2030 16:15", 30L));
+        }));
+        assertEquals(size, compact.getAllTasks().size());
+        assertEquals(base.plusHours(4), compact.getTask(task.getId()).getStartTime(), "Удалённая задача вернулась");
+
+        Task created = new Task("Created", "Description", "01.01.2030 16:00", 30L);
+        compact.createTask(created);
+        assertEquals(task.getId() + 3, created.getId(), "Идентификаторы транзакции выдаются заново");
+    }
+
+    private static List<Integer> sortedIds(Iterable<? extends Task> tasks) {
+        List<Integer> ids = ids(tasks);
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<Integer> ids(Iterable<? extends Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        return ids;
+    }
+}
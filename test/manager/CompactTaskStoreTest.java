@@ -0,0 +1,112 @@
+package manager;
+
+import management.CompactTaskStore;
+import management.InMemoryTaskManager;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTaskStoreTest {
+
+    @Test
+    void shouldRestoreAllFieldsFromManager() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = new Epic("Epic", "Epic description");
+        manager.createEpic(epic);
+        SubTask subTask = new SubTask("SubTask", "Sub description", "01.01.2024 10:00", 90L, epic);
+        subTask.setStatus(Status.DONE);
+        manager.createSubTask(subTask);
+        Task task = new Task("Task", "Description", Status.IN_PROGRESS);
+        manager.createTask(task);
+
+        CompactTaskStore store = CompactTaskStore.copyOf(manager);
+        assertEquals(3, store.size());
+
+        SubTask restored = (SubTask) store.get(subTask.getId());
+        assertEquals("SubTask", restored.getName());
+        assertEquals("Sub description", restored.getDescription());
+        assertEquals(Status.DONE, restored.getStatus());
+        assertEquals(subTask.getStartTime(), restored.getStartTime());
+        assertEquals(Duration.ofMinutes(90), restored.getDuration());
+        assertEquals(epic.getId(), restored.getEpic().getId());
+
+        Epic restoredEpic = (Epic) store.get(epic.getId());
+        assertEquals(Status.DONE, restoredEpic.getStatus());
+        assertEquals(epic.getEpicStartTime(), restoredEpic.getEpicStartTime());
+        assertEquals(epic.getEpicEndTime(), restoredEpic.getEpicEndTime());
+        assertEquals(Duration.ofMinutes(90), restoredEpic.getEpicDuration());
+
+        Task restoredTask = store.get(task.getId());
+        assertEquals(task.getStartTime().withSecond(0).withNano(0), restoredTask.getStartTime(),
+                "Время хранится с точностью до минуты");
+        assertEquals(Status.IN_PROGRESS, restoredTask.getStatus());
+        assertNotSame(restoredTask, store.get(task.getId()), "Объекты создаются при каждом обращении");
+    }
+
+    @Test
+    void shouldKeepRowsDenseAfterRemove() {
+        CompactTaskStore store = new CompactTaskStore(2);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int id = 1; id <= 100; id++) {
+            Task task = new Task("Task" + id, "Description", id % 2 == 0 ? Status.DONE : Status.NEW);
+            task.setId(id);
+            task.setStartTime(base.plusHours(id));
+            task.setDuration(Duration.ofMinutes(30));
+            store.put(task);
+        }
+        for (int id = 1; id <= 100; id += 3) {
+            assertTrue(store.remove(id));
+        }
+        assertFalse(store.remove(1));
+        assertEquals(66, store.size());
+        assertNull(store.get(4));
+        assertEquals("Task99", store.get(99).getName());
+        assertEquals(base.plusHours(99), store.get(99).getStartTime());
+        assertEquals(33, store.countByStatus(Status.DONE));
+
+        List<Integer> started = new ArrayList<>();
+        store.forEachStartingBetween(base.plusHours(2), base.plusHours(6), started::add);
+        started.sort(null);
+        assertEquals(List.of(2, 3, 5), started, "Задача 4 удалена, 6 начинается на границе");
+    }
+
+    @Test
+    void shouldReplaceRowWithSameId() {
+        CompactTaskStore store = new CompactTaskStore();
+        Task task = new Task("Task", "Description", "01.01.2024 10:00", 60L);
+        task.setId(7);
+        store.put(task);
+        task.setStatus(Status.DONE);
+        assertEquals(Status.NEW, store.getStatus(7), "Изменения объекта не попадают в хранилище без put");
+        store.put(task);
+        assertEquals(Status.DONE, store.getStatus(7));
+        assertEquals(1, store.size());
+
+        Task withoutId = new Task("Task", "Description", "01.01.2024 12:00", 60L);
+        assertThrows(IllegalArgumentException.class, () -> store.put(withoutId));
+    }
+
+    @Test
+    void shouldStoreSparseIds() {
+        CompactTaskStore store = new CompactTaskStore();
+        for (int id : new int[]{1, 1_000_000, Integer.MAX_VALUE}) {
+            Task task = new Task("Task" + id, "Description");
+            task.setId(id);
+            store.put(task);
+        }
+        assertEquals("Task" + Integer.MAX_VALUE, store.get(Integer.MAX_VALUE).getName(),
+                "Память не зависит от величины идентификатора");
+        assertTrue(store.remove(1_000_000));
+        assertNull(store.get(1_000_000));
+        assertEquals(2, store.size());
+    }
+}
@@ -0,0 +1,160 @@
+package manager;
+
+import management.ConcurrentTaskManager;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void testConcurrentReadsAreAllRecordedInHistory() throws InterruptedException {
+        int threads = 4;
+        int perThread = 10_000;
+        Task[] tasks = new Task[100];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setStartTime(LocalDateTime.of(2031, 1, 1, 0, 0).plusHours(i));
+            tasks[i].setDuration(Duration.ofMinutes(30));
+            taskManager.createTask(tasks[i]);
+        }
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] readers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        taskManager.getTask(tasks[i % tasks.length].getId());
+                        if (i % 1_000 == 0) {
+                            taskManager.getHistory(); // Перенос из буфера одновременно с записью
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            readers[t].start();
+        }
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(errors.isEmpty(), "Чтение и перенос истории не должны падать: " + errors);
+
+        taskManager.getTask(tasks[0].getId());
+        List<Task> history = taskManager.getHistory();
+        assertEquals(tasks.length, history.size(), "Каждая задача в истории ровно один раз");
+        assertEquals(tasks[0], history.get(0), "Последний просмотр первым");
+    }
+
+    @Test
+    void testViewsRacingWithDeletesDoNotResurrectTasks() throws InterruptedException {
+        Task[] tasks = new Task[500];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setStartTime(LocalDateTime.of(2033, 1, 1, 0, 0).plusHours(i));
+            tasks[i].setDuration(Duration.ofMinutes(30));
+            taskManager.createTask(tasks[i]);
+        }
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int round = 0; round < 20; round++) {
+                    for (Task task : tasks) {
+                        taskManager.getTask(task.getId());
+                    }
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < tasks.length; i += 2) {
+            taskManager.deleteTask(tasks[i].getId());
+        }
+        reader.join();
+        assertTrue(errors.isEmpty(), "Чтение не должно падать: " + errors);
+
+        for (Task viewed : taskManager.getHistory()) {
+            assertNotNull(taskManager.getAllTasks().get(viewed.getId()), "В истории нет удалённых задач");
+        }
+    }
+
+    @Test
+    void testConcurrentCreateKeepsIdsUniqueAndRejectsOverlaps() throws InterruptedException {
+        int threads = 4;
+        int perThread = 500;
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Epic epic = new Epic("Epic", "Description");
+        taskManager.createEpic(epic);
+        int existing = taskManager.getAllSubTasks().size();
+
+        AtomicInteger overlaps = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        // Все потоки претендуют на одни и те же интервалы: выиграть может только один
+                        SubTask subTask = new SubTask("SubTask", "Description", epic);
+                        subTask.setStartTime(base.plusHours(i));
+                        subTask.setDuration(Duration.ofMinutes(30));
+                        try {
+                            taskManager.createSubTask(subTask);
+                        } catch (RuntimeException e) {
+                            overlaps.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            writers[t].start();
+        }
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < 2000; i++) {
+                    List<Task> prioritized = taskManager.getPrioritizedTasks();
+                    assertNotNull(prioritized);
+                    taskManager.getAllSubTasks().size();
+                    taskManager.getEpic(epic.getId());
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        reader.start();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+
+        assertTrue(errors.isEmpty(), "Чтение и запись не должны падать: " + errors);
+        assertEquals(existing + perThread, taskManager.getAllSubTasks().size(), "Каждый интервал должен быть занят один раз");
+        assertEquals((threads - 1) * perThread, overlaps.get(), "Остальные попытки должны отклоняться");
+        assertEquals(Status.NEW, epic.getStatus());
+        assertEquals(base, epic.getStartTime(), "Время эпика должно быть пересчитано по всем подзадачам");
+    }
+}
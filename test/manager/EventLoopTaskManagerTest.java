@@ -0,0 +1,287 @@
+package manager;
+
+import exceptions.BatchOverlapException;
+import exceptions.TaskOverlapException;
+import management.EventLoopTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopTaskManagerTest extends TaskManagerTest<EventLoopTaskManager> {
+    @Override
+    protected EventLoopTaskManager createTaskManager() {
+        return new EventLoopTaskManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskManager.close();
+    }
+
+    /**
+     * Те же проверки, что в {@link TaskManagerTest}, но задачи перечитываются после изменения:
+     * прочитанные раньше копии снимка не меняются.
+     */
+    @Override
+    @Test
+    public void testUpdateAllAppliesChangesAtOnce() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        Task task = taskManager.getAllTasks().values().iterator().next();
+
+        Task movedTask = new Task(task.getName(), "Moved", "15.03.2025 14:30", 120L, Status.DONE);
+        movedTask.setId(task.getId());
+        SubTask movedSubTask = new SubTask(subTask.getName(), "Moved", "16.03.2025 14:30", 120L, epic);
+        movedSubTask.setId(subTask.getId());
+        movedSubTask.setStatus(Status.DONE);
+        taskManager.updateAll(List.of(movedTask, movedSubTask));
+
+        task = taskManager.getAllTasks().get(task.getId());
+        subTask = taskManager.getAllSubTasks().get(subTask.getId());
+        epic = taskManager.getAllEpics().get(epic.getId());
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), task.getStartTime());
+        assertEquals(Status.DONE, task.getStatus());
+        assertEquals(LocalDateTime.of(2025, 3, 16, 14, 30), subTask.getStartTime());
+        assertEquals(Status.DONE, epic.getStatus(), "Эпик пересчитан после пакета");
+        assertEquals(subTask.getStartTime(), epic.getEpicStartTime());
+        assertTrue(epic.hasConsistentAggregates());
+        assertTrue(taskManager.getTasksByStatus(Status.DONE).contains(task));
+
+        Task clash = new Task("Clash", "Description", "16.03.2025 15:00", 10L);
+        clash.setId(task.getId());
+        assertThrows(BatchOverlapException.class, () -> taskManager.updateAll(List.of(clash)));
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30),
+                taskManager.getAllTasks().get(task.getId()).getStartTime(), "Задача не изменена");
+    }
+
+    @Override
+    @Test
+    public void testTransactionValidatesOnlyFinalState() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        Epic target = new Epic("Target", "Description");
+
+        SubTask added = new SubTask("Added", "Description", "20.03.2025 10:00", 30L, target);
+        added.setStatus(Status.DONE);
+
+        taskManager.inTransaction(manager -> {
+            manager.createEpic(target);
+            manager.createSubTask(added);
+            manager.updateTask(task, null, null, null, "15.03.2025 14:30", 120L);
+            manager.updateSubTask(subTask, null, null, Status.DONE, "16.03.2025 14:30", 120L, null);
+        });
+
+        Task updatedTask = taskManager.getAllTasks().get(task.getId());
+        SubTask updatedSubTask = taskManager.getAllSubTasks().get(subTask.getId());
+        Epic updatedEpic = taskManager.getAllEpics().get(epic.getId());
+        Epic updatedTarget = taskManager.getAllEpics().get(target.getId());
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), updatedTask.getStartTime());
+        assertEquals(updatedSubTask.getStartTime(), updatedEpic.getEpicStartTime(), "Эпик пересчитан при фиксации");
+        assertEquals(Status.DONE, updatedEpic.getStatus());
+        assertTrue(updatedEpic.hasConsistentAggregates());
+        assertEquals(Status.DONE, updatedTarget.getStatus());
+        assertEquals(added.getStartTime(), updatedTarget.getEpicStartTime());
+        assertTrue(taskManager.getEpicsByStatus(Status.DONE).containsAll(List.of(epic, target)));
+        assertThrows(TaskOverlapException.class,
+                () -> taskManager.createTask(new Task("Overlap", "Description", "16.03.2025 15:00", 10L)));
+    }
+
+    @Test
+    void testSnapshotIsIsolatedFromLaterChanges() {
+        Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+        taskManager.createTask(task);
+        Task seen = taskManager.getTask(task.getId());
+
+        taskManager.updateTask(seen, "Renamed", null, Status.DONE, null, null);
+
+        assertEquals("Task", seen.getName(), "Прочитанная копия не меняется");
+        assertEquals("Renamed", taskManager.getTask(task.getId()).getName(), "Изменение видно после завершения");
+        assertEquals(Status.DONE, taskManager.getTask(task.getId()).getStatus());
+    }
+
+    @Test
+    void testUnchangedTasksAreSharedBetweenSnapshots() {
+        Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+        taskManager.createTask(task);
+        Task seen = taskManager.getTask(task.getId());
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+
+        taskManager.createTask(new Task("Other", "Description", "02.01.2031 10:00", 60L));
+
+        assertSame(seen, taskManager.getTask(task.getId()), "Неизменённая задача не копируется заново");
+        assertSame(epic, taskManager.getAllEpics().get(epic.getId()));
+        taskManager.updateTask(seen, "Renamed", null, null, null, null);
+        assertNotSame(seen, taskManager.getTask(task.getId()), "Изменённая задача копируется заново");
+    }
+
+    @Test
+    void testReadsDoNotWaitForWriter() throws Exception {
+        Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+        taskManager.createTask(task);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> busy = taskManager.submit(manager -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        try {
+            CompletableFuture<Task> read = CompletableFuture.supplyAsync(() -> taskManager.getTask(task.getId()));
+            assertEquals("Task", read.get(5, TimeUnit.SECONDS).getName(), "Чтение не ждёт занятый поток записи");
+        } finally {
+            release.countDown();
+        }
+        busy.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCloseFromCommandDoesNotWaitForItself() throws Exception {
+        CompletableFuture<Integer> closing = taskManager.submit(manager -> {
+            taskManager.close();
+            return 1;
+        });
+        assertEquals(Integer.valueOf(1), closing.get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class,
+                () -> taskManager.createTask(new Task("Task", "Description", "01.01.2031 10:00", 60L)));
+    }
+
+    @Test
+    void testSnapshotTasksAreReadOnly() {
+        Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+        taskManager.createTask(task);
+        Task seen = taskManager.getTask(task.getId());
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = taskManager.getAllSubTasks().values().iterator().next();
+
+        assertThrows(UnsupportedOperationException.class, () -> seen.setName("Renamed"));
+        assertThrows(UnsupportedOperationException.class, () -> epic.setStatus(Status.DONE));
+        assertThrows(UnsupportedOperationException.class, () -> epic.clearPrioritizedSubTasks());
+        assertThrows(UnsupportedOperationException.class, () -> subTask.setEpic(null));
+
+        taskManager.updateTask(seen, "Renamed", null, null, null, null);
+        assertEquals("Renamed", taskManager.getTask(task.getId()).getName(), "Изменение идёт через менеджер");
+    }
+
+    @Test
+    void testUpdatesOfUnmanagedTasksAreRejected() {
+        Task stranger = new Task("Stranger", "Description", "01.01.2031 10:00", 60L);
+        stranger.setId(10_000);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.updateTask(stranger, "Renamed", null, null, null, null));
+        assertEquals("Stranger", stranger.getName(), "Чужой объект не меняется");
+        assertFalse(taskManager.getAllTasks().containsKey(stranger.getId()));
+    }
+
+    @Test
+    void testSubmitReturnsResultAndFailure() {
+        CompletableFuture<Integer> created = taskManager.submit(manager -> {
+            Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+            manager.createTask(task);
+            return task.getId();
+        });
+        int id = created.join();
+        assertNotNull(taskManager.getTask(id));
+
+        CompletableFuture<Object> failed = taskManager.submit(manager -> {
+            throw new IllegalArgumentException("Ошибка команды");
+        });
+        CompletionException error = assertThrows(CompletionException.class, failed::join);
+        assertTrue(error.getCause() instanceof IllegalArgumentException, "Исключение команды передаётся в результат");
+    }
+
+    @Test
+    void testConcurrentWritersAndReaders() throws InterruptedException {
+        int threads = 4;
+        int perThread = 200;
+        LocalDateTime base = LocalDateTime.of(2032, 1, 1, 0, 0);
+        int existing = taskManager.getAllTasks().size();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Task task = new Task("Task", "Description");
+                        task.setStartTime(base.plusHours(offset + i));
+                        task.setDuration(Duration.ofMinutes(30));
+                        taskManager.createTask(task);
+                        taskManager.getPrioritizedTasks(); // Чтение идёт по снимку без блокировок
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            writers[t].start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertTrue(errors.isEmpty(), "Запись и чтение не должны падать: " + errors);
+        assertEquals(existing + threads * perThread, taskManager.getAllTasks().size());
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(prioritized.size(), prioritized.stream().map(Task::getId).distinct().count());
+    }
+
+    @Test
+    void testCommandsRacingWithCloseAlwaysComplete() throws Exception {
+        int threads = 4;
+        ConcurrentLinkedQueue<CompletableFuture<Integer>> results = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            producers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    results.add(taskManager.submit(manager -> manager.getAllTasks().size()));
+                }
+            });
+            producers[t].start();
+        }
+        start.countDown();
+        taskManager.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (CompletableFuture<Integer> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException, "Опоздавшая команда отклоняется");
+            }
+        }
+    }
+
+    @Test
+    void testClosedManagerRejectsCommands() {
+        taskManager.close();
+        assertThrows(IllegalStateException.class,
+                () -> taskManager.createTask(new Task("Task", "Description", "01.01.2031 10:00", 60L)));
+    }
+}
@@ -1,6 +1,32 @@
 package manager;
 
+import exceptions.ManagerSaveException;
+import management.BinaryFormat;
+import management.CSVFormat;
+import management.FileBackedTaskManager;
 import management.InMemoryTaskManager;
+import management.SnapshotConverter;
+import management.StorageFormat;
+import management.TaskScheduler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     protected InMemoryTaskManager taskManager;
@@ -10,4 +36,387 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<InMemoryTaskManag
         return new InMemoryTaskManager();
     }
 
-}
\ No newline at end of file
+    @Test
+    void journalModeShouldAppendRecordsInsteadOfRewritingSnapshot(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            Task first = new Task("Task1", "description", "15.11.2023 14:30", 60L);
+            manager.createTask(first); // Первое изменение записывает исходный снимок
+            List<String> snapshot = Files.readAllLines(file);
+
+            Task second = new Task("Task2", "description", "15.11.2023 16:30", 60L);
+            manager.createTask(second);
+            manager.updateTask(first, null, null, Status.DONE, null, null);
+            manager.deleteTask(second.getId());
+
+            assertEquals(snapshot, Files.readAllLines(file), "Снимок не должен перезаписываться");
+            List<String> journal = Files.readAllLines(tempDir.resolve("tasks.csv.journal"));
+            assertEquals(3, journal.size(), "Каждое изменение должно добавлять одну запись");
+        }
+    }
+
+    @Test
+    void loadFromFileShouldReplaySnapshotAndJournal(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        Epic epic = new Epic("Epic", "description");
+        SubTask subTask = new SubTask("SubTask", "description", "16.11.2023 10:00", 30L, epic);
+        Task task = new Task("Task", "description", "15.11.2023 14:30", 60L);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            manager.createEpic(epic);
+            manager.createSubTask(subTask);
+            manager.createTask(task);
+            manager.updateSubTask(subTask, "Renamed", null, Status.DONE, null, null, null);
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+
+        assertEquals(1, loaded.getAllEpics().size());
+        assertEquals(1, loaded.getAllSubTasks().size());
+        assertEquals(1, loaded.getAllTasks().size());
+        SubTask loadedSubTask = loaded.getSubTask(subTask.getId());
+        assertEquals("Renamed", loadedSubTask.getName());
+        assertEquals(Status.DONE, loadedSubTask.getStatus());
+        assertEquals(Status.DONE, loaded.getEpic(epic.getId()).getStatus(), "Статус эпика должен пересчитаться");
+        assertEquals(task.getStartTime(), loaded.getTask(task.getId()).getStartTime());
+        loaded.close();
+    }
+
+    @Test
+    void scheduledBatchShouldBeJournaledAsOneChange(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        LocalDateTime from = LocalDateTime.of(2023, 11, 15, 9, 0);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            manager.createTask(new Task("Busy", "description", "15.11.2023 10:00", 60L));
+            List<TaskScheduler.Job> jobs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Task task = new Task("Planned" + i, "description");
+                task.setDuration(Duration.ofMinutes(45));
+                jobs.add(new TaskScheduler.Job(task, 0, null));
+            }
+            manager.scheduleTasks(jobs, from);
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(4, loaded.getAllTasks().size());
+        assertEquals(List.of(from, from.plusMinutes(120), from.plusMinutes(165)),
+                loaded.getPrioritizedTasks().stream().filter(t -> t.getName().startsWith("Planned"))
+                        .map(Task::getStartTime).toList());
+        loaded.close();
+    }
+
+    @Test
+    void createdBatchShouldBeJournaledAsOneChange(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            Epic epic = new Epic("Epic", "description");
+            manager.createAll(List.of(
+                    new SubTask("SubTask", "description", "15.11.2023 10:00", 60L, epic),
+                    epic,
+                    new Task("Task", "description", "15.11.2023 12:00", 60L)));
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(1, loaded.getAllEpics().size());
+        SubTask subTask = loaded.getAllSubTasks().values().iterator().next();
+        assertEquals(LocalDateTime.of(2023, 11, 15, 10, 0), subTask.getEpic().getEpicStartTime());
+        loaded.close();
+    }
+
+    @Test
+    void tornBatchShouldBeDroppedOnLoad(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            manager.createTask(new Task("Single", "description", "14.11.2023 10:00", 60L));
+            manager.createTask(new Task("Second", "description", "14.11.2023 12:00", 60L));
+            manager.createAll(List.of(
+                    new Task("First", "description", "15.11.2023 10:00", 60L),
+                    new Task("Last", "description", "15.11.2023 12:00", 60L)));
+        }
+        Path journalFile = tempDir.resolve("tasks.csv.journal");
+        List<String> lines = Files.readAllLines(journalFile);
+        assertEquals("COMMIT", lines.get(lines.size() - 1), "Пакет должен закрываться COMMIT");
+        Files.write(journalFile, lines.subList(0, lines.size() - 2)); // Обрыв записи посреди пакета
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(List.of("Single", "Second"),
+                loaded.getAllTasks().values().stream().map(Task::getName).sorted(Comparator.reverseOrder()).toList(),
+                "Недописанный пакет не должен применяться частично");
+        loaded.createTask(new Task("After", "description", "16.11.2023 10:00", 60L));
+        loaded.close();
+
+        FileBackedTaskManager reloaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(3, reloaded.getAllTasks().size(), "Изменения после обрыва не должны теряться");
+        reloaded.close();
+    }
+
+    @Test
+    void committedTransactionShouldBeJournaledOnce(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            Task first = new Task("First", "description", "15.11.2023 10:00", 60L);
+            Task second = new Task("Second", "description", "15.11.2023 12:00", 60L);
+            manager.createTask(first);
+            manager.createTask(second);
+            manager.inTransaction(tx -> {
+                tx.updateTask(first, null, null, null, "15.11.2023 12:00", 60L);
+                tx.deleteTask(second.getId());
+                tx.createEpic(new Epic("Epic", "description"));
+            });
+            assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+                tx.deleteTask(first.getId());
+                throw new IllegalStateException();
+            }));
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(LocalDateTime.of(2023, 11, 15, 12, 0), loaded.getTask(1).getStartTime());
+        assertEquals(1, loaded.getAllEpics().size());
+        loaded.close();
+    }
+
+    @Test
+    void tornTransactionShouldBeDroppedOnLoad(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 1000)) {
+            Task first = new Task("First", "description", "15.11.2023 10:00", 60L);
+            Task second = new Task("Second", "description", "15.11.2023 12:00", 60L);
+            manager.createTask(first);
+            manager.createTask(second);
+            manager.inTransaction(tx -> {
+                tx.deleteTask(second.getId());
+                tx.updateTask(first, null, null, null, "15.11.2023 12:00", 60L);
+            });
+        }
+        Path journalFile = tempDir.resolve("tasks.csv.journal");
+        List<String> lines = Files.readAllLines(journalFile);
+        Files.write(journalFile, lines.subList(0, lines.size() - 2)); // Удаление записано, перенос — нет
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 1000).loadFromFile(file.toFile());
+        assertEquals(2, loaded.getAllTasks().size(), "Транзакция без COMMIT не должна применяться частично");
+        assertEquals(LocalDateTime.of(2023, 11, 15, 10, 0), loaded.getTask(1).getStartTime());
+        loaded.close();
+    }
+
+    @Test
+    void journalShouldBeCompactedAfterThreshold(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), 5)) {
+            for (int i = 0; i < 12; i++) {
+                manager.createTask(new Task("Task" + i, "description",
+                        String.format("%02d.11.2023 10:00", i + 1), 60L));
+            }
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), 5).loadFromFile(file.toFile());
+        assertEquals(12, loaded.getAllTasks().size(), "После сворачивания журнала задачи не должны теряться");
+        assertFalse(Files.exists(tempDir.resolve("tasks.csv.journal.old")), "Старый журнал должен быть удалён");
+        loaded.close();
+    }
+
+    @Test
+    void deferredModeShouldWriteOnlyOnFlush(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), Duration.ofHours(1), 1000)) {
+            for (int i = 0; i < 10; i++) {
+                manager.createTask(new Task("Task" + i, "description",
+                        String.format("%02d.11.2023 10:00", i + 1), 60L));
+            }
+            assertFalse(Files.exists(file), "До истечения интервала файл не должен записываться");
+
+            manager.flush();
+            assertEquals(11, Files.readAllLines(file).size(), "После flush файл должен содержать все задачи");
+        }
+    }
+
+    @Test
+    void deferredModeShouldSaveAfterMaxPendingChanges(@TempDir Path tempDir) throws InterruptedException {
+        Path file = tempDir.resolve("tasks.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), Duration.ofHours(1), 3);
+        Task task = new Task("Task", "description", "15.11.2023 14:30", 60L);
+        manager.createTask(task);
+        manager.updateTask(task, "Renamed", null, null, null, null);
+        manager.updateTask(task, null, null, Status.DONE, null, null);
+
+        // Сохранение запускается без ожидания интервала, но выполняется в фоновом потоке
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(file), "Файл должен быть записан после maxPendingChanges изменений");
+        manager.close();
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+        assertEquals("Renamed", loaded.getTask(task.getId()).getName());
+        assertEquals(Status.DONE, loaded.getTask(task.getId()).getStatus());
+    }
+
+    @Test
+    void loadFromFileShouldKeepIdsAndNotWriteFile(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        String data = "id,type,name,status,description,startTime,duration,epic\n" +
+                "12,SUBTASK,SubTask,DONE,desc,16.11.2023 10:00,30,7\n" +
+                "5,TASK,Task,NEW,desc,15.11.2023 14:30,60,\n" +
+                "7,EPIC,Epic,NEW,desc,17.11.2023 14:30,60,\n";
+        Files.writeString(file, data);
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+
+        assertEquals(data, Files.readString(file), "Загрузка не должна перезаписывать файл");
+        assertNotNull(loaded.getTask(5));
+        assertNotNull(loaded.getEpic(7));
+        assertEquals(loaded.getEpic(7), loaded.getSubTask(12).getEpic());
+        assertEquals(Status.DONE, loaded.getEpic(7).getStatus(), "Статус эпика должен пересчитаться");
+
+        Task task = new Task("New", "desc", "20.11.2023 10:00", 30L);
+        loaded.createTask(task);
+        assertEquals(13, task.getId(), "Счётчик должен продолжаться с максимального идентификатора");
+    }
+
+    @Test
+    void loadFromFileShouldParseLikeCsvFormat(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        String data = "id,type,name,status,description,startTime,duration,epic\r\n" +
+                "1,TASK,Задача,IN_PROGRESS,Описание,15.11.2023 14:30,45,\r\n" +
+                "2,TASK,NoTime,DONE,desc,,,\r\n" +
+                "3,EPIC,Epic,NEW,desc,,,\r\n" +
+                "4,SUBTASK,SubTask,NEW,desc,16.11.2023 09:05,30,3\r\n";
+        Files.writeString(file, data);
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+
+        for (String line : data.split("\r\n")) {
+            if (line.startsWith("id") || line.contains("EPIC")) {
+                continue;
+            }
+            Task expected = CSVFormat.taskFromString(loaded, line);
+            Task actual = expected instanceof SubTask ? loaded.getSubTask(expected.getId()) : loaded.getTask(expected.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            if (!line.contains(",,")) {
+                assertEquals(expected.getStartTime(), actual.getStartTime());
+            }
+        }
+        assertEquals(loaded.getEpic(3), loaded.getSubTask(4).getEpic());
+    }
+
+    @Test
+    void binaryFormatShouldRoundTripTasks(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.bin");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file.toString(), StorageFormat.BINARY);
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        SubTask subTask = new SubTask("Подзадача", "desc", "16.11.2023 10:00", 30L, epic);
+        manager.createSubTask(subTask);
+        manager.updateSubTask(subTask, null, null, Status.IN_PROGRESS, null, null, null);
+        Task task = new Task("Task", "desc", "15.11.2023 14:30", 60L);
+        manager.createTask(task);
+
+        assertTrue(BinaryFormat.isBinary(file), "Снимок должен быть записан в двоичном формате");
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString(), StorageFormat.BINARY)
+                .loadFromFile(file.toFile());
+
+        assertEquals("Эпик", loaded.getEpic(epic.getId()).getName());
+        assertEquals(Status.IN_PROGRESS, loaded.getEpic(epic.getId()).getStatus());
+        assertEquals(loaded.getEpic(epic.getId()), loaded.getSubTask(subTask.getId()).getEpic());
+        assertEquals(subTask.getStartTime(), loaded.getSubTask(subTask.getId()).getStartTime());
+        assertEquals(task.getDuration(), loaded.getTask(task.getId()).getDuration());
+    }
+
+    @Test
+    void truncatedBinarySnapshotShouldFailWithManagerSaveException(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.bin");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Task task = new Task("Task" + i, "Описание задачи " + i);
+            task.setId(i + 1);
+            task.setStartTime(LocalDateTime.of(2030, 1, 1, 0, 0).plusHours(i));
+            tasks.add(task);
+        }
+        BinaryFormat.write(tasks, file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int length : new int[]{3, 12, 40, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(ManagerSaveException.class, () -> BinaryFormat.readTasks(file),
+                    "Обрезанный до " + length + " байт снимок");
+        }
+
+        byte[] corrupted = bytes.clone();
+        corrupted[6] = 0x7F; // Количество записей в заголовке больше, чем поместится в файл
+        Files.write(file, corrupted);
+        assertThrows(ManagerSaveException.class, () -> BinaryFormat.readTasks(file));
+    }
+
+    @Test
+    void snapshotConverterShouldKeepCsvContent(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("tasks.csv");
+        Files.writeString(csv, "id,type,name,status,description,startTime,duration,epic\n" +
+                "1,EPIC,Epic,DONE,desc,16.11.2023 10:00,30,\n" +
+                "2,SUBTASK,SubTask,DONE,desc,16.11.2023 10:00,30,1\n" +
+                "3,TASK,Task,NEW,desc,15.11.2023 14:30,60,\n");
+        Path binary = tempDir.resolve("tasks.bin");
+        Path back = tempDir.resolve("back.csv");
+
+        SnapshotConverter.toBinary(csv, binary);
+        SnapshotConverter.toCsv(binary, back);
+
+        assertTrue(BinaryFormat.isBinary(binary));
+        assertEquals(Set.copyOf(Files.readAllLines(csv)), Set.copyOf(Files.readAllLines(back)));
+    }
+
+    @Test
+    void historyShouldSurviveRestart(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("tasks.csv");
+        Epic epic = new Epic("Epic", "description");
+        SubTask subTask = new SubTask("SubTask", "description", "16.11.2023 10:00", 30L, epic);
+        Task task = new Task("Task", "description", "15.11.2023 14:30", 60L);
+        Task deleted = new Task("Deleted", "description", "17.11.2023 14:30", 60L);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString())) {
+            manager.createEpic(epic);
+            manager.createSubTask(subTask);
+            manager.createTask(task);
+            manager.createTask(deleted);
+            manager.getTask(task.getId());
+            manager.getSubTask(subTask.getId());
+            manager.getTask(deleted.getId());
+            manager.getEpic(epic.getId());
+            manager.getTask(task.getId());
+            manager.deleteTask(deleted.getId());
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+        assertEquals(List.of(task.getId(), epic.getId(), subTask.getId()),
+                loaded.getHistory().stream().map(Task::getId).toList());
+        assertSame(loaded.getAllEpics().get(epic.getId()), loaded.getHistory().get(1), "История ссылается на загруженные задачи");
+    }
+
+    @Test
+    void historyLogShouldBeCompactedToCurrentOrder(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        List<Task> tasks = new ArrayList<>();
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file.toString())) {
+            for (int i = 0; i < 10; i++) {
+                Task task = new Task("Task" + i, "description");
+                task.setStartTime(LocalDateTime.of(2030, 1, 1, 0, 0).plusHours(i));
+                task.setDuration(Duration.ofMinutes(30));
+                manager.createTask(task);
+                tasks.add(task);
+            }
+            for (int i = 0; i < 5_000; i++) {
+                manager.getTask(tasks.get(i % tasks.size()).getId());
+            }
+            manager.flush();
+            assertTrue(Files.readAllLines(tempDir.resolve("tasks.csv.history")).size() < 2_000,
+                    "Журнал просмотров должен сворачиваться");
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(file.toString()).loadFromFile(file.toFile());
+        assertEquals(10, loaded.getHistory().size());
+        assertEquals(tasks.get(9).getId(), loaded.getHistory().get(0).getId());
+        assertEquals(10, Files.readAllLines(tempDir.resolve("tasks.csv.history")).size(),
+                "При загрузке журнал сворачивается до истории без повторов");
+    }
+}
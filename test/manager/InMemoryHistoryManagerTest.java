@@ -7,6 +7,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import task.*;
 
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 
 class InMemoryHistoryManagerTest {
@@ -46,5 +48,106 @@ class InMemoryHistoryManagerTest {
         assertTrue(historyManager.getHistory().isEmpty(), "История должна быть пустой после удаления");
     }
 
+    @Test
+    void shouldEvictOldestViewWhenFull() {
+        InMemoryHistoryManager bounded = new InMemoryHistoryManager(3);
+        Task[] tasks = new Task[5];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setId(i + 1);
+        }
+        bounded.addToHistory(tasks[0]);
+        bounded.addToHistory(tasks[1]);
+        bounded.addToHistory(tasks[2]);
+        bounded.addToHistory(tasks[0]); // Повторный просмотр делает задачу самой новой
+        bounded.addToHistory(tasks[3]); // Вытесняет tasks[1]
+
+        assertEquals(List.of(tasks[3], tasks[0], tasks[2]), bounded.getHistory());
+
+        bounded.remove(tasks[2].getId());
+        bounded.addToHistory(tasks[4]);
+        assertEquals(List.of(tasks[4], tasks[3], tasks[0]), bounded.getHistory());
+    }
+
+    @Test
+    void shouldStayWithinCapacityUnderLongViewStream() {
+        InMemoryHistoryManager bounded = new InMemoryHistoryManager(100);
+        Task[] tasks = new Task[1_000];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setId(i + 1);
+        }
+        for (int i = 0; i < 1_000_000; i++) {
+            bounded.addToHistory(tasks[(i * 7) % tasks.length]);
+        }
+        assertEquals(100, bounded.size());
+        List<Task> history = bounded.getHistory();
+        assertEquals(100, history.size());
+        assertEquals(tasks[(999_999 * 7) % tasks.length], history.get(0), "Первой идёт последняя просмотренная");
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+
+    @Test
+    void shouldPageHistoryFromLatest() {
+        InMemoryHistoryManager manager = new InMemoryHistoryManager();
+        Task[] tasks = new Task[5];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setId(i + 1);
+            manager.addToHistory(tasks[i]);
+        }
+
+        assertEquals(List.of(tasks[4], tasks[3]), manager.getLatest(2));
+        assertEquals(5, manager.getLatest(10).size());
+
+        HistoryPage first = manager.getPage(null, 2);
+        assertEquals(List.of(tasks[4], tasks[3]), first.tasks());
+        HistoryPage second = manager.getPage(first.next(), 2);
+        assertEquals(List.of(tasks[2], tasks[1]), second.tasks());
+        HistoryPage third = manager.getPage(second.next(), 2);
+        assertEquals(List.of(tasks[0]), third.tasks());
+        assertNull(third.next(), "Последняя страница без курсора");
 
-}
\ No newline at end of file
+        manager.addToHistory(tasks[4]);
+        manager.addToHistory(tasks[0]);
+        HistoryPage resumed = manager.getPage(second.next(), 2);
+        assertEquals(List.of(), resumed.tasks(), "Перенесённый в начало просмотр не повторяется на следующих страницах");
+        assertNull(resumed.next());
+        assertEquals(List.of(tasks[2], tasks[1]), manager.getPage(first.next(), 2).tasks(),
+                "Просмотры других задач не сбивают курсор");
+    }
+
+    @Test
+    void pageCursorShouldResumeAfterItsViewIsGone() {
+        InMemoryHistoryManager manager = new InMemoryHistoryManager();
+        Task[] tasks = new Task[5];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Description");
+            tasks[i].setId(i + 1);
+            manager.addToHistory(tasks[i]);
+        }
+        HistoryPage.Cursor cursor = manager.getPage(null, 2).next();
+
+        manager.remove(tasks[3].getId());
+        assertEquals(List.of(tasks[2], tasks[1]), manager.getPage(cursor, 2).tasks(), "Удалённый просмотр");
+        manager.addToHistory(tasks[3]);
+        manager.addToHistory(tasks[2]);
+        assertEquals(List.of(tasks[1], tasks[0]), manager.getPage(cursor, 2).tasks(),
+                "Повторный просмотр задачи курсора и следующей за ней");
+        assertNull(manager.getPage(cursor, 2).next());
+    }
+
+    @Test
+    void latestFirstShouldFailFastOnModification() {
+        Task other = new Task("Other", "Description");
+        task.setId(1);
+        other.setId(2);
+        historyManager.addToHistory(task);
+        historyManager.addToHistory(other);
+
+        Iterator<Task> iterator = historyManager.latestFirst();
+        assertEquals(other, iterator.next());
+        historyManager.addToHistory(task);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+}
@@ -1,10 +1,59 @@
 package manager;
 
 import management.InMemoryTaskManager;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+import task.Task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     @Override
     protected InMemoryTaskManager createTaskManager() {
         return new InMemoryTaskManager(); // Реализация создания менеджера
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdatingUnmanagedTaskKeepsIndexes() {
+        Task task = new Task("Task", "Description", "01.01.2031 10:00", 60L);
+        taskManager.createTask(task);
+        Task stranger = new Task("Stranger", "Description", "01.01.2031 10:00", 60L);
+        stranger.setId(task.getId());
+
+        taskManager.updateTask(stranger, null, null, Status.DONE, "02.01.2031 10:00", 60L);
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(1, prioritized.stream().filter(t -> t.getId() == task.getId()).count());
+        assertTrue(prioritized.stream().anyMatch(t -> t == task), "Задача менеджера осталась в порядке");
+        assertTrue(prioritized.stream().noneMatch(t -> t == stranger), "Чужой объект не попал в порядок");
+        assertEquals(List.of(task), taskManager.getTasksActiveAt(LocalDateTime.of(2031, 1, 1, 10, 30)));
+        assertTrue(taskManager.getTasksByStatus(Status.NEW).contains(task));
+        assertTrue(taskManager.getTasksByStatus(Status.DONE).isEmpty());
+    }
+
+    @Test
+    void testUpdatingUnmanagedSubTaskKeepsIndexes() {
+        Epic epic = new Epic("Epic", "Description");
+        taskManager.createEpic(epic);
+        SubTask subTask = new SubTask("SubTask", "Description", "01.01.2031 10:00", 60L, epic);
+        taskManager.createSubTask(subTask);
+        SubTask stranger = new SubTask("Stranger", "Description", "01.01.2031 10:00", 60L, epic);
+        stranger.setId(subTask.getId());
+
+        taskManager.updateSubTask(stranger, null, null, Status.DONE, "02.01.2031 10:00", 60L, null);
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertTrue(prioritized.stream().anyMatch(t -> t == subTask), "Подзадача менеджера осталась в порядке");
+        assertTrue(prioritized.stream().noneMatch(t -> t == stranger), "Чужой объект не попал в порядок");
+        assertTrue(epic.getPrioritizedSubTasks().stream().anyMatch(t -> t == subTask));
+        assertTrue(epic.getPrioritizedSubTasks().stream().noneMatch(t -> t == stranger));
+        assertEquals(Status.NEW, epic.getStatus());
+        assertTrue(taskManager.getSubTasksByStatus(Status.NEW).contains(subTask));
+        assertTrue(taskManager.getSubTasksByStatus(Status.DONE).isEmpty());
+    }
+}
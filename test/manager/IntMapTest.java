@@ -0,0 +1,83 @@
+package manager;
+
+import management.IntMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntMapTest {
+
+    @Test
+    void shouldMatchHashMapUnderRandomOperations() {
+        IntMap<String> map = new IntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000) - 100; // Включая отрицательные ключи и 0
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -100; key < 4_900; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        assertEquals(expected, map.asMap());
+    }
+
+    @Test
+    void shouldFindAllKeysAfterHeavyChurn() {
+        IntMap<Integer> map = new IntMap<>(64);
+        // Скользящее окно ключей: при надгробиях таблица заполнилась бы ими и поиск деградировал
+        for (int key = 1; key <= 1_000_000; key++) {
+            map.put(key, key);
+            if (key > 40) {
+                assertEquals(Integer.valueOf(key - 40), map.remove(key - 40));
+            }
+        }
+        assertEquals(40, map.size());
+        for (int key = 1_000_000 - 39; key <= 1_000_000; key++) {
+            assertEquals(Integer.valueOf(key), map.get(key));
+        }
+        assertNull(map.get(1_000_000 - 40));
+    }
+
+    @Test
+    void shouldIterateWithoutBoxingAndFailFast() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = 1; key <= 100; key++) {
+            map.put(key, "v" + key);
+        }
+        long[] sum = new long[1];
+        map.forEach((key, value) -> {
+            assertEquals("v" + key, value);
+            sum[0] += key;
+        });
+        assertEquals(5050, sum[0]);
+        assertEquals(100, new ArrayList<>(map.values()).size());
+
+        Iterator<String> iterator = map.values().iterator();
+        iterator.next();
+        map.remove(50);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+        assertThrows(UnsupportedOperationException.class, () -> map.values().remove("v1"));
+        assertThrows(UnsupportedOperationException.class, () -> map.asMap().put(1, "x"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(List.of(), new ArrayList<>(map.values()));
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import management.*;
 import org.junit.jupiter.api.Test;
+import task.Task;
 
 class ManagersTest {
     @Test
@@ -17,6 +18,28 @@ class ManagersTest {
                 "Должен возвращаться InMemoryTaskManager");
     }
 
+    @Test
+    void getDefault_shouldApplyHistoryCapacity() {
+        TaskManager taskManager = Managers.getDefault(2);
+        assertEquals(InMemoryTaskManager.class, taskManager.getClass(),
+                "Должен возвращаться InMemoryTaskManager");
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task("Task" + i, "Description", "01.01.2030 1" + i + ":00", 30L);
+            taskManager.createTask(task);
+            taskManager.getTask(task.getId());
+        }
+        assertEquals(2, taskManager.getHistory().size(), "Старые просмотры вытесняются");
+        assertEquals(3, taskManager.getHistory().get(0).getId(), "Последний просмотр остаётся");
+    }
+
+    @Test
+    void getConcurrent_shouldReturnConcurrentTaskManagerInstance() {
+        TaskManager taskManager = Managers.getConcurrent();
+        assertNotNull(taskManager, "Менеджер задач не должен быть null");
+        assertEquals(ConcurrentTaskManager.class, taskManager.getClass(),
+                "Должен возвращаться ConcurrentTaskManager");
+    }
+
     @Test
     void getDefaultHistory_shouldReturnInitializedHistoryManagerInstance() {
         // Проверяем, что getDefaultHistory() возвращает не-null объект
@@ -27,4 +50,16 @@ class ManagersTest {
         assertEquals(InMemoryHistoryManager.class, historyManager.getClass(),
                 "Должен возвращаться InMemoryHistoryManager");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getDefaultHistory_shouldApplyCapacity() {
+        HistoryManager historyManager = Managers.getDefaultHistory(2);
+        for (int id = 1; id <= 3; id++) {
+            Task task = new Task("Task" + id, "Description");
+            task.setId(id);
+            historyManager.addToHistory(task);
+        }
+        assertEquals(2, historyManager.getHistory().size(), "Старые просмотры вытесняются");
+        assertEquals(2, ((InMemoryHistoryManager) historyManager).getCapacity());
+    }
+}
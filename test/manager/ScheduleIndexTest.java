@@ -0,0 +1,98 @@
+package manager;
+
+import management.ScheduleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleIndexTest {
+    private ScheduleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ScheduleIndex();
+    }
+
+    @Test
+    void shouldFindOverlapOnlyForIntersectingIntervals() {
+        Task task = new Task("Task", "Description", "01.01.2023 10:00", 60L);
+        task.setId(1);
+        index.add(task);
+
+        LocalDateTime start = task.getStartTime();
+        assertTrue(index.hasOverlap(start.plusMinutes(30), start.plusMinutes(90), t -> false));
+        assertFalse(index.hasOverlap(start.plusMinutes(60), start.plusMinutes(90), t -> false),
+                "Интервалы, касающиеся границей, не пересекаются");
+        assertFalse(index.hasOverlap(start.minusMinutes(30), start, t -> false));
+    }
+
+    @Test
+    void shouldNotFindRemovedTask() {
+        Task task = new Task("Task", "Description", "01.01.2023 10:00", 60L);
+        task.setId(1);
+        index.add(task);
+        index.remove(task);
+
+        assertEquals(0, index.size());
+        assertFalse(index.hasOverlap(task.getStartTime(), task.getEndTime(), t -> false));
+    }
+
+    @Test
+    void shouldExcludeEpicForItsSubTask() {
+        Epic epic = new Epic("Epic", "Description");
+        epic.setId(1);
+        SubTask subTask = new SubTask("SubTask", "Description", "01.01.2023 10:00", 60L, epic);
+        subTask.setId(2);
+        epic.setEpicStartTime(subTask.getStartTime());
+        epic.setEpicEndTime(subTask.getEndTime());
+        index.add(epic);
+
+        SubTask another = new SubTask("Another", "Description", "01.01.2023 10:30", 60L, epic);
+        another.setId(3);
+        assertFalse(index.hasOverlap(another.getStartTime(), another.getEndTime(),
+                ScheduleIndex.exclusionsFor(another)), "Подзадача не должна конфликтовать со своим эпиком");
+
+        Task task = new Task("Task", "Description", "01.01.2023 10:30", 60L);
+        task.setId(4);
+        assertTrue(index.hasOverlap(task.getStartTime(), task.getEndTime(),
+                ScheduleIndex.exclusionsFor(task)));
+    }
+
+    @Test
+    void shouldMatchLinearScanOnRandomIntervals() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0);
+        List<Task> stored = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            Task task = new Task("Task" + i, "Description");
+            task.setId(i);
+            task.setStartTime(base.plusMinutes(random.nextInt(100_000)));
+            task.setDuration(Duration.ofMinutes(1 + random.nextInt(300)));
+            stored.add(task);
+            index.add(task);
+        }
+        for (int i = 0; i < 500; i++) {
+            index.remove(stored.remove(random.nextInt(stored.size())));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime start = base.plusMinutes(random.nextInt(100_000));
+            LocalDateTime end = start.plusMinutes(1 + random.nextInt(120));
+            long expected = stored.stream()
+                    .filter(t -> t.getStartTime().isBefore(end) && start.isBefore(t.getEndTime()))
+                    .count();
+            assertEquals(expected, index.overlaps(start, end).size());
+            assertEquals(expected > 0, index.hasOverlap(start, end, t -> false));
+        }
+    }
+}
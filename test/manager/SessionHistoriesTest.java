@@ -0,0 +1,86 @@
+package manager;
+
+import management.SessionHistories;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionHistoriesTest {
+    private final AtomicLong now = new AtomicLong();
+    private final Map<Integer, Task> storage = new HashMap<>();
+    private final SessionHistories histories = new SessionHistories(Duration.ofMinutes(30), 3, now::get);
+
+    private Task stored(int id) {
+        Task task = new Task("Task" + id, "Description");
+        task.setId(id);
+        storage.put(id, task);
+        return task;
+    }
+
+    @Test
+    void shouldKeepSeparateHistoryPerSession() {
+        Task first = stored(1);
+        Task second = stored(2);
+        histories.record("alice", 1);
+        histories.record("bob", 2);
+        histories.record("alice", 2);
+        histories.record("alice", 1);
+
+        assertEquals(List.of(first, second), histories.getHistory("alice", storage::get));
+        assertEquals(List.of(second), histories.getHistory("bob", storage::get));
+        assertTrue(histories.getHistory("carol", storage::get).isEmpty());
+    }
+
+    @Test
+    void shouldDropDeletedTasksOnRead() {
+        Task kept = stored(1);
+        stored(2);
+        histories.record("alice", 1);
+        histories.record("alice", 2);
+        histories.record("bob", 2);
+
+        storage.remove(2);
+        assertEquals(List.of(kept), histories.getHistory("alice", storage::get));
+        assertTrue(histories.getHistory("bob", storage::get).isEmpty());
+
+        stored(2); // Даже если задача снова появится, выброшенная запись не возвращается
+        assertEquals(List.of(kept), histories.getHistory("alice", storage::get));
+    }
+
+    @Test
+    void shouldEvictOldestViewWhenSessionIsFull() {
+        for (int id = 1; id <= 4; id++) {
+            stored(id);
+            histories.record("alice", id);
+        }
+        assertEquals(List.of(4, 3, 2), histories.getHistory("alice", storage::get).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void shouldExpireIdleSessions() {
+        stored(1);
+        histories.record("alice", 1);
+        histories.record("bob", 1);
+
+        now.addAndGet(Duration.ofMinutes(20).toNanos());
+        histories.getHistory("bob", storage::get); // Чтение продлевает сессию
+        now.addAndGet(Duration.ofMinutes(15).toNanos());
+
+        assertEquals(1, histories.expireIdle());
+        assertEquals(1, histories.sessionCount());
+        assertTrue(histories.getHistory("alice", storage::get).isEmpty());
+        assertEquals(1, histories.getHistory("bob", storage::get).size());
+
+        histories.record("alice", 1);
+        assertEquals(1, histories.getHistory("alice", storage::get).size(), "Истёкшая сессия создаётся заново");
+        histories.endSession("alice");
+        assertEquals(1, histories.sessionCount());
+    }
+}
@@ -0,0 +1,89 @@
+package manager;
+
+import management.ConcurrentTaskManager;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.SubTask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager(16);
+    }
+
+    @Test
+    void testParallelUpdatesOnDifferentEpicsKeepEpicsConsistent() throws InterruptedException {
+        int threads = 4;
+        int perThread = 200;
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 0, 0);
+        List<Epic> epics = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Epic epic = new Epic("Epic" + t, "Description");
+            taskManager.createEpic(epic);
+            epics.add(epic);
+        }
+
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CyclicBarrier createdAll = new CyclicBarrier(threads);
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    Epic own = epics.get(thread);
+                    Epic neighbour = epics.get((thread + 1) % threads);
+                    List<SubTask> created = new ArrayList<>();
+                    // Интервалы эпиков не должны пересекаться, поэтому у каждого потока свой отрезок времени
+                    LocalDateTime from = base.plusYears(thread);
+                    for (int i = 0; i < perThread; i++) {
+                        SubTask subTask = new SubTask("SubTask", "Description", own);
+                        subTask.setStartTime(from.plusHours(i));
+                        subTask.setDuration(Duration.ofMinutes(30));
+                        taskManager.createSubTask(subTask);
+                        taskManager.updateSubTask(subTask, null, null, Status.DONE, null, null, null);
+                        created.add(subTask);
+                    }
+                    // Перенос расширяет интервал соседнего эпика, поэтому начинаем его после всех созданий
+                    createdAll.await();
+                    for (int i = 0; i < perThread; i += 2) {
+                        // Встречные переносы между соседними эпиками проверяют порядок захвата блокировок
+                        taskManager.updateSubTask(created.get(i), null, null, null, null, null, neighbour);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            writers[t].start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join(30_000);
+            assertFalse(writer.isAlive(), "Потоки не должны блокировать друг друга");
+        }
+
+        assertTrue(errors.isEmpty(), "Изменения не должны падать: " + errors);
+        int total = 0;
+        for (Epic epic : epics) {
+            total += epic.getPrioritizedSubTasks().size();
+            assertEquals(Status.DONE, epic.getStatus(), "Все подзадачи эпика завершены");
+            assertTrue(epic.hasConsistentAggregates(), "Агрегаты эпика должны совпадать с пересчётом");
+            Duration expected = Duration.ofMinutes(30L * epic.getPrioritizedSubTasks().size());
+            assertEquals(expected, epic.getEpicDuration(), "Длительность эпика должна быть пересчитана");
+            assertEquals(epic.getPrioritizedSubTasks().first().getStartTime(), epic.getStartTime());
+        }
+        assertEquals(threads * perThread, total);
+    }
+}
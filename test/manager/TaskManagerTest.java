@@ -1,5 +1,6 @@
 package manager;
 
+import exceptions.BatchOverlapException;
 import exceptions.TaskOverlapException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -234,6 +235,339 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(Status.NEW, epic.getStatus(), "Статус эпика без подзадач должен быть NEW");
     }
 
+    @Test
+    public void testEpicStatusCountersMatchFullRecompute() {
+        Epic first = new Epic("First", "Description");
+        Epic second = new Epic("Second", "Description");
+        taskManager.createEpic(first);
+        taskManager.createEpic(second);
+        SubTask subTask1 = new SubTask("SubTask 1", "Description", "01.01.2023 10:00", 60L, first);
+        SubTask subTask2 = new SubTask("SubTask 2", "Description", "01.01.2023 11:00", 60L, first);
+        SubTask subTask3 = new SubTask("SubTask 3", "Description", "01.01.2023 12:00", 60L, first);
+        taskManager.createSubTask(subTask1);
+        taskManager.createSubTask(subTask2);
+        taskManager.createSubTask(subTask3);
+
+        taskManager.updateSubTask(subTask1, null, null, Status.DONE, null, null, null);
+        taskManager.updateSubTask(subTask2, null, null, Status.IN_PROGRESS, "01.01.2023 13:00", 30L, second);
+        taskManager.updateSubTask(subTask3, null, null, Status.DONE, null, null, null);
+        assertEquals(Status.DONE, first.getStatus(), "У первого эпика остались только завершённые подзадачи");
+        assertEquals(Status.IN_PROGRESS, second.getStatus());
+
+        taskManager.deleteSubTask(subTask2.getId());
+        assertEquals(Status.NEW, second.getStatus(), "Эпик без подзадач должен быть NEW");
+        for (Epic epic : taskManager.getAllEpics().values()) {
+            assertTrue(epic.hasConsistentAggregates(), "Агрегаты эпика " + epic.getId() + " разошлись");
+        }
+    }
+
+    @Test
+    public void testStatusQueriesFollowEveryChange() {
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        SubTask subTask = taskManager.getAllSubTasks().values().iterator().next();
+        Epic epic = subTask.getEpic();
+        assertTrue(taskManager.getTasksByStatus(Status.NEW).contains(task));
+        assertTrue(taskManager.getSubTasksByStatus(Status.NEW).contains(subTask));
+        assertTrue(taskManager.getEpicsByStatus(Status.NEW).contains(epic));
+
+        taskManager.updateTask(task, null, null, Status.IN_PROGRESS, null, null);
+        taskManager.updateSubTask(subTask, null, null, Status.DONE, null, null, null);
+        assertTrue(taskManager.getTasksByStatus(Status.NEW).isEmpty());
+        assertTrue(taskManager.getTasksByStatus(Status.IN_PROGRESS).contains(task));
+        assertTrue(taskManager.getSubTasksByStatus(Status.DONE).contains(subTask));
+        assertTrue(taskManager.getEpicsByStatus(Status.DONE).contains(epic), "Эпик переходит в DONE вслед за подзадачей");
+        assertTrue(taskManager.getEpicsByStatus(Status.NEW).isEmpty());
+
+        taskManager.deleteSubTask(subTask.getId());
+        assertTrue(taskManager.getSubTasksByStatus(Status.DONE).isEmpty());
+        assertTrue(taskManager.getEpicsByStatus(Status.NEW).contains(epic), "Эпик без подзадач снова NEW");
+
+        taskManager.deleteTask(task.getId());
+        taskManager.deleteEpic(epic.getId());
+        for (Status status : Status.values()) {
+            assertTrue(taskManager.getTasksByStatus(status).isEmpty());
+            assertTrue(taskManager.getEpicsByStatus(status).isEmpty());
+        }
+    }
+
+    @Test
+    public void testTimeRangeQueries() {
+        taskManager.deleteAll();
+        Task first = new Task("First", "Description", "01.01.2024 10:00", 60L);
+        Task second = new Task("Second", "Description", "01.01.2024 12:00", 120L);
+        Task third = new Task("Third", "Description", "02.01.2024 09:00", 30L);
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+        taskManager.createTask(third);
+        LocalDateTime dayStart = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        assertEquals(List.of(first, second),
+                List.copyOf(taskManager.getTasksStartingBetween(dayStart, dayStart.plusDays(1))));
+        assertEquals(List.of(first), List.copyOf(taskManager.getTasksStartingBetween(
+                first.getStartTime(), second.getStartTime())), "Правая граница не входит в интервал");
+        assertThrows(UnsupportedOperationException.class,
+                () -> taskManager.getTasksStartingBetween(dayStart, dayStart.plusDays(1)).clear());
+
+        assertEquals(List.of(second), taskManager.getTasksActiveAt(LocalDateTime.of(2024, 1, 1, 13, 0)));
+        assertTrue(taskManager.getTasksActiveAt(first.getEndTime()).isEmpty(), "Окончание задачи не входит в интервал");
+
+        assertEquals(List.of(second, third), taskManager.getNextTasks(LocalDateTime.of(2024, 1, 1, 10, 1), 5));
+        assertEquals(List.of(first), taskManager.getNextTasks(dayStart, 1));
+    }
+
+    @Test
+    public void testFindFreeSlots() {
+        taskManager.deleteAll();
+        taskManager.createTask(new Task("First", "Description", "01.01.2024 10:00", 60L));
+        taskManager.createTask(new Task("Second", "Description", "01.01.2024 11:30", 60L));
+        Epic epic = new Epic("Epic", "Description");
+        taskManager.createEpic(epic);
+        taskManager.createSubTask(new SubTask("SubTask 1", "Description", "01.01.2024 13:00", 30L, epic));
+        taskManager.createSubTask(new SubTask("SubTask 2", "Description", "01.01.2024 14:30", 30L, epic));
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        assertEquals(LocalDateTime.of(2024, 1, 1, 11, 0), taskManager.findNextFreeSlot(from, Duration.ofMinutes(30)));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 15, 0), taskManager.findNextFreeSlot(from, Duration.ofMinutes(45)),
+                "Промежуток между подзадачами занят интервалом эпика");
+        assertEquals(LocalDateTime.of(2024, 1, 1, 13, 30), taskManager.findNextFreeSlot(epic,
+                LocalDateTime.of(2024, 1, 1, 12, 45), Duration.ofMinutes(45)), "Новой подзадаче эпик не мешает");
+
+        List<LocalDateTime> slots = taskManager.findFreeSlots(from, Duration.ofMinutes(30), 3);
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 1, 11, 0), LocalDateTime.of(2024, 1, 1, 12, 30),
+                LocalDateTime.of(2024, 1, 1, 15, 0)), slots);
+        for (LocalDateTime slot : slots) {
+            Task task = new Task("Planned", "Description", slot.format(Task.formatter), 30L);
+            assertDoesNotThrow(() -> taskManager.createTask(task), "Найденное окно должно быть свободно");
+        }
+    }
+
+    @Test
+    public void testScheduleTasksFillsGapsByPriority() {
+        taskManager.deleteAll();
+        taskManager.createTask(new Task("Busy", "Description", "01.01.2024 10:00", 60L));
+        taskManager.createTask(new Task("Busy", "Description", "01.01.2024 11:30", 60L));
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+        Task low = new Task("Low", "Description");
+        low.setDuration(Duration.ofMinutes(30));
+        Task high = new Task("High", "Description");
+        high.setDuration(Duration.ofMinutes(60));
+        Task late = new Task("Late", "Description");
+        late.setDuration(Duration.ofMinutes(30));
+        taskManager.scheduleTasks(List.of(
+                new TaskScheduler.Job(low, 1, null),
+                new TaskScheduler.Job(high, 5, null),
+                new TaskScheduler.Job(late, 5, LocalDateTime.of(2024, 1, 1, 11, 0))), from);
+
+        assertEquals(LocalDateTime.of(2024, 1, 1, 9, 0), high.getStartTime(), "Старший приоритет занимает первое окно");
+        assertEquals(LocalDateTime.of(2024, 1, 1, 11, 0), late.getStartTime(), "Учитывается самое раннее начало");
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 30), low.getStartTime(), "Окно 11:00-11:30 уже занято");
+        assertEquals(5, taskManager.getAllTasks().size());
+        assertEquals(3, taskManager.getTasksByStatus(Status.NEW).size() - 2);
+        assertThrows(TaskOverlapException.class,
+                () -> taskManager.createTask(new Task("Overlap", "Description", "01.01.2024 09:30", 10L)));
+    }
+
+    @Test
+    public void testCreateAllAddsBatchWithEpics() {
+        Epic epic = new Epic("Batch Epic", "Description");
+        SubTask first = new SubTask("First", "Description", "01.02.2024 10:00", 60L, epic);
+        SubTask second = new SubTask("Second", "Description", "01.02.2024 12:00", 30L, epic);
+        second.setStatus(Status.DONE);
+        Task task = new Task("Batch Task", "Description", "01.02.2024 11:00", 60L);
+        taskManager.createAll(List.of(first, task, epic, second));
+
+        assertTrue(first.getId() > 0 && epic.getId() > 0, "Идентификаторы назначены");
+        assertEquals(epic, taskManager.getEpic(epic.getId()));
+        assertEquals(2, epic.getPrioritizedSubTasks().size());
+        assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус эпика пересчитан");
+        assertEquals(first.getStartTime(), epic.getEpicStartTime());
+        assertEquals(second.getEndTime(), epic.getEpicEndTime());
+        assertTrue(taskManager.getEpicsByStatus(Status.IN_PROGRESS).contains(epic));
+        assertTrue(taskManager.getPrioritizedTasks().containsAll(List.of(first, task, second)));
+    }
+
+    @Test
+    public void testCreateAllRejectsWholeBatchAndListsAllConflicts() {
+        int tasksBefore = taskManager.getAllTasks().size();
+        Task inBatch = new Task("A", "Description", "16.03.2025 10:00", 60L);
+        Task overlapsBatch = new Task("B", "Description", "16.03.2025 10:30", 60L);
+        Task overlapsExisting = new Task("C", "Description", "16.03.2025 15:00", 30L);
+        Task free = new Task("D", "Description", "17.03.2025 15:00", 30L);
+
+        BatchOverlapException e = assertThrows(BatchOverlapException.class,
+                () -> taskManager.createAll(List.of(inBatch, overlapsBatch, overlapsExisting, free)));
+        assertEquals(2, e.getConflicts().size(), "Сообщаются все пары");
+        assertEquals(tasksBefore, taskManager.getAllTasks().size(), "Пакет не применён даже частично");
+        assertEquals(0, free.getId());
+    }
+
+    @Test
+    public void testUpdateAllAppliesChangesAtOnce() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        Task task = taskManager.getAllTasks().values().iterator().next();
+
+        // Задачи меняются местами: по одной такое обновление упёрлось бы в пересечение
+        Task movedTask = new Task(task.getName(), "Moved", "15.03.2025 14:30", 120L, Status.DONE);
+        movedTask.setId(task.getId());
+        SubTask movedSubTask = new SubTask(subTask.getName(), "Moved", "16.03.2025 14:30", 120L, epic);
+        movedSubTask.setId(subTask.getId());
+        movedSubTask.setStatus(Status.DONE);
+        taskManager.updateAll(List.of(movedTask, movedSubTask));
+
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), task.getStartTime());
+        assertEquals(Status.DONE, task.getStatus());
+        assertEquals(LocalDateTime.of(2025, 3, 16, 14, 30), subTask.getStartTime());
+        assertEquals(Status.DONE, epic.getStatus(), "Эпик пересчитан после пакета");
+        assertEquals(subTask.getStartTime(), epic.getEpicStartTime());
+        assertTrue(epic.hasConsistentAggregates());
+        assertTrue(taskManager.getTasksByStatus(Status.DONE).contains(task));
+
+        Task clash = new Task("Clash", "Description", "16.03.2025 15:00", 10L);
+        clash.setId(task.getId());
+        assertThrows(BatchOverlapException.class, () -> taskManager.updateAll(List.of(clash)));
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), task.getStartTime(), "Задача не изменена");
+    }
+
+    @Test
+    public void testTransactionValidatesOnlyFinalState() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        Epic target = new Epic("Target", "Description");
+
+        SubTask added = new SubTask("Added", "Description", "20.03.2025 10:00", 30L, target);
+        added.setStatus(Status.DONE);
+
+        // Задача и подзадача меняются временем: по одной операции такое изменение невозможно
+        taskManager.inTransaction(manager -> {
+            manager.createEpic(target);
+            manager.createSubTask(added);
+            manager.updateTask(task, null, null, null, "15.03.2025 14:30", 120L);
+            manager.updateSubTask(subTask, null, null, Status.DONE, "16.03.2025 14:30", 120L, null);
+        });
+
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), task.getStartTime());
+        assertEquals(subTask.getStartTime(), epic.getEpicStartTime(), "Эпик пересчитан при фиксации");
+        assertEquals(Status.DONE, epic.getStatus());
+        assertTrue(epic.hasConsistentAggregates());
+        assertEquals(Status.DONE, target.getStatus());
+        assertEquals(added.getStartTime(), target.getEpicStartTime());
+        assertTrue(taskManager.getEpicsByStatus(Status.DONE).containsAll(List.of(epic, target)));
+        assertThrows(TaskOverlapException.class,
+                () -> taskManager.createTask(new Task("Overlap", "Description", "16.03.2025 15:00", 10L)));
+    }
+
+    @Test
+    public void testTransactionRollsBackOnConflict() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        List<Task> prioritizedBefore = taskManager.getPrioritizedTasks();
+        Task created = new Task("Created", "Description", "01.04.2025 10:00", 30L);
+
+        assertThrows(BatchOverlapException.class, () -> taskManager.inTransaction(manager -> {
+            manager.createTask(created);
+            manager.deleteTask(task.getId());
+            manager.updateSubTask(subTask, "Renamed", null, Status.DONE, "01.04.2025 10:15", 30L, null);
+        }));
+
+        assertEquals(0, created.getId(), "Новая задача не создана");
+        assertEquals(task, taskManager.getTask(task.getId()), "Удалённая задача восстановлена");
+        assertEquals("SubTask", subTask.getName());
+        assertEquals(Status.NEW, subTask.getStatus());
+        assertEquals(LocalDateTime.of(2025, 3, 15, 14, 30), subTask.getStartTime());
+        assertEquals(Status.NEW, epic.getStatus());
+        assertEquals(subTask.getStartTime(), epic.getEpicStartTime());
+        assertTrue(epic.hasConsistentAggregates());
+        assertEquals(prioritizedBefore, taskManager.getPrioritizedTasks());
+        assertTrue(taskManager.getSubTasksByStatus(Status.NEW).contains(subTask));
+        assertTrue(taskManager.getTasksByStatus(Status.NEW).contains(task));
+
+        Task next = new Task("Next", "Description", "01.04.2025 10:00", 30L);
+        taskManager.createTask(next);
+        assertEquals(subTask.getId() + 1, next.getId(), "Счётчик идентификаторов восстановлен");
+    }
+
+    @Test
+    public void testTransactionRollsBackOnException() {
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.deleteEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+
+        assertEquals(epic, taskManager.getEpic(epic.getId()));
+        assertEquals(subTask, taskManager.getSubTask(subTask.getId()));
+        assertTrue(epic.getPrioritizedSubTasks().contains(subTask));
+        assertEquals(subTask.getStartTime(), epic.getEpicStartTime());
+        assertThrows(TaskOverlapException.class,
+                () -> taskManager.createTask(new Task("Overlap", "Description", "15.03.2025 15:00", 10L)));
+    }
+
+    @Test
+    public void testReadsAreRecordedInHistory() {
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = taskManager.getAllSubTasks().values().iterator().next();
+        assertTrue(taskManager.getHistory().isEmpty(), "Создание не считается просмотром");
+
+        taskManager.getTask(task.getId());
+        taskManager.getEpic(epic.getId());
+        taskManager.getSubTask(subTask.getId());
+        taskManager.getTask(task.getId());
+        taskManager.getTask(-1);
+        assertEquals(List.of(task, subTask, epic), taskManager.getHistory(), "Последний просмотр первым, без повторов");
+
+        taskManager.deleteEpic(epic.getId());
+        assertEquals(List.of(task), taskManager.getHistory(), "Удалённые задачи уходят из истории");
+        taskManager.deleteAll();
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    public void testRolledBackDeletesStayInHistory() {
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = epic.getPrioritizedSubTasks().first();
+        taskManager.getTask(task.getId());
+        taskManager.getSubTask(subTask.getId());
+        taskManager.getEpic(epic.getId());
+        List<Task> historyBefore = taskManager.getHistory();
+
+        assertThrows(IllegalStateException.class, () -> taskManager.inTransaction(manager -> {
+            manager.deleteTask(task.getId());
+            manager.deleteEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+        assertEquals(historyBefore, taskManager.getHistory(), "Откат не теряет просмотры удалённых задач");
+
+        taskManager.inTransaction(manager -> manager.deleteTask(task.getId()));
+        assertEquals(List.of(epic, subTask), taskManager.getHistory(), "При фиксации удалённая задача уходит из истории");
+    }
+
+    @Test
+    public void testSessionHistoriesArePartitioned() {
+        Task task = taskManager.getAllTasks().values().iterator().next();
+        Epic epic = taskManager.getAllEpics().values().iterator().next();
+        SubTask subTask = taskManager.getAllSubTasks().values().iterator().next();
+
+        taskManager.getTask("alice", task.getId());
+        taskManager.getSubTask("alice", subTask.getId());
+        taskManager.getEpic("bob", epic.getId());
+        taskManager.getTask("bob", -1);
+
+        assertEquals(List.of(subTask, task), taskManager.getHistory("alice"));
+        assertEquals(List.of(epic), taskManager.getHistory("bob"));
+        assertTrue(taskManager.getHistory().isEmpty(), "Просмотры сессий не попадают в общую историю");
+
+        taskManager.deleteSubTask(subTask.getId());
+        assertEquals(List.of(task), taskManager.getHistory("alice"), "Удалённая задача исчезает из сессии");
+    }
+
     @Test
     public void testEpicTimeCalculation() {
         Epic epic = new Epic("Test Epic", "Test Description");
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.BeforeEach;
 
+import java.time.Duration;
+
 class EpicTest {
     private Epic epic1;
     private Epic epic2;
@@ -40,4 +42,51 @@ class EpicTest {
         assertTrue(epic1.getPrioritizedSubTasks().contains(subTask));
         assertEquals(epic1, subTask.getEpic());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testStatusCountersFollowSubTasks() {
+        SubTask done = new SubTask("Done", "Description", epic1);
+        done.setId(3);
+        done.setStatus(Status.DONE);
+        epic1.setPrioritizedSubTasks(subTask);
+        epic1.setPrioritizedSubTasks(done);
+        epic1.setPrioritizedSubTasks(done); // Повторное добавление не должно учитываться
+        epic1.updateEpicStatus(epic1);
+        assertEquals(Status.IN_PROGRESS, epic1.getStatus());
+        assertEquals(1, epic1.getSubTaskCount(Status.NEW));
+        assertEquals(1, epic1.getSubTaskCount(Status.DONE));
+
+        epic1.deletePrioritizedSubTasks(subTask);
+        epic1.updateEpicStatus(epic1);
+        assertEquals(Status.DONE, epic1.getStatus());
+        assertTrue(epic1.hasConsistentStatusCounts());
+
+        epic1.clearPrioritizedSubTasks();
+        epic1.updateEpicStatus(epic1);
+        assertEquals(Status.NEW, epic1.getStatus());
+        assertTrue(epic1.hasConsistentStatusCounts());
+    }
+
+    @Test
+    void testEpicEndTimeIsLatestSubTaskEnd() {
+        SubTask longSubTask = new SubTask("Long", "Description", "01.01.2023 10:00", 600L, epic1);
+        longSubTask.setId(3);
+        SubTask shortSubTask = new SubTask("Short", "Description", "01.01.2023 12:00", 30L, epic1);
+        shortSubTask.setId(4);
+        epic1.setPrioritizedSubTasks(longSubTask);
+        epic1.setPrioritizedSubTasks(shortSubTask);
+        epic1.updateEpicTimes(epic1);
+        assertEquals(longSubTask.getEndTime(), epic1.getEpicEndTime(),
+                "Окончание эпика — самое позднее окончание подзадач, а не окончание последней по началу");
+        assertEquals(Duration.ofMinutes(630), epic1.getEpicDuration());
+
+        // Время подзадачи меняется только вне эпика, как это делает менеджер
+        epic1.deletePrioritizedSubTasks(longSubTask);
+        longSubTask.setDuration(Duration.ofMinutes(60));
+        epic1.setPrioritizedSubTasks(longSubTask);
+        epic1.updateEpicTimes(epic1);
+        assertEquals(shortSubTask.getEndTime(), epic1.getEpicEndTime());
+        assertEquals(Duration.ofMinutes(90), epic1.getEpicDuration());
+        assertTrue(epic1.hasConsistentAggregates());
+    }
+}